@@ -44,6 +44,7 @@ public abstract class ApplicationInterface extends GenericProtocol implements Le
 	private final BlockingQueue<AppOperation> queuedOperations = new LinkedBlockingQueue<>();
 	private long globalOpIdx = 0;
 	private byte[] replicaId;
+	private InclusionProofIndex inclusionProofIndex;
 
 	/**
 	 * The creation of the ApplicationInterface triggers the launch of Blockmess.
@@ -69,6 +70,8 @@ public abstract class ApplicationInterface extends GenericProtocol implements Le
 		String address = props.getProperty("address");
 		int port = Integer.parseInt(props.getProperty("port"));
 		replicaId = concatenate(address.getBytes(), numToBytes(port));
+		inclusionProofIndex = new InclusionProofIndex(
+				Integer.parseInt(props.getProperty("inclusionProofBlocks", "1000")));
 		new Thread(this::processOperations).start();
 		MempoolManager.getSingleton().attachObserver(this);
 	}
@@ -184,8 +187,22 @@ public abstract class ApplicationInterface extends GenericProtocol implements Le
 		LedgerManager.getSingleton().submitOperation(content);
 	}
 
+	/**
+	 * Provides the proof that a finalized operation was included in a block.
+	 * <p>The proof can be verified by clients holding only the id of the block,
+	 * without obtaining and replaying the whole block.</p>
+	 *
+	 * @param operationId The identifier of the operation, as in {@link AppOperation#getId()}.
+	 * @return The identifier of the block including the operation, alongside the proof of inclusion.
+	 * <p>Empty if the operation was not finalized or was finalized in a block no longer retained.</p>
+	 */
+	public Optional<OperationInclusionProof> getInclusionProof(@NotNull UUID operationId) {
+		return inclusionProofIndex.getInclusionProof(operationId);
+	}
+
 	@Override
 	public void deliverNonFinalizedBlock(BlockmessBlock block, int weight) {
+		inclusionProofIndex.recordBlock(block);
 		notifyNonFinalizedBlock(block);
 	}
 
@@ -205,6 +222,7 @@ public abstract class ApplicationInterface extends GenericProtocol implements Le
 
 	@Override
 	public void deliverFinalizedBlocks(List<UUID> finalized, Set<UUID> discarded) {
+		inclusionProofIndex.finalizeBlocks(finalized, discarded);
 		notifyFinalizedBlocks(finalized, discarded);
 	}
 
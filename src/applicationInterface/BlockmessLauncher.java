@@ -80,12 +80,14 @@ public class BlockmessLauncher {
 
 	private static void launchBlockmess(Host myself, Babel babel, Collection<GenericProtocol> appProtocols) throws Exception {
 		List<GenericProtocol> protocols = new LinkedList<>(addNetworkProtocols(myself));
+		initializeSerializers();
+		SnapshotManager.restoreSnapshot();
 		protocols.add(MempoolManager.getSingleton());
 		setUpLedgerManager(protocols);
 		setUpSybilElection();
-		initializeSerializers();
 		protocols.addAll(appProtocols);
 		initializeProtocols(babel, protocols);
+		SnapshotManager.scheduleSnapshots();
 	}
 
 	private static void setUpSybilElection() {
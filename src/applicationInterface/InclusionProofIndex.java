@@ -0,0 +1,128 @@
+package applicationInterface;
+
+import cmux.AppOperation;
+import ledger.blocks.BlockmessBlock;
+import org.apache.commons.lang3.tuple.Pair;
+import sybilResistantElection.SybilResistantElectionProof;
+import utils.CryptographicUtils;
+import utils.merkleTree.FlatMerkleBuilder;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Records the blocks in which the operations were finalized, in order to generate proofs of their inclusion.
+ * <p>Only the hashes of the operations are kept for each block, in the order they appear in the block,
+ * alongside the remaining fields identifying the block, which the clients need to verify the proofs.
+ * The identifiers of the operations are derived from their hashes, and need not be stored.</p>
+ * <p>The operations in the last retainedBlocks finalized blocks are kept.
+ * The proofs are generated when requested, from a Merkle tree built with the hashes of the operations in the block.
+ * The tree of a block is built when a proof is first requested for one of its operations,
+ * and kept for the following requests until the block is no longer retained.
+ * Its inner hashes are kept in a flat array, rather than in an object per node.</p>
+ */
+class InclusionProofIndex {
+
+	private final int retainedBlocks;
+
+	/**
+	 * Blocks received but not yet finalized.
+	 */
+	private final Map<UUID, RetainedBlock> pendingBlocks = new ConcurrentHashMap<>();
+
+	private final LinkedHashMap<UUID, RetainedBlock> finalizedBlocks = new LinkedHashMap<>();
+
+	/**
+	 * Block in which each operation was finalized, and its position in the content of the block.
+	 */
+	private final Map<UUID, Pair<UUID, Integer>> operationBlocks = new HashMap<>();
+
+	InclusionProofIndex(int retainedBlocks) {
+		this.retainedBlocks = retainedBlocks;
+	}
+
+	void recordBlock(BlockmessBlock block) {
+		if (retainedBlocks <= 0)
+			return;
+		List<byte[]> operationHashes = block.getContentList().getContentList().stream()
+				.map(AppOperation::getHashVal)
+				.collect(toList());
+		pendingBlocks.put(block.getBlockId(), new RetainedBlock(block, operationHashes));
+	}
+
+	synchronized void finalizeBlocks(List<UUID> finalized, Set<UUID> discarded) {
+		discarded.forEach(pendingBlocks::remove);
+		for (UUID blockId : finalized) {
+			RetainedBlock block = pendingBlocks.remove(blockId);
+			if (block == null)
+				continue;
+			finalizedBlocks.put(blockId, block);
+			for (int i = 0; i < block.operationHashes.size(); i++)
+				operationBlocks.put(CryptographicUtils.uuidFromHash(block.operationHashes.get(i)), Pair.of(blockId, i));
+		}
+		while (finalizedBlocks.size() > retainedBlocks)
+			evictOldestBlock();
+	}
+
+	private void evictOldestBlock() {
+		Iterator<Map.Entry<UUID, RetainedBlock>> it = finalizedBlocks.entrySet().iterator();
+		Map.Entry<UUID, RetainedBlock> oldest = it.next();
+		it.remove();
+		List<byte[]> operationHashes = oldest.getValue().operationHashes;
+		for (int i = 0; i < operationHashes.size(); i++)
+			operationBlocks.remove(CryptographicUtils.uuidFromHash(operationHashes.get(i)), Pair.of(oldest.getKey(), i));
+	}
+
+	/**
+	 * @return The proof of inclusion of a finalized operation,
+	 * or empty if the operation is unknown or its block is no longer retained.
+	 */
+	synchronized Optional<OperationInclusionProof> getInclusionProof(UUID operationId) {
+		Pair<UUID, Integer> location = operationBlocks.get(operationId);
+		if (location == null)
+			return Optional.empty();
+		UUID blockId = location.getLeft();
+		int operationIdx = location.getRight();
+		RetainedBlock block = finalizedBlocks.get(blockId);
+		FlatMerkleBuilder contentTree = block.getContentTree();
+		return contentTree.generateProof(operationIdx)
+				.map(proof -> new OperationInclusionProof(blockId, block.inherentWeight, block.prevRefs,
+						block.electionProof, block.destinationChain, contentTree.getRoot(),
+						block.operationHashes.get(operationIdx), proof));
+	}
+
+	/**
+	 * The fields of a block needed to generate the proofs of inclusion of its operations.
+	 */
+	private static class RetainedBlock {
+
+		private final int inherentWeight;
+
+		private final List<UUID> prevRefs;
+
+		private final SybilResistantElectionProof electionProof;
+
+		private final UUID destinationChain;
+
+		private final List<byte[]> operationHashes;
+
+		private FlatMerkleBuilder contentTree;
+
+		RetainedBlock(BlockmessBlock block, List<byte[]> operationHashes) {
+			this.inherentWeight = block.getInherentWeight();
+			this.prevRefs = block.getPrevRefs();
+			this.electionProof = block.getProof();
+			this.destinationChain = block.getDestinationChain();
+			this.operationHashes = operationHashes;
+		}
+
+		FlatMerkleBuilder getContentTree() {
+			if (contentTree == null)
+				contentTree = FlatMerkleBuilder.build(operationHashes);
+			return contentTree;
+		}
+	}
+
+}
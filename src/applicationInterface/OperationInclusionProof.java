@@ -0,0 +1,62 @@
+package applicationInterface;
+
+import ledger.blocks.BlockmessBlockImp;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import sybilResistantElection.SybilResistantElectionProof;
+import utils.merkleTree.MerkleProof;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Proof that an operation was included in a finalized block.
+ * <p>Allows a client to verify the inclusion of an operation without obtaining the whole block.
+ * The proof carries the fields identifying the block other than its content,
+ * from which the client recomputes the block id with the content root,
+ * as the id of a block commits to the root of the Merkle tree of its operations.
+ * Thus the client needs only to trust the block id, and not the replica serving the proof.</p>
+ */
+@Getter
+@AllArgsConstructor
+public class OperationInclusionProof {
+
+	private final UUID blockId;
+
+	private final int inherentWeight;
+
+	private final List<UUID> prevRefs;
+
+	private final SybilResistantElectionProof electionProof;
+
+	private final UUID destinationChain;
+
+	/**
+	 * Root of the Merkle tree of the hashes of the operations in the block.
+	 */
+	private final byte[] contentRoot;
+
+	private final byte[] operationHash;
+
+	private final MerkleProof proof;
+
+	/**
+	 * @return Whether the proof shows the operation with the given hash is included in the content of the block
+	 * with the given id.
+	 */
+	public boolean verify(UUID blockId, byte[] operationHash) {
+		return this.blockId.equals(blockId) && isContentRootInBlock()
+				&& MerkleProof.verify(operationHash, proof, contentRoot);
+	}
+
+	private boolean isContentRootInBlock() {
+		try {
+			return blockId.equals(BlockmessBlockImp.computeBlockId(inherentWeight, prevRefs, contentRoot,
+					electionProof, destinationChain));
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,160 @@
+package applicationInterface;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import ledger.ledgerManager.LedgerManager;
+import mempoolManager.MempoolChunk;
+import mempoolManager.MempoolManager;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Long.parseLong;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Periodically persists the state of the {@link LedgerManager} and the {@link MempoolManager} in a snapshot file,
+ * and restores it when the node is launched.
+ * <p>A node restored from a snapshot resumes with the Chains and blocks it had when the snapshot was taken,
+ * instead of starting with empty Chains and waiting for the initialization time.</p>
+ * <p>The snapshot is written by the thread delivering the finalized blocks,
+ * ensuring the Chains are not modified while being serialized.
+ * It is first written to a temporary file, which then replaces the previous snapshot.</p>
+ */
+public class SnapshotManager {
+
+	private static final Logger logger = LogManager.getLogger(SnapshotManager.class);
+
+	private static final int SNAPSHOT_MAGIC = 0x424D5331;
+
+	private static final long DEFAULT_SNAPSHOT_PERIOD = 60 * 1000;
+
+	private static final long SHUTDOWN_SNAPSHOT_TIMEOUT = 5 * 1000;
+
+	private static boolean restored = false;
+
+	private SnapshotManager() {}
+
+	/**
+	 * @return Whether the node was restored from a snapshot.
+	 */
+	public static boolean isRestored() {
+		return restored;
+	}
+
+	/**
+	 * Restores the {@link LedgerManager} and {@link MempoolManager} singletons from the snapshot file.
+	 * <p>Does nothing if the snapshots are disabled or there is no snapshot file.
+	 * Must be called before these singletons are first accessed,
+	 * and after the serializers of the blocks are registered.</p>
+	 * <p>The whole snapshot is decoded before either singleton is replaced.
+	 * Thus, a malformed snapshot is ignored, and the node starts with empty Chains.</p>
+	 */
+	public static void restoreSnapshot() {
+		Properties props = GlobalProperties.getProps();
+		if (!areSnapshotsEnabled(props))
+			return;
+		Path snapshotFile = getSnapshotFile(props);
+		if (!Files.exists(snapshotFile)) {
+			logger.info("No snapshot found in {}", snapshotFile);
+			return;
+		}
+		long start = System.currentTimeMillis();
+		Pair<LedgerManager, List<MempoolChunk>> decoded;
+		try {
+			decoded = decodeSnapshot(snapshotFile);
+		} catch (Exception e) {
+			logger.error("Unable to restore snapshot {} because: {}", snapshotFile, e.getMessage());
+			return;
+		}
+		LedgerManager.restoreSingleton(decoded.getLeft());
+		MempoolManager.getSingleton().restoreChunks(decoded.getRight());
+		restored = true;
+		logger.info("Restored snapshot {} in {} miliseconds", snapshotFile, System.currentTimeMillis() - start);
+	}
+
+	private static Pair<LedgerManager, List<MempoolChunk>> decodeSnapshot(Path snapshotFile) throws IOException {
+		ByteBuf snapshot = Unpooled.wrappedBuffer(Files.readAllBytes(snapshotFile));
+		if (snapshot.readInt() != SNAPSHOT_MAGIC)
+			throw new IOException("Unrecognized snapshot format");
+		LedgerManager ledger = LedgerManager.decodeSnapshot(snapshot);
+		List<MempoolChunk> chunks = MempoolManager.decodeSnapshot(snapshot);
+		if (snapshot.isReadable())
+			throw new IOException("Unexpected bytes after the end of the snapshot");
+		return Pair.of(ledger, chunks);
+	}
+
+	/**
+	 * Schedules the periodic writing of snapshots, and the writing of a last snapshot when the node shuts down.
+	 */
+	public static void scheduleSnapshots() {
+		Properties props = GlobalProperties.getProps();
+		if (!areSnapshotsEnabled(props))
+			return;
+		Path snapshotFile = getSnapshotFile(props);
+		long snapshotPeriod = parseLong(props.getProperty("snapshotPeriod", String.valueOf(DEFAULT_SNAPSHOT_PERIOD)));
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("snapshot-scheduler-%d").build());
+		scheduler.scheduleAtFixedRate(
+				() -> LedgerManager.getSingleton().executeInDeliveryThread(() -> writeSnapshot(snapshotFile)),
+				snapshotPeriod, snapshotPeriod, TimeUnit.MILLISECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> writeLastSnapshot(snapshotFile)));
+	}
+
+	private static void writeLastSnapshot(Path snapshotFile) {
+		CountDownLatch written = new CountDownLatch(1);
+		LedgerManager.getSingleton().executeInDeliveryThread(() -> {
+			writeSnapshot(snapshotFile);
+			written.countDown();
+		});
+		try {
+			written.await(SHUTDOWN_SNAPSHOT_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void writeSnapshot(Path snapshotFile) {
+		try {
+			tryToWriteSnapshot(snapshotFile);
+		} catch (Exception e) {
+			logger.error("Unable to write snapshot {} because: {}", snapshotFile, e.getMessage());
+		}
+	}
+
+	private static void tryToWriteSnapshot(Path snapshotFile) throws IOException {
+		ByteBuf snapshot = Unpooled.buffer();
+		snapshot.writeInt(SNAPSHOT_MAGIC);
+		LedgerManager.getSingleton().serializeSnapshot(snapshot);
+		MempoolManager.getSingleton().serializeSnapshot(snapshot);
+		Path directory = snapshotFile.toAbsolutePath().getParent();
+		if (directory != null)
+			Files.createDirectories(directory);
+		Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+		Files.write(tempFile, ByteBufUtil.getBytes(snapshot));
+		Files.move(tempFile, snapshotFile, REPLACE_EXISTING, ATOMIC_MOVE);
+		logger.info("Wrote snapshot with {} bytes to {}", snapshot.readableBytes(), snapshotFile);
+	}
+
+	private static boolean areSnapshotsEnabled(Properties props) {
+		return props.getProperty("useSnapshots", "F").equals("T");
+	}
+
+	private static Path getSnapshotFile(Properties props) {
+		return Path.of(props.getProperty("snapshotFile", "./snapshots/snapshot.bin"));
+	}
+
+}
@@ -3,14 +3,21 @@ package broadcastProtocols;
 import pt.unl.fct.di.novasys.babel.generic.ProtoMessage;
 import pt.unl.fct.di.novasys.network.data.Host;
 
+import java.util.Collection;
 import java.util.Set;
 import java.util.UUID;
 
 public interface BroadcastProtocol {
 
+    /**
+     * @return A view of the identifiers of the messages recorded, not copied.
+     */
     Set<UUID> getMsgIds();
 
-    Set<ProtoMessage> getMsgs();
+    /**
+     * @return A view of the messages recorded, not copied.
+     */
+    Collection<ProtoMessage> getMsgs();
 
     Set<Host> getPeers();
 
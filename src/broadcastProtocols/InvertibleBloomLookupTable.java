@@ -0,0 +1,195 @@
+package broadcastProtocols;
+
+import io.netty.buffer.ByteBuf;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Invertible Bloom Lookup Table over message identifiers, used to reconcile the messages held by two nodes.
+ * <p>Each identifier is added to {@link #NUM_HASHES} cells, one in each partition of the table.
+ * Each cell holds the number of identifiers added, the XOR of the identifiers and the XOR of their checksums.</p>
+ * <p>Subtracting the table of one node from the table of another cancels out the identifiers held by both.
+ * If the number of identifiers held by only one of the nodes is small enough relative to the number of cells,
+ * these identifiers can be recovered by repeatedly extracting the cells holding a single identifier.</p>
+ * <p>The size of the table depends only on the number of cells,
+ * and not on the number of identifiers inserted.
+ * Each cell occupies {@link #CELL_BYTES} bytes when serialized.</p>
+ */
+public class InvertibleBloomLookupTable {
+
+	public static final int NUM_HASHES = 3;
+
+	private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L};
+
+	private static final long CHECKSUM_SEED = 0xD6E8FEB86659FD93L;
+
+	public static final int CELL_BYTES = Integer.BYTES + 3 * Long.BYTES;
+
+	private final int[] counts;
+
+	private final long[] mostSignificantSums;
+
+	private final long[] leastSignificantSums;
+
+	private final long[] checksumSums;
+
+	/**
+	 * @param numCells Number of cells in the table, rounded up to a multiple of {@link #NUM_HASHES}.
+	 *                 Should be around twice the number of differences expected.
+	 */
+	public InvertibleBloomLookupTable(int numCells) {
+		int cells = Math.max(NUM_HASHES, (numCells + NUM_HASHES - 1) / NUM_HASHES * NUM_HASHES);
+		this.counts = new int[cells];
+		this.mostSignificantSums = new long[cells];
+		this.leastSignificantSums = new long[cells];
+		this.checksumSums = new long[cells];
+	}
+
+	public InvertibleBloomLookupTable(int numCells, Collection<UUID> ids) {
+		this(numCells);
+		ids.forEach(this::insert);
+	}
+
+	public int getNumCells() {
+		return counts.length;
+	}
+
+	public void insert(UUID id) {
+		update(id, 1);
+	}
+
+	public void delete(UUID id) {
+		update(id, -1);
+	}
+
+	private void update(UUID id, int delta) {
+		long msb = id.getMostSignificantBits();
+		long lsb = id.getLeastSignificantBits();
+		long checksum = checksum(msb, lsb);
+		for (int i = 0; i < NUM_HASHES; i++)
+			updateCell(cellIndex(msb, lsb, i), msb, lsb, checksum, delta);
+	}
+
+	private void updateCell(int cell, long msb, long lsb, long checksum, int delta) {
+		counts[cell] += delta;
+		mostSignificantSums[cell] ^= msb;
+		leastSignificantSums[cell] ^= lsb;
+		checksumSums[cell] ^= checksum;
+	}
+
+	private int cellIndex(long msb, long lsb, int hashIdx) {
+		int partitionSize = counts.length / NUM_HASHES;
+		long hash = mix(msb ^ mix(lsb ^ SEEDS[hashIdx]));
+		return hashIdx * partitionSize + (int) Long.remainderUnsigned(hash, partitionSize);
+	}
+
+	private static long checksum(long msb, long lsb) {
+		return mix(msb ^ mix(lsb + CHECKSUM_SEED));
+	}
+
+	/**
+	 * Finalizer of the SplitMix64 generator, used to spread the bits of the identifiers.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Computes the table resulting from removing the identifiers in another table from this one.
+	 * @throws IllegalArgumentException If the tables have a different number of cells.
+	 */
+	public InvertibleBloomLookupTable subtract(InvertibleBloomLookupTable other) {
+		if (other.getNumCells() != getNumCells())
+			throw new IllegalArgumentException("Tables have a different number of cells");
+		InvertibleBloomLookupTable res = new InvertibleBloomLookupTable(getNumCells());
+		for (int i = 0; i < counts.length; i++) {
+			res.counts[i] = counts[i] - other.counts[i];
+			res.mostSignificantSums[i] = mostSignificantSums[i] ^ other.mostSignificantSums[i];
+			res.leastSignificantSums[i] = leastSignificantSums[i] ^ other.leastSignificantSums[i];
+			res.checksumSums[i] = checksumSums[i] ^ other.checksumSums[i];
+		}
+		return res;
+	}
+
+	/**
+	 * Recovers the identifiers in a table resulting from a subtraction.
+	 * <p>The table is emptied in the process.</p>
+	 * @return The identifiers only in the minuend table and those only in the subtrahend table,
+	 * or empty if there are too many differences to decode.
+	 */
+	public Optional<Pair<Set<UUID>, Set<UUID>>> decode() {
+		Set<UUID> onlyHere = new HashSet<>();
+		Set<UUID> onlyOther = new HashSet<>();
+		Deque<Integer> pureCells = new ArrayDeque<>();
+		for (int i = 0; i < counts.length; i++)
+			if (isPure(i))
+				pureCells.add(i);
+		while (!pureCells.isEmpty()) {
+			int cell = pureCells.poll();
+			if (!isPure(cell))
+				continue;
+			long msb = mostSignificantSums[cell];
+			long lsb = leastSignificantSums[cell];
+			int delta = counts[cell];
+			(delta > 0 ? onlyHere : onlyOther).add(new UUID(msb, lsb));
+			long checksum = checksum(msb, lsb);
+			for (int i = 0; i < NUM_HASHES; i++) {
+				int idx = cellIndex(msb, lsb, i);
+				updateCell(idx, msb, lsb, checksum, -delta);
+				if (isPure(idx))
+					pureCells.add(idx);
+			}
+		}
+		return isEmpty() ? Optional.of(Pair.of(onlyHere, onlyOther)) : Optional.empty();
+	}
+
+	private boolean isPure(int cell) {
+		return (counts[cell] == 1 || counts[cell] == -1)
+				&& checksumSums[cell] == checksum(mostSignificantSums[cell], leastSignificantSums[cell]);
+	}
+
+	private boolean isEmpty() {
+		for (int i = 0; i < counts.length; i++)
+			if (counts[i] != 0 || mostSignificantSums[i] != 0 || leastSignificantSums[i] != 0 || checksumSums[i] != 0)
+				return false;
+		return true;
+	}
+
+	public void serialize(ByteBuf out) {
+		out.writeInt(counts.length);
+		for (int i = 0; i < counts.length; i++) {
+			out.writeInt(counts[i]);
+			out.writeLong(mostSignificantSums[i]);
+			out.writeLong(leastSignificantSums[i]);
+			out.writeLong(checksumSums[i]);
+		}
+	}
+
+	/**
+	 * Deserializes a table received from a peer.
+	 * <p>The number of cells is validated before the table is allocated,
+	 * preventing a peer from forcing the allocation of an arbitrarily large table.</p>
+	 * @param maxCells Maximum number of cells accepted.
+	 * @throws IOException If the number of cells is not a valid table size, exceeds the maximum,
+	 * or is larger than the cells in the buffer.
+	 */
+	public static InvertibleBloomLookupTable deserialize(ByteBuf in, int maxCells) throws IOException {
+		int numCells = in.readInt();
+		if (numCells < NUM_HASHES || numCells % NUM_HASHES != 0 || numCells > maxCells
+				|| (long) numCells * CELL_BYTES > in.readableBytes())
+			throw new IOException("Invalid number of cells in the table: " + numCells);
+		InvertibleBloomLookupTable table = new InvertibleBloomLookupTable(numCells);
+		for (int i = 0; i < table.counts.length; i++) {
+			table.counts[i] = in.readInt();
+			table.mostSignificantSums[i] = in.readLong();
+			table.leastSignificantSums[i] = in.readLong();
+			table.checksumSums[i] = in.readLong();
+		}
+		return table;
+	}
+
+}
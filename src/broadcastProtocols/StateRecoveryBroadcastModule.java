@@ -1,8 +1,7 @@
 package broadcastProtocols;
 
-import broadcastProtocols.messages.BatcheableMessage;
-import broadcastProtocols.messages.ReplyRecoveryContentMessage;
-import broadcastProtocols.messages.RequestRecoveryContentMessage;
+import applicationInterface.GlobalProperties;
+import broadcastProtocols.messages.*;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.apache.logging.log4j.LogManager;
@@ -16,34 +15,61 @@ import pt.unl.fct.di.novasys.babel.handlers.NotificationHandler;
 import pt.unl.fct.di.novasys.network.ISerializer;
 import pt.unl.fct.di.novasys.network.data.Host;
 
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Predicate;
 
+import static java.lang.Integer.parseInt;
 import static java.util.Collections.emptySet;
-import static java.util.stream.Collectors.toSet;
 
 /**
  * Generic aspects of a Broadcast protocol.
  * <p>Contains the buffer to filter duplicates and registers the channel.
  * Thus classes extending this should not repeat these aspects.</p>
  * <p>Contains the code to perform state recovery of nodes that became isolated.</p>
+ * <p>When reconciliation is used, the recovering node summarizes the identifiers of its messages in an
+ * {@link InvertibleBloomLookupTable}, whose size is independent of the number of messages.
+ * The peer answers only with the messages missing in the recovering node.
+ * If the differences are too many to be decoded, the recovering node retries with a larger table,
+ * and ultimately falls back to sending every identifier it holds.
+ * The identifiers are also sent instead of a table that would be larger than them.</p>
+ * <p>The missing messages are sent in chunks of bounded size.</p>
  */
 public class StateRecoveryBroadcastModule {
 
     private static final Logger logger = LogManager.getLogger(StateRecoveryBroadcastModule.class);
 
+    private static final int DIGEST_CELLS = 1536;
+
+    private static final int MAX_DIGEST_CELLS = 12288;
+
+    private static final int RECOVERY_CHUNK_SIZE = 64;
+
     private final BroadcastProtocol broadcastProtocol;
 
+    private final boolean useReconciliation;
+
+    private final int digestCells;
+
+    private final int maxDigestCells;
+
+    private final int chunkSize;
+
     public StateRecoveryBroadcastModule(BroadcastProtocol broadcastProtocol) {
         this.broadcastProtocol = broadcastProtocol;
+        Properties props = GlobalProperties.getProps();
+        this.useReconciliation = props.getProperty("recoveryReconciliation", "T").equals("T");
+        this.digestCells = parseInt(props.getProperty("recoveryDigestCells", String.valueOf(DIGEST_CELLS)));
+        this.maxDigestCells = parseInt(props.getProperty("recoveryMaxDigestCells", String.valueOf(MAX_DIGEST_CELLS)));
+        this.chunkSize = parseInt(props.getProperty("recoveryChunkSize", String.valueOf(RECOVERY_CHUNK_SIZE)));
+        RequestRecoveryDigestMessage.setMaxNumCells(maxDigestCells);
     }
 
     public static List<Pair<Short, ISerializer<? extends ProtoMessage>>> getSerializers() {
         return List.of(
                 Pair.of(RequestRecoveryContentMessage.ID, RequestRecoveryContentMessage.serializer),
-                Pair.of(ReplyRecoveryContentMessage.ID, ReplyRecoveryContentMessage.serializer)
+                Pair.of(ReplyRecoveryContentMessage.ID, ReplyRecoveryContentMessage.serializer),
+                Pair.of(RequestRecoveryDigestMessage.ID, RequestRecoveryDigestMessage.serializer),
+                Pair.of(RecoveryDigestFailureMessage.ID, RecoveryDigestFailureMessage.serializer)
         );
     }
 
@@ -54,7 +80,13 @@ public class StateRecoveryBroadcastModule {
                         (msg, to, source, throwable, channel) -> uponFailureSendingRequestRecoveryContentMessage(to)),
                 Triple.of(ReplyRecoveryContentMessage.ID,
                         (msg2, from, source2, channel2) -> uponReplyRecoveryContentMessage(msg2, from),
-                        (msg1, to1, source1, throwable1, channel1) -> uponFailureSendingReplyRecoveryContentMessage(to1, throwable1))
+                        (msg1, to1, source1, throwable1, channel1) -> uponFailureSendingReplyRecoveryContentMessage(to1, throwable1)),
+                Triple.of(RequestRecoveryDigestMessage.ID,
+                        (msg, from, source, channel) -> uponRequestRecoveryDigestMessage(msg, from),
+                        (msg, to, source, throwable, channel) -> uponFailureSendingRequestRecoveryContentMessage(to)),
+                Triple.of(RecoveryDigestFailureMessage.ID,
+                        (msg, from, source, channel) -> uponRecoveryDigestFailureMessage(msg, from),
+                        (msg, to, source, throwable, channel) -> uponFailureSendingReplyRecoveryContentMessage(to, throwable))
         );
     }
 
@@ -75,14 +107,85 @@ public class StateRecoveryBroadcastModule {
     }
 
     private void answerRequestRecoveryContent(RequestRecoveryContentMessage msg, Host requester) {
-        Set<BatcheableMessage> recoveryContent = broadcastProtocol.getMsgs()
-                .stream()
-                .filter(m -> m instanceof BatcheableMessage)
-                .map(m -> (BatcheableMessage) m)
-                .filter(m -> !msg.getIHaveIdentifiers().contains(m.getMid()))
-                .collect(toSet());
-        ReplyRecoveryContentMessage replyMsg = new ReplyRecoveryContentMessage(recoveryContent);
-        broadcastProtocol.sendMessageToPeer(replyMsg, requester);
+        Set<UUID> iHave = msg.getIHaveIdentifiers();
+        sendRecoveryContent(mid -> !iHave.contains(mid), requester);
+    }
+
+    /**
+     * Sends the messages whose identifier satisfies a predicate, in chunks of bounded size.
+     */
+    private void sendRecoveryContent(Predicate<UUID> isMissing, Host requester) {
+        Set<BatcheableMessage> chunk = new HashSet<>();
+        int numSent = 0;
+        for (ProtoMessage m : broadcastProtocol.getMsgs()) {
+            if (!(m instanceof BatcheableMessage) || !isMissing.test(((BatcheableMessage) m).getMid()))
+                continue;
+            chunk.add((BatcheableMessage) m);
+            if (chunk.size() >= chunkSize) {
+                broadcastProtocol.sendMessageToPeer(new ReplyRecoveryContentMessage(chunk), requester);
+                numSent += chunk.size();
+                chunk = new HashSet<>();
+            }
+        }
+        if (!chunk.isEmpty())
+            broadcastProtocol.sendMessageToPeer(new ReplyRecoveryContentMessage(chunk), requester);
+        logger.debug("Sent {} recovery messages to {}", numSent + chunk.size(), requester);
+    }
+
+    private void uponRequestRecoveryDigestMessage(ProtoMessage msg, Host from) {
+        if (!(msg instanceof RequestRecoveryDigestMessage)) {
+            logger.error("Received state recovery digest from {}.\n" +
+                    "However, the message received is not of the expected type.", from);
+            return;
+        }
+        InvertibleBloomLookupTable theirs = ((RequestRecoveryDigestMessage) msg).getIHaveDigest();
+        InvertibleBloomLookupTable mine = new InvertibleBloomLookupTable(theirs.getNumCells(),
+                broadcastProtocol.getMsgIds());
+        var differences = mine.subtract(theirs).decode();
+        if (differences.isPresent()) {
+            Set<UUID> missing = differences.get().getLeft();
+            logger.debug("Node {} is missing {} messages", from, missing.size());
+            sendRecoveryContent(missing::contains, from);
+        } else {
+            logger.debug("Unable to decode state recovery digest with {} cells from {}", theirs.getNumCells(), from);
+            broadcastProtocol.sendMessageToPeer(new RecoveryDigestFailureMessage(theirs.getNumCells()), from);
+        }
+    }
+
+    /**
+     * The peer could not find the differences in the digest sent, retry with a larger digest.
+     * <p>If the digest would be too large, all identifiers are sent instead.</p>
+     */
+    private void uponRecoveryDigestFailureMessage(ProtoMessage msg, Host from) {
+        if (!(msg instanceof RecoveryDigestFailureMessage)) {
+            logger.error("Received state recovery digest failure from {}.\n" +
+                    "However, the message received is not of the expected type.", from);
+            return;
+        }
+        int numCells = 2 * ((RecoveryDigestFailureMessage) msg).getNumCells();
+        if (numCells > 0 && numCells <= maxDigestCells)
+            sendDigestRequest(numCells, from);
+        else
+            sendIdentifiersRequest(from);
+    }
+
+    /**
+     * Sends a digest with the given number of cells,
+     * unless it would be larger than the identifiers of the messages held.
+     */
+    private void sendDigestRequest(int numCells, Host to) {
+        Collection<UUID> ids = broadcastProtocol.getMsgIds();
+        if ((long) numCells * InvertibleBloomLookupTable.CELL_BYTES >= (long) ids.size() * 2 * Long.BYTES) {
+            sendIdentifiersRequest(to);
+            return;
+        }
+        var digest = new InvertibleBloomLookupTable(numCells, ids);
+        broadcastProtocol.sendMessageToPeer(new RequestRecoveryDigestMessage(digest), to);
+    }
+
+    private void sendIdentifiersRequest(Host to) {
+        Set<UUID> iHave = Set.copyOf(broadcastProtocol.getMsgIds());
+        broadcastProtocol.sendMessageToPeer(new RequestRecoveryContentMessage(iHave), to);
     }
 
     private void uponReplyRecoveryContentMessage(ProtoMessage msg, Host from) {
@@ -115,10 +218,11 @@ public class StateRecoveryBroadcastModule {
         Set<Host> peers = broadcastProtocol.getPeers();
         Optional<Host> to = peers.stream()
                 .filter(n -> !excluded.contains(n)).findAny();
-        if (to.isPresent()) {
-            Set<UUID> iHave = broadcastProtocol.getMsgIds();
-            RequestRecoveryContentMessage msg = new RequestRecoveryContentMessage(iHave);
-            broadcastProtocol.sendMessageToPeer(msg, to.get());
+        if (to.isPresent() && useReconciliation) {
+            sendDigestRequest(digestCells, to.get());
+            logger.debug("Requesting missing content digest to node: {}", to.get());
+        } else if (to.isPresent()) {
+            sendIdentifiersRequest(to.get());
             logger.debug("Requesting missing content to node: {}", to.get());
         } else {
             logger.error("Attempted to request missing content for node, but I have no peers to contact.");
@@ -0,0 +1,272 @@
+package broadcastProtocols;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A concurrent map whose entries expire after a period of time, used by the broadcast protocols to record the
+ * messages already received.
+ * <p>Each entry is tagged with the epoch in which it was inserted, and recorded in a queue in insertion order.
+ * The epoch advances periodically, and on each advance the entries inserted more than
+ * {@link #NUM_EPOCHS} - 1 epochs ago are removed from the head of the queue.
+ * The time <code>t</code> an item stays in the collection is between:
+ * period * (NUM_EPOCHS - 1) <= t <= period * NUM_EPOCHS,
+ * give or take a period for entries inserted concurrently with the advance of the epoch.</p>
+ * <p>All entries are kept in a single {@link ConcurrentHashMap}, therefore lookups probe a single map.
+ * The views returned by {@link #keySet()}, {@link #values()} and {@link #entrySet()} are backed by the map,
+ * and are not copied.</p>
+ * <p>Should the number of entries exceed the capacity of the map, the oldest entries are evicted,
+ * bounding the memory used when messages are received faster than expected.
+ * Only as many entries as needed are evicted, so a burst of messages keeps the most recent ones recorded.
+ * The queue also holds the entries later replaced or removed, until these reach its head,
+ * and is trimmed when it exceeds twice the capacity.</p>
+ * <p>An eviction listener can be given to release resources held by the values evicted, either when the epoch advances
+ * or when the capacity is exceeded.
+ * It is not called for values removed explicitly.</p>
+ */
+public class TimeBucketedDedupMap<K, V> implements Map<K, V> {
+
+	/**
+	 * Default period of time between advancing epochs.
+	 */
+	public static final long MESSAGE_PRUNE_PERIOD = 30 * 1000; //Milliseconds
+
+	/**
+	 * Default maximum number of entries kept, past which the oldest entries are evicted.
+	 */
+	public static final int DEFAULT_CAPACITY = 100000;
+
+	private static final Logger logger = LogManager.getLogger(TimeBucketedDedupMap.class);
+	private static final ScheduledExecutorService pool = Executors.newScheduledThreadPool(1);
+	private static final int NUM_EPOCHS = 3;
+
+	private final ConcurrentHashMap<K, TaggedValue<K, V>> entries = new ConcurrentHashMap<>();
+
+	private final Queue<TaggedValue<K, V>> insertionOrder = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger insertionOrderLength = new AtomicInteger();
+
+	private final int capacity;
+
+	private final Consumer<V> evictionListener;
+
+	private volatile long currentEpoch = 0;
+
+	public TimeBucketedDedupMap() {
+		this(MESSAGE_PRUNE_PERIOD, DEFAULT_CAPACITY);
+	}
+
+	public TimeBucketedDedupMap(long prunePeriod, int capacity) {
+		this(prunePeriod, capacity, value -> {});
+	}
+
+	public TimeBucketedDedupMap(long prunePeriod, int capacity, Consumer<V> evictionListener) {
+		this.capacity = capacity;
+		this.evictionListener = evictionListener;
+		pool.scheduleAtFixedRate(this::rotate, prunePeriod, prunePeriod, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Advances the epoch, removing the entries inserted in the oldest epoch still kept.
+	 */
+	public synchronized void rotate() {
+		long epoch = ++currentEpoch;
+		long oldestKept = epoch - NUM_EPOCHS + 1;
+		TaggedValue<K, V> oldest;
+		while ((oldest = insertionOrder.peek()) != null && oldest.epoch < oldestKept)
+			evictOldest();
+		logger.debug("CurrentElems: {}", entries.size());
+	}
+
+	private void recordInsertion(TaggedValue<K, V> tagged) {
+		insertionOrder.add(tagged);
+		insertionOrderLength.incrementAndGet();
+		if (isOverCapacity())
+			evictOverCapacity();
+	}
+
+	private boolean isOverCapacity() {
+		return entries.size() > capacity || insertionOrderLength.get() > 2 * capacity;
+	}
+
+	private synchronized void evictOverCapacity() {
+		while (isOverCapacity())
+			if (!evictOldest())
+				return;
+	}
+
+	/**
+	 * Removes the head of the insertion order, evicting its entry if it was neither replaced nor removed.
+	 * @return False if there were no entries to evict.
+	 */
+	private boolean evictOldest() {
+		TaggedValue<K, V> oldest = insertionOrder.poll();
+		if (oldest == null)
+			return false;
+		insertionOrderLength.decrementAndGet();
+		if (entries.remove(oldest.key, oldest))
+			evictionListener.accept(oldest.value);
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return entries.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return entries.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return entries.values().stream().anyMatch(tagged -> tagged.value.equals(value));
+	}
+
+	@Override
+	public V get(Object key) {
+		return unwrap(entries.get(key));
+	}
+
+	/**
+	 * Places an item in the data structure, as in a traditional map implementation.
+	 * <p>The item is tagged with the current epoch, even if its key was already present.</p>
+	 */
+	@Override
+	public V put(K key, V value) {
+		TaggedValue<K, V> tagged = new TaggedValue<>(key, value, currentEpoch);
+		V old = unwrap(entries.put(key, tagged));
+		recordInsertion(tagged);
+		return old;
+	}
+
+	/**
+	 * Places an item in the map only if its key is not present.
+	 * <p>Allows checking and recording a message in a single operation.</p>
+	 * @return The value previously associated with the key, or null if the item was inserted.
+	 */
+	@Override
+	public V putIfAbsent(K key, V value) {
+		TaggedValue<K, V> tagged = new TaggedValue<>(key, value, currentEpoch);
+		V old = unwrap(entries.putIfAbsent(key, tagged));
+		if (old == null)
+			recordInsertion(tagged);
+		return old;
+	}
+
+	@Override
+	public V remove(Object key) {
+		return unwrap(entries.remove(key));
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		m.forEach(this::put);
+	}
+
+	@Override
+	public synchronized void clear() {
+		entries.clear();
+		insertionOrder.clear();
+		insertionOrderLength.set(0);
+	}
+
+	@Override
+	public Set<K> keySet() {
+		return entries.keySet();
+	}
+
+	@Override
+	public Collection<V> values() {
+		return new AbstractCollection<>() {
+			@Override
+			public Iterator<V> iterator() {
+				Iterator<TaggedValue<K, V>> inner = entries.values().iterator();
+				return new Iterator<>() {
+					@Override
+					public boolean hasNext() {
+						return inner.hasNext();
+					}
+
+					@Override
+					public V next() {
+						return inner.next().value;
+					}
+
+					@Override
+					public void remove() {
+						inner.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return entries.size();
+			}
+		};
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return new AbstractSet<>() {
+			@Override
+			public Iterator<Entry<K, V>> iterator() {
+				Iterator<Entry<K, TaggedValue<K, V>>> inner = entries.entrySet().iterator();
+				return new Iterator<>() {
+					@Override
+					public boolean hasNext() {
+						return inner.hasNext();
+					}
+
+					@Override
+					public Entry<K, V> next() {
+						Entry<K, TaggedValue<K, V>> entry = inner.next();
+						return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().value);
+					}
+
+					@Override
+					public void remove() {
+						inner.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return entries.size();
+			}
+		};
+	}
+
+	private static <V> V unwrap(TaggedValue<?, V> tagged) {
+		return tagged == null ? null : tagged.value;
+	}
+
+	private static class TaggedValue<K, V> {
+
+		private final K key;
+
+		private final V value;
+
+		private final long epoch;
+
+		TaggedValue(K key, V value, long epoch) {
+			this.key = key;
+			this.value = value;
+			this.epoch = epoch;
+		}
+	}
+
+}
@@ -2,10 +2,11 @@ package broadcastProtocols.eagerPush;
 
 import applicationInterface.GlobalProperties;
 import broadcastProtocols.BroadcastProtocol;
-import broadcastProtocols.PeriodicPrunableHashMap;
+import broadcastProtocols.TimeBucketedDedupMap;
 import broadcastProtocols.lazyPush.exception.InnerValueIsNotBlockingBroadcast;
 import broadcastProtocols.notifications.DeliverVal;
 import broadcastProtocols.notifications.PeerUnreachableNotification;
+import cmux.AppOperation;
 import com.google.common.collect.Sets;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,19 +19,30 @@ import pt.unl.fct.di.novasys.channel.tcp.TCPChannel;
 import pt.unl.fct.di.novasys.network.data.Host;
 import utils.IDGenerator;
 import validators.AnswerMessageValidationNotification;
+import valueDispatcher.DispatcherWrapper;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.Properties;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+
+/**
+ * Disseminates values by sending them to every peer as soon as they are first received.
+ * <p>When batching is used, the non blocking {@link AppOperation}s are packed in {@link EagerValBatchMessage}s,
+ * sharing a single header, and are identified by their operation id rather than by a random message id.
+ * The same operation submitted twice is thus disseminated once.
+ * The pending batch is sent before any message disseminated individually,
+ * so that these do not overtake the operations batched before them.</p>
+ */
 public class EagerPushBroadcast extends GenericProtocol implements BroadcastProtocol {
 
 	public static final short ID = IDGenerator.genId();
 	public static final int PORT_OFFSET = 2000;
 	private static final Logger logger = LogManager.getLogger(EagerPushBroadcast.class);
+	private static final long BATCH_FLUSH_INTERVAL = 10; //Milliseconds
+	private static final int MAX_BATCH_SIZE = 512;
 	private final int channelId;
 
 	private final Set<Host> peers = Sets.newConcurrentHashSet();
@@ -44,13 +56,40 @@ public class EagerPushBroadcast extends GenericProtocol implements BroadcastProt
 	 */
 	private final Map<UUID, EagerValMessage> mapBlockingIdToMid = new ConcurrentHashMap<>();
 
+	/**
+	 * Whether the non blocking messages are disseminated in batches.
+	 */
+	private final boolean useBatching;
+
+	private final long batchFlushInterval;
+
+	private final int maxBatchSize;
+
+	/**
+	 * Operations to be sent to every peer in the next batch, both those proposed by this node and those relayed,
+	 * and the dispatcher type they share.
+	 * <p>Only accessed by the protocol's thread.</p>
+	 */
+	private List<AppOperation> pendingBatch = new ArrayList<>();
+
+	private short pendingBatchType;
+
 	public EagerPushBroadcast()
 			throws HandlerRegistrationException, IOException {
 		super(EagerPushBroadcast.class.getSimpleName(), ID);
-		this.messageBuffer = new PeriodicPrunableHashMap<>();
+		Properties props = GlobalProperties.getProps();
+		this.messageBuffer = new TimeBucketedDedupMap<>(TimeBucketedDedupMap.MESSAGE_PRUNE_PERIOD,
+				parseInt(props.getProperty("broadcastBufferCapacity",
+						String.valueOf(TimeBucketedDedupMap.DEFAULT_CAPACITY))));
+		this.useBatching = props.getProperty("eagerBroadcastBatching", "F").equals("T");
+		this.batchFlushInterval = parseLong(props.getProperty("eagerBroadcastBatchInterval",
+				String.valueOf(BATCH_FLUSH_INTERVAL)));
+		this.maxBatchSize = parseInt(props.getProperty("eagerBroadcastMaxBatchSize",
+				String.valueOf(MAX_BATCH_SIZE)));
 		channelId = createTCPChannel();
 		subscribeNotifications();
 		registerRequestHandler(EagerBroadcastRequest.ID, this::uponBroadcastRequest);
+		registerTimerHandler(FlushEagerBatchTimer.ID, (FlushEagerBatchTimer t, long timerId) -> sendBatch());
 		registerMessageConfigs();
 	}
 
@@ -102,16 +141,17 @@ public class EagerPushBroadcast extends GenericProtocol implements BroadcastProt
 
 	private void registerMessageSerializers() {
 		registerMessageSerializer(channelId, EagerValMessage.ID, EagerValMessage.serializer);
+		registerMessageSerializer(channelId, EagerValBatchMessage.ID, EagerValBatchMessage.serializer);
 	}
 
 	@Override
 	public Set<UUID> getMsgIds() {
-		return messageBuffer.keySet();
+		return Collections.unmodifiableSet(messageBuffer.keySet());
 	}
 
 	@Override
-	public Set<ProtoMessage> getMsgs() {
-		return Set.copyOf(messageBuffer.values());
+	public Collection<ProtoMessage> getMsgs() {
+		return Collections.unmodifiableCollection(messageBuffer.values());
 	}
 
 	@Override
@@ -143,20 +183,37 @@ public class EagerPushBroadcast extends GenericProtocol implements BroadcastProt
 
 	private void registerMessageHandlers() throws HandlerRegistrationException {
 		registerMessageHandler(channelId, EagerValMessage.ID, (EagerValMessage msg1, Host from, short sourceProto, int channelId1) -> uponEagerValMessage(msg1), (msg, to, destProto, throwable, channelId) -> uponMsgFail(msg, to, throwable));
+		registerMessageHandler(channelId, EagerValBatchMessage.ID, (EagerValBatchMessage msg1, Host from, short sourceProto, int channelId1) -> uponEagerValBatchMessage(msg1), (msg, to, destProto, throwable, channelId) -> uponMsgFail(msg, to, throwable));
 	}
 
 	@Override
 	public void init(Properties properties) {
+		if (useBatching)
+			setupPeriodicTimer(new FlushEagerBatchTimer(), batchFlushInterval, batchFlushInterval);
 	}
 
 	private void uponBroadcastRequest(EagerBroadcastRequest req, short source) {
-		EagerValMessage msg = new EagerValMessage(UUID.randomUUID(), req.getVal());
-		uponEagerValMessage(msg);
+		DispatcherWrapper val = req.getVal();
+		UUID mid = isBatcheable(val) ? ((AppOperation) val.getVal()).getId() : UUID.randomUUID();
+		uponEagerValMessage(new EagerValMessage(mid, val));
+	}
+
+	private boolean isBatcheable(DispatcherWrapper val) {
+		return useBatching && !val.isBlocking() && val.getVal() instanceof AppOperation;
+	}
+
+	/**
+	 * Processes each operation in the batch as if received individually, identified by its operation id.
+	 * <p>Operations already received are discarded, and the new ones are added to the next batch sent.</p>
+	 */
+	private void uponEagerValBatchMessage(EagerValBatchMessage batch) {
+		for (AppOperation operation : batch.getOperations())
+			uponEagerValMessage(new EagerValMessage(operation.getId(),
+					new DispatcherWrapper(batch.getDispatcherType(), operation)));
 	}
 
 	private void uponEagerValMessage(EagerValMessage msg) {
-		if (!messageBuffer.containsKey(msg.getMid())) {
-			messageBuffer.put(msg.getMid(), msg);
+		if (messageBuffer.putIfAbsent(msg.getMid(), msg) == null) {
 			if (msg.isBlocking()) {
 				logger.debug("Received message {} is blocking. Waiting validation.", msg.getMid());
 				recordValueToBeValidated(msg);
@@ -194,7 +251,33 @@ public class EagerPushBroadcast extends GenericProtocol implements BroadcastProt
 	}
 
 	private void disseminateMessage(EagerValMessage msg) {
+		if (isBatcheable(msg.getVal())) {
+			addToBatch(msg.getVal());
+			return;
+		}
+		sendBatch();
 		peers.forEach(h -> sendMessage(channelId, msg, h));
 		logger.debug("Sent message with value {} to peers {}", msg.getVal(), peers);
 	}
+
+	/**
+	 * Adds an operation to the pending batch, first sending the batch if it holds operations of another type.
+	 */
+	private void addToBatch(DispatcherWrapper val) {
+		if (!pendingBatch.isEmpty() && pendingBatchType != val.getDispatcherType())
+			sendBatch();
+		pendingBatchType = val.getDispatcherType();
+		pendingBatch.add((AppOperation) val.getVal());
+		if (pendingBatch.size() >= maxBatchSize)
+			sendBatch();
+	}
+
+	private void sendBatch() {
+		if (pendingBatch.isEmpty())
+			return;
+		EagerValBatchMessage batch = new EagerValBatchMessage(pendingBatchType, pendingBatch);
+		pendingBatch = new ArrayList<>();
+		peers.forEach(h -> sendMessage(channelId, batch, h));
+		logger.debug("Sent batch of {} operations to peers {}", batch.getOperations().size(), peers);
+	}
 }
@@ -0,0 +1,72 @@
+package broadcastProtocols.eagerPush;
+
+import cmux.AppOperation;
+import io.netty.buffer.ByteBuf;
+import pt.unl.fct.di.novasys.babel.generic.ProtoMessage;
+import pt.unl.fct.di.novasys.network.ISerializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Carries several {@link AppOperation}s in a single frame.
+ * <p>The operations share a single header with the type of value they are delivered as,
+ * and are written without an identifier of their own.
+ * Receivers identify each operation by its {@link AppOperation#getId()},
+ * which is computed from its content, and deduplicate and relay each operation independently.</p>
+ */
+public class EagerValBatchMessage extends ProtoMessage {
+
+    public static final short ID = 787;
+
+    private final short dispatcherType;
+
+    private final List<AppOperation> operations;
+
+    public EagerValBatchMessage(short dispatcherType, List<AppOperation> operations) {
+        super(ID);
+        this.dispatcherType = dispatcherType;
+        this.operations = operations;
+    }
+
+    public short getDispatcherType() {
+        return dispatcherType;
+    }
+
+    public List<AppOperation> getOperations() {
+        return operations;
+    }
+
+    @Override
+    public String toString() {
+        return "EagerValBatchMessage{" +
+                "size=" + operations.size() +
+                '}';
+    }
+
+    public static final ISerializer<EagerValBatchMessage> serializer = new ISerializer<>() {
+
+        @Override
+        public void serialize(EagerValBatchMessage batch, ByteBuf out) throws IOException {
+            out.writeShort(batch.dispatcherType);
+            out.writeInt(batch.operations.size());
+            for (AppOperation operation : batch.operations)
+                AppOperation.serializer.serialize(operation, out);
+        }
+
+        /**
+         * The list is not presized beyond the bytes received, as the number of operations is given by the peer.
+         */
+        @Override
+        public EagerValBatchMessage deserialize(ByteBuf in) throws IOException {
+            short dispatcherType = in.readShort();
+            int numOperations = in.readInt();
+            List<AppOperation> operations = new ArrayList<>(Math.max(0, Math.min(numOperations, in.readableBytes())));
+            for (int i = 0; i < numOperations; i++)
+                operations.add((AppOperation) AppOperation.serializer.deserialize(in));
+            return new EagerValBatchMessage(dispatcherType, operations);
+        }
+
+    };
+}
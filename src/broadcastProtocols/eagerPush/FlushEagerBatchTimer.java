@@ -0,0 +1,17 @@
+package broadcastProtocols.eagerPush;
+
+import pt.unl.fct.di.novasys.babel.generic.ProtoTimer;
+
+public class FlushEagerBatchTimer extends ProtoTimer {
+
+    public static final short ID = 945;
+
+    public FlushEagerBatchTimer() {
+        super(ID);
+    }
+
+    @Override
+    public ProtoTimer clone() {
+        return null;
+    }
+}
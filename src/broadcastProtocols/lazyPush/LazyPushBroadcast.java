@@ -2,14 +2,17 @@ package broadcastProtocols.lazyPush;
 
 import applicationInterface.GlobalProperties;
 import broadcastProtocols.BroadcastProtocol;
-import broadcastProtocols.PeriodicPrunableHashMap;
 import broadcastProtocols.StateRecoveryBroadcastModule;
+import broadcastProtocols.TimeBucketedDedupMap;
 import broadcastProtocols.lazyPush.exception.InnerValueIsNotBlockingBroadcast;
 import broadcastProtocols.lazyPush.messages.LazyValMessage;
 import broadcastProtocols.lazyPush.messages.RequestValMessage;
+import broadcastProtocols.lazyPush.messages.RequestValsBatchMessage;
 import broadcastProtocols.lazyPush.messages.ValIdentifierMessage;
+import broadcastProtocols.lazyPush.messages.ValIdentifiersBatchMessage;
 import broadcastProtocols.lazyPush.requests.LazyBroadcastRequest;
 import broadcastProtocols.lazyPush.timers.DelayedResponsesTimer;
+import broadcastProtocols.lazyPush.timers.FlushBatchesTimer;
 import broadcastProtocols.notifications.DeliverVal;
 import broadcastProtocols.notifications.PeerUnreachableNotification;
 import com.google.common.collect.Sets;
@@ -35,8 +38,10 @@ import validators.AnswerMessageValidationNotification;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static java.lang.Integer.parseInt;
 import static java.lang.Long.parseLong;
 
 public class LazyPushBroadcast extends GenericProtocol implements BroadcastProtocol {
@@ -44,6 +49,8 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 	public static final short ID = IDGenerator.genId();
 	private static final Logger logger = LogManager.getLogger(LazyPushBroadcast.class);
 	private static final long DELAYED_VALUE_TIMER = 1000; //Milliseconds
+	private static final long BATCH_FLUSH_INTERVAL = 20; //Milliseconds
+	private static final int MAX_BATCH_SIZE = 256;
 
 	private static final int PORT_OFFSET = 1000;
 
@@ -75,6 +82,27 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 	 */
 	private final Map<UUID, UUID> mapBlockingIdToMid = new ConcurrentHashMap<>();
 
+	/**
+	 * Whether the identifiers announced and requested are sent to each peer in batches.
+	 */
+	private final boolean useBatching;
+
+	private final long batchFlushInterval;
+
+	private final int maxBatchSize;
+
+	/**
+	 * Identifiers of the messages to be announced to each peer in the next batch.
+	 * <p>Only accessed by the protocol's thread.</p>
+	 */
+	private final Map<Host, List<UUID>> pendingIdentifiers = new HashMap<>();
+
+	/**
+	 * Identifiers of the messages to be requested from each peer in the next batch.
+	 * <p>Only accessed by the protocol's thread.</p>
+	 */
+	private final Map<Host, List<UUID>> pendingRequests = new HashMap<>();
+
 	/**
 	 * Disseminates messages using a lazy push approach.
 	 * <p>The following three steps comprise the logic behind the transmission of messages from a node A to B.</p>
@@ -91,13 +119,22 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 			throws HandlerRegistrationException, IOException {
 		super(LazyPushBroadcast.class.getSimpleName(), ID);
 		this.self = self;
-		this.messageBuffer = new PeriodicPrunableHashMap<>();
 		Properties props = GlobalProperties.getProps();
+		this.messageBuffer = new TimeBucketedDedupMap<>(TimeBucketedDedupMap.MESSAGE_PRUNE_PERIOD,
+				parseInt(props.getProperty("broadcastBufferCapacity",
+						String.valueOf(TimeBucketedDedupMap.DEFAULT_CAPACITY))),
+				LazyValMessage::releaseWireBytes);
 		this.delayedValueTimer = parseLong(props.getProperty("delayedValueTimer",
 				String.valueOf(DELAYED_VALUE_TIMER)));
+		this.useBatching = props.getProperty("lazyBroadcastBatching", "F").equals("T");
+		this.batchFlushInterval = parseLong(props.getProperty("lazyBroadcastBatchInterval",
+				String.valueOf(BATCH_FLUSH_INTERVAL)));
+		this.maxBatchSize = Math.min(Short.MAX_VALUE, parseInt(props.getProperty("lazyBroadcastMaxBatchSize",
+				String.valueOf(MAX_BATCH_SIZE))));
 		channelId = createTCPChannel();
 		registerRequestHandler(LazyBroadcastRequest.ID, (LazyBroadcastRequest request, short sourceProto) -> uponBroadcastRequest(request));
 		registerTimerHandler(DelayedResponsesTimer.ID, (DelayedResponsesTimer t, long timerId) -> uponDelayedResponseTimer());
+		registerTimerHandler(FlushBatchesTimer.ID, (FlushBatchesTimer t, long timerId) -> uponFlushBatchesTimer());
 		subscribeNotifications();
 		registerMessageConfigs();
 		registerRecoveryMechanism();
@@ -137,6 +174,8 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 		registerMessageSerializer(channelId, LazyValMessage.ID, LazyValMessage.serializer);
 		registerMessageSerializer(channelId, ValIdentifierMessage.ID, ValIdentifierMessage.serializer);
 		registerMessageSerializer(channelId, RequestValMessage.ID, RequestValMessage.serializer);
+		registerMessageSerializer(channelId, ValIdentifiersBatchMessage.ID, ValIdentifiersBatchMessage.serializer);
+		registerMessageSerializer(channelId, RequestValsBatchMessage.ID, RequestValsBatchMessage.serializer);
 	}
 
 	private void registerMessageHandlers() throws HandlerRegistrationException {
@@ -146,6 +185,10 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 				(ValIdentifierMessage msg1, Host from1, short sourceProto1, int channelId2) -> uponValIdentifierMessage(msg1, from1), (msg2, to, destProto, throwable, channelId3) -> uponMsgFail(msg2, to, throwable));
 		registerMessageHandler(channelId, RequestValMessage.ID,
 				(RequestValMessage msg, Host from, short sourceProto, int channelId1) -> uponRequestValMessage(msg, from, channelId1), (msg1, to, destProto, throwable, channelId2) -> uponMsgFail(msg1, to, throwable));
+		registerMessageHandler(channelId, ValIdentifiersBatchMessage.ID,
+				(ValIdentifiersBatchMessage msg, Host from, short sourceProto, int channelId1) -> uponValIdentifiersBatchMessage(msg, from), (msg1, to, destProto, throwable, channelId2) -> uponMsgFail(msg1, to, throwable));
+		registerMessageHandler(channelId, RequestValsBatchMessage.ID,
+				(RequestValsBatchMessage msg, Host from, short sourceProto, int channelId1) -> uponRequestValsBatchMessage(msg, from, channelId1), (msg1, to, destProto, throwable, channelId2) -> uponMsgFail(msg1, to, throwable));
 	}
 
 	private void registerRecoveryMechanism() throws HandlerRegistrationException {
@@ -189,6 +232,8 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 
 	@Override
 	public void init(Properties props) {
+		if (useBatching)
+			setupPeriodicTimer(new FlushBatchesTimer(), batchFlushInterval, batchFlushInterval);
 	}
 
 	private void uponBroadcastRequest(LazyBroadcastRequest request) {
@@ -228,10 +273,9 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 	 */
 	private void uponLazyValMessage(LazyValMessage msg, Host from) {
 		UUID mid = msg.getMid();
-		if (!messageBuffer.containsKey(mid)) {
+		if (messageBuffer.putIfAbsent(mid, msg) == null) {
 			logger.info("Received message: {}\n From {}",
 					msg.toString(), from);
-			messageBuffer.put(mid, msg);
 			waitingForContent.remove(mid);
 			if (msg.isBlocking()) {
 				logger.debug("Received message {} is blocking. Waiting validation.", mid);
@@ -240,13 +284,44 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 				disseminateMessage(mid);
 			}
 			triggerNotification(new DeliverVal(msg.getVal()));
-		}
+		} else
+			msg.releaseWireBytes();
 	}
 
 	private void disseminateMessage(UUID mid) {
 		logger.debug("Sending identifier {} to peers: {}", mid, peers);
 		for (Host dest : peers)
-			sendMessage(channelId, new ValIdentifierMessage(mid), dest);
+			if (useBatching)
+				addToBatch(pendingIdentifiers, dest, mid, ValIdentifiersBatchMessage::new);
+			else
+				sendMessage(channelId, new ValIdentifierMessage(mid), dest);
+	}
+
+	/**
+	 * Adds an identifier to the batch of a peer, sending the batch right away if it is full.
+	 */
+	private void addToBatch(Map<Host, List<UUID>> batches, Host dest, UUID mid,
+							Function<List<UUID>, ProtoMessage> batchMessage) {
+		List<UUID> batch = batches.computeIfAbsent(dest, d -> new ArrayList<>());
+		batch.add(mid);
+		if (batch.size() >= maxBatchSize)
+			sendBatch(batches, dest, batchMessage);
+	}
+
+	private void sendBatch(Map<Host, List<UUID>> batches, Host dest, Function<List<UUID>, ProtoMessage> batchMessage) {
+		List<UUID> batch = batches.remove(dest);
+		if (batch != null && !batch.isEmpty())
+			sendMessage(channelId, batchMessage.apply(batch), dest);
+	}
+
+	/**
+	 * Sends the identifiers batched since the last flush, bounding the delay added by the batching.
+	 */
+	private void uponFlushBatchesTimer() {
+		List.copyOf(pendingIdentifiers.keySet())
+				.forEach(dest -> sendBatch(pendingIdentifiers, dest, ValIdentifiersBatchMessage::new));
+		List.copyOf(pendingRequests.keySet())
+				.forEach(dest -> sendBatch(pendingRequests, dest, RequestValsBatchMessage::new));
 	}
 
 	/**
@@ -258,6 +333,10 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 		uponValIdentifier(msg.getIdOfTheContentMessage(), from);
 	}
 
+	private void uponValIdentifiersBatchMessage(ValIdentifiersBatchMessage msg, Host from) {
+		msg.getIdsOfTheContentMessages().forEach(mid -> uponValIdentifier(mid, from));
+	}
+
 	private void uponValIdentifier(UUID mid, Host from) {
 		logger.debug("Received identifier {} form peer {}", mid, from);
 		if (!messageBuffer.containsKey(mid)) {
@@ -267,7 +346,10 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 				waitingForContent.put(mid, System.currentTimeMillis());
 				messageOwners.put(mid, new LinkedList<>());
 				logger.debug("Sending request message of {} to {}", mid, from);
-				sendMessage(channelId, new RequestValMessage(mid), from);
+				if (useBatching)
+					addToBatch(pendingRequests, from, mid, RequestValsBatchMessage::new);
+				else
+					sendMessage(channelId, new RequestValMessage(mid), from);
 			}
 		}
 	}
@@ -276,7 +358,14 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 	 * A peer requests a value this node holds, simply sent it.
 	 */
 	private void uponRequestValMessage(RequestValMessage msg, Host from, int channelId) {
-		UUID mid = msg.getMissingMessageId();
+		uponRequestVal(msg.getMissingMessageId(), from, channelId);
+	}
+
+	private void uponRequestValsBatchMessage(RequestValsBatchMessage msg, Host from, int channelId) {
+		msg.getMissingMessageIds().forEach(mid -> uponRequestVal(mid, from, channelId));
+	}
+
+	private void uponRequestVal(UUID mid, Host from, int channelId) {
 		logger.debug("Peer {} requested value of identifier {}", from, mid);
 		LazyValMessage valM = messageBuffer.get(mid);
 		if (valM != null) {
@@ -313,17 +402,19 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 		Host peerModified = new Host(peerOg.getAddress(), peerOg.getPort() + PORT_OFFSET);
 		logger.debug("Closing connection with node: {}", peerModified);
 		peers.remove(peerModified);
+		pendingIdentifiers.remove(peerModified);
+		pendingRequests.remove(peerModified);
 		closeConnection(peerModified, channelId);
 	}
 
 	@Override
 	public Set<UUID> getMsgIds() {
-		return messageBuffer.keySet();
+		return Collections.unmodifiableSet(messageBuffer.keySet());
 	}
 
 	@Override
-	public Set<ProtoMessage> getMsgs() {
-		return Set.copyOf(messageBuffer.values());
+	public Collection<ProtoMessage> getMsgs() {
+		return Collections.unmodifiableCollection(messageBuffer.values());
 	}
 
 	@Override
@@ -349,7 +440,9 @@ public class LazyPushBroadcast extends GenericProtocol implements BroadcastProto
 
 	private void deliverLazyValMessage(LazyValMessage msg) {
 		UUID mid = msg.getMid();
-		messageBuffer.put(mid, msg);
+		LazyValMessage replaced = messageBuffer.put(mid, msg);
+		if (replaced != null && replaced != msg)
+			replaced.releaseWireBytes();
 		waitingForContent.remove(mid);
 		triggerNotification(new DeliverVal(msg.getVal()));
 	}
@@ -5,26 +5,58 @@ import broadcastProtocols.messages.BatcheableMessage;
 import broadcastProtocols.messages.BroadcastMessage;
 import broadcastProtocols.messages.BroadcastMessageImp;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import pt.unl.fct.di.novasys.network.ISerializer;
 import valueDispatcher.DispatcherWrapper;
 
 import java.io.IOException;
 import java.util.UUID;
 
+/**
+ * Message carrying a value disseminated by the {@link broadcastProtocols.lazyPush.LazyPushBroadcast}.
+ * <p>A message received from the network keeps the bytes it was received with.
+ * These are written as they are when the message is forwarded to other nodes,
+ * instead of serializing the value again.
+ * The bytes must be released with {@link #releaseWireBytes()} once the message is no longer kept,
+ * after which the value is serialized again should the message be forwarded.</p>
+ * <p>The serializer retains the bytes while writing them, under the same monitor used to release them,
+ * so that these are not freed by a concurrent release while being copied.</p>
+ */
 public class LazyValMessage extends BatcheableMessage implements BroadcastMessage {
 
     public static final short ID = 200;
 
     private final BroadcastMessage broadcastMessage;
 
+    private ByteBuf wireBytes;
+
     public LazyValMessage(UUID mid, DispatcherWrapper val) {
         super(ID);
         this.broadcastMessage = new BroadcastMessageImp(mid, val);
     }
 
-    private LazyValMessage(BroadcastMessage broadcastMessage) {
+    private LazyValMessage(BroadcastMessage broadcastMessage, ByteBuf wireBytes) {
         super(ID);
         this.broadcastMessage = broadcastMessage;
+        this.wireBytes = wireBytes;
+    }
+
+    /**
+     * Retains the bytes this message was received with, which must be released by the caller.
+     * @return The bytes retained, or null if these have been released.
+     */
+    private synchronized ByteBuf retainWireBytes() {
+        return wireBytes != null ? wireBytes.retain() : null;
+    }
+
+    /**
+     * Releases the bytes this message was received with.
+     */
+    public synchronized void releaseWireBytes() {
+        ByteBuf toRelease = wireBytes;
+        wireBytes = null;
+        if (toRelease != null)
+            toRelease.release();
     }
 
     @Override
@@ -57,13 +89,28 @@ public class LazyValMessage extends BatcheableMessage implements BroadcastMessag
 
         @Override
         public void serialize(BatcheableMessage msg, ByteBuf out) throws IOException {
-            BroadcastMessageImp.serializer.serialize(msg, out);
+            ByteBuf wireBytes = ((LazyValMessage) msg).retainWireBytes();
+            if (wireBytes == null) {
+                BroadcastMessageImp.serializer.serialize(msg, out);
+                return;
+            }
+            try {
+                out.writeBytes(wireBytes, wireBytes.readerIndex(), wireBytes.readableBytes());
+            } finally {
+                wireBytes.release();
+            }
         }
 
+        /**
+         * The bytes of the message are copied from the buffer received,
+         * rather than retaining a slice that would keep the whole network buffer from being reused.
+         */
         @Override
         public LazyValMessage deserialize(ByteBuf in) throws IOException {
+            int start = in.readerIndex();
             BroadcastMessage msg = (BroadcastMessage) BroadcastMessageImp.serializer.deserialize(in);
-            return new LazyValMessage(msg);
+            ByteBuf wireBytes = Unpooled.copiedBuffer(in.slice(start, in.readerIndex() - start));
+            return new LazyValMessage(msg, wireBytes);
         }
     };
 
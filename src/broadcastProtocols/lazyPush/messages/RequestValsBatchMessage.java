@@ -0,0 +1,49 @@
+package broadcastProtocols.lazyPush.messages;
+
+import broadcastProtocols.BroadcastValue;
+import io.netty.buffer.ByteBuf;
+import pt.unl.fct.di.novasys.babel.generic.ProtoMessage;
+import pt.unl.fct.di.novasys.network.ISerializer;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Requests the content of several messages whose identifiers were announced by the receiver.
+ * <p>Equivalent to a sequence of {@link RequestValMessage}, sent in a single frame.</p>
+ */
+public class RequestValsBatchMessage extends ProtoMessage {
+
+    public static final short ID = 204;
+    public static final ISerializer<RequestValsBatchMessage> serializer = new ISerializer<>() {
+
+        @Override
+        public void serialize(RequestValsBatchMessage message, ByteBuf out) {
+            BroadcastValue.serializeUuids(message.missing, out);
+        }
+
+        @Override
+        public RequestValsBatchMessage deserialize(ByteBuf in) {
+            return new RequestValsBatchMessage(BroadcastValue.deserializeUuids(in));
+        }
+
+    };
+    private final List<UUID> missing;
+
+    public RequestValsBatchMessage(List<UUID> missing) {
+        super(ID);
+        this.missing = missing;
+    }
+
+    public List<UUID> getMissingMessageIds() {
+        return missing;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestValsBatchMessage{" +
+                "missing=" + missing +
+                '}';
+    }
+
+}
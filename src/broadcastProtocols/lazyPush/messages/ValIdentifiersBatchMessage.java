@@ -0,0 +1,48 @@
+package broadcastProtocols.lazyPush.messages;
+
+import broadcastProtocols.BroadcastValue;
+import io.netty.buffer.ByteBuf;
+import pt.unl.fct.di.novasys.babel.generic.ProtoMessage;
+import pt.unl.fct.di.novasys.network.ISerializer;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Announces the identifiers of several messages held by the sender.
+ * <p>Equivalent to a sequence of {@link ValIdentifierMessage}, sent in a single frame.</p>
+ */
+public class ValIdentifiersBatchMessage extends ProtoMessage {
+
+    public static final short ID = 203;
+
+    private final List<UUID> ids;
+
+    public ValIdentifiersBatchMessage(List<UUID> ids) {
+        super(ID);
+        this.ids = ids;
+    }
+
+    public List<UUID> getIdsOfTheContentMessages() {
+        return ids;
+    }
+
+    @Override
+    public String toString() {
+        return "ValIdentifiersBatchMessage{" +
+                "mids=" + ids +
+                '}';
+    }
+
+    public static final ISerializer<ValIdentifiersBatchMessage> serializer = new ISerializer<>() {
+        @Override
+        public void serialize(ValIdentifiersBatchMessage m, ByteBuf out) {
+            BroadcastValue.serializeUuids(m.ids, out);
+        }
+
+        @Override
+        public ValIdentifiersBatchMessage deserialize(ByteBuf in) {
+            return new ValIdentifiersBatchMessage(BroadcastValue.deserializeUuids(in));
+        }
+    };
+}
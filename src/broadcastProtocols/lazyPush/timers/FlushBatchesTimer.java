@@ -0,0 +1,17 @@
+package broadcastProtocols.lazyPush.timers;
+
+import pt.unl.fct.di.novasys.babel.generic.ProtoTimer;
+
+public class FlushBatchesTimer extends ProtoTimer {
+
+    public static final short ID = 944;
+
+    public FlushBatchesTimer() {
+        super(ID);
+    }
+
+    @Override
+    public ProtoTimer clone() {
+        return null;
+    }
+}
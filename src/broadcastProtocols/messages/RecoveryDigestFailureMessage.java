@@ -0,0 +1,40 @@
+package broadcastProtocols.messages;
+
+import io.netty.buffer.ByteBuf;
+import pt.unl.fct.di.novasys.babel.generic.ProtoMessage;
+import pt.unl.fct.di.novasys.network.ISerializer;
+
+/**
+ * Informs the sender of a {@link RequestRecoveryDigestMessage} that the differences between the messages held
+ * by both nodes could not be decoded from the digest received.
+ */
+public class RecoveryDigestFailureMessage extends ProtoMessage {
+
+    public static final short ID = 1203;
+
+    private final int numCells;
+
+    public RecoveryDigestFailureMessage(int numCells) {
+        super(ID);
+        this.numCells = numCells;
+    }
+
+    /**
+     * @return The number of cells in the digest that could not be decoded.
+     */
+    public int getNumCells() {
+        return numCells;
+    }
+
+    public static final ISerializer<RecoveryDigestFailureMessage> serializer = new ISerializer<>() {
+        @Override
+        public void serialize(RecoveryDigestFailureMessage msg, ByteBuf out) {
+            out.writeInt(msg.numCells);
+        }
+
+        @Override
+        public RecoveryDigestFailureMessage deserialize(ByteBuf in) {
+            return new RecoveryDigestFailureMessage(in.readInt());
+        }
+    };
+}
@@ -0,0 +1,50 @@
+package broadcastProtocols.messages;
+
+import broadcastProtocols.InvertibleBloomLookupTable;
+import io.netty.buffer.ByteBuf;
+import pt.unl.fct.di.novasys.babel.generic.ProtoMessage;
+import pt.unl.fct.di.novasys.network.ISerializer;
+
+import java.io.IOException;
+
+/**
+ * Requests the messages missing in the sender, summarizing the messages it has in an
+ * {@link InvertibleBloomLookupTable}.
+ * <p>Digests with more cells than the maximum are rejected when deserialized.</p>
+ */
+public class RequestRecoveryDigestMessage extends ProtoMessage {
+
+    public static final short ID = 1202;
+
+    private static volatile int maxNumCells = Integer.MAX_VALUE;
+
+    private final InvertibleBloomLookupTable iHave;
+
+    public RequestRecoveryDigestMessage(InvertibleBloomLookupTable iHave) {
+        super(ID);
+        this.iHave = iHave;
+    }
+
+    public InvertibleBloomLookupTable getIHaveDigest() {
+        return iHave;
+    }
+
+    /**
+     * Sets the maximum number of cells of the digests received.
+     */
+    public static void setMaxNumCells(int maxNumCells) {
+        RequestRecoveryDigestMessage.maxNumCells = maxNumCells;
+    }
+
+    public static final ISerializer<RequestRecoveryDigestMessage> serializer = new ISerializer<>() {
+        @Override
+        public void serialize(RequestRecoveryDigestMessage msg, ByteBuf out) {
+            msg.iHave.serialize(out);
+        }
+
+        @Override
+        public RequestRecoveryDigestMessage deserialize(ByteBuf in) throws IOException {
+            return new RequestRecoveryDigestMessage(InvertibleBloomLookupTable.deserialize(in, maxNumCells));
+        }
+    };
+}
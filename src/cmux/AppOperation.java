@@ -38,33 +38,42 @@ public class AppOperation extends BroadcastValueAbstract {
 	private final transient UUID id;
 
 	@Getter
-	private transient final byte[] hashVal, cmuxId1, cmuxId2;
+	private transient final byte[] hashVal;
 	private final transient CMuxMask mask = new CMuxMask();
 
+	/**
+	 * The CMux ids are only necessary when the Chain holding the operation spawns new Chains,
+	 * and are thus computed the first time they are required.
+	 */
+	private transient volatile byte[] cmuxId1, cmuxId2;
+
 	@Getter
 	private final byte[] content, replicaMetadata;
 
 	public AppOperation(byte[] content, byte[] replicaMetadata) {
 		super(ID);
-		byte[] fullOperation = concatenate(content, replicaMetadata);
-		this.hashVal = CryptographicUtils.hashInput(fullOperation);
-		this.id = CryptographicUtils.generateUUIDFromBytes(hashVal);
-		CMuxIdMapper mapper = FixedCMuxIdMapper.getSingleton();
-		this.cmuxId1 = mapper.mapToCmuxId1(fullOperation);
-		this.cmuxId2 = mapper.mapToCmuxId2(fullOperation);
+		this.hashVal = CryptographicUtils.hashInputs(content, replicaMetadata);
+		this.id = CryptographicUtils.uuidFromHash(hashVal);
 		this.content = content;
 		this.replicaMetadata = replicaMetadata;
 	}
 
-	private byte[] concatenate(byte[] head, byte[] tail) {
-		byte[] res = new byte[head.length + tail.length];
-		System.arraycopy(head, 0, res, 0, head.length);
-		System.arraycopy(tail, 0, res, head.length, tail.length);
+	public byte[] getCmuxId1() {
+		byte[] res = cmuxId1;
+		if (res == null)
+			cmuxId1 = res = FixedCMuxIdMapper.getSingleton().mapToCmuxId1(content, replicaMetadata, hashVal);
+		return res;
+	}
+
+	public byte[] getCmuxId2() {
+		byte[] res = cmuxId2;
+		if (res == null)
+			cmuxId2 = res = FixedCMuxIdMapper.getSingleton().mapToCmuxId2(content, replicaMetadata, hashVal);
 		return res;
 	}
 
 	public CMuxMask.MaskResult matchIds() {
-		return mask.matchIds(cmuxId1, cmuxId2);
+		return mask.matchIds(getCmuxId1(), getCmuxId2());
 	}
 
 	public void advanceMask() {
@@ -5,4 +5,28 @@ public interface CMuxIdMapper {
     byte[] mapToCmuxId1(byte[] operation);
 
     byte[] mapToCmuxId2(byte[] operation);
+
+    /**
+     * Maps an operation to its first CMux id, given the hash of the operation already computed.
+     * <p>By default, ignores the hash and maps the concatenation of the content and metadata of the operation.
+     * Mappers whose ids are derived from the hash should override this to avoid hashing the operation again.</p>
+     */
+    default byte[] mapToCmuxId1(byte[] content, byte[] replicaMetadata, byte[] operationHash) {
+        return mapToCmuxId1(concatenate(content, replicaMetadata));
+    }
+
+    /**
+     * Maps an operation to its second CMux id, given the hash of the operation already computed.
+     * @see #mapToCmuxId1(byte[], byte[], byte[])
+     */
+    default byte[] mapToCmuxId2(byte[] content, byte[] replicaMetadata, byte[] operationHash) {
+        return mapToCmuxId2(concatenate(content, replicaMetadata));
+    }
+
+    private static byte[] concatenate(byte[] head, byte[] tail) {
+        byte[] res = new byte[head.length + tail.length];
+        System.arraycopy(head, 0, res, 0, head.length);
+        System.arraycopy(tail, 0, res, head.length, tail.length);
+        return res;
+    }
 }
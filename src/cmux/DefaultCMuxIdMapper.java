@@ -11,7 +11,20 @@ public class DefaultCMuxIdMapper implements CMuxIdMapper {
 
     @Override
     public byte[] mapToCmuxId2(byte[] operation) {
-        byte[] hash = CryptographicUtils.hashInput(operation);
+        return rotate(CryptographicUtils.hashInput(operation));
+    }
+
+    @Override
+    public byte[] mapToCmuxId1(byte[] content, byte[] replicaMetadata, byte[] operationHash) {
+        return operationHash;
+    }
+
+    @Override
+    public byte[] mapToCmuxId2(byte[] content, byte[] replicaMetadata, byte[] operationHash) {
+        return rotate(operationHash);
+    }
+
+    private static byte[] rotate(byte[] hash) {
         byte[] seed = new byte[hash.length];
         seed[0] = hash[hash.length - 1];
         System.arraycopy(hash, 0, seed, 1, hash.length - 1);
@@ -24,6 +24,16 @@ public class FixedCMuxIdMapper implements CMuxIdMapper {
 		return mapper.mapToCmuxId2(operation);
 	}
 
+	@Override
+	public byte[] mapToCmuxId1(byte[] content, byte[] replicaMetadata, byte[] operationHash) {
+		return mapper.mapToCmuxId1(content, replicaMetadata, operationHash);
+	}
+
+	@Override
+	public byte[] mapToCmuxId2(byte[] content, byte[] replicaMetadata, byte[] operationHash) {
+		return mapper.mapToCmuxId2(content, replicaMetadata, operationHash);
+	}
+
 	public void setCustomMapper(CMuxIdMapper mapper) {
 		this.mapper = mapper;
 	}
@@ -8,6 +8,7 @@ import lombok.SneakyThrows;
 import utils.CryptographicUtils;
 
 import java.io.*;
+import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.List;
@@ -19,7 +20,11 @@ import static java.util.stream.Collectors.toList;
 @Getter
 public class Transaction implements Serializable {
 
-	private final PublicKey origin, destination;
+	/**
+	 * Serialized in their encoded format, and decoded with {@link CryptographicUtils#fromEncodedFormat(byte[])},
+	 * which returns the same instance for the keys of recurring clients.
+	 */
+	private transient PublicKey origin, destination;
 	/**
 	 * Identifiers of the UTXO inputs used in the transaction.
 	 */
@@ -69,6 +74,34 @@ public class Transaction implements Serializable {
 		}
 	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		writeKey(origin, out);
+		writeKey(destination, out);
+	}
+
+	private static void writeKey(PublicKey key, ObjectOutputStream out) throws IOException {
+		byte[] encoded = key.getEncoded();
+		out.writeShort(encoded.length);
+		out.write(encoded);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		origin = readKey(in);
+		destination = readKey(in);
+	}
+
+	private static PublicKey readKey(ObjectInputStream in) throws IOException {
+		byte[] encoded = new byte[in.readShort()];
+		in.readFully(encoded);
+		try {
+			return CryptographicUtils.fromEncodedFormat(encoded);
+		} catch (GeneralSecurityException e) {
+			throw new InvalidObjectException(e.getMessage());
+		}
+	}
+
 	@SneakyThrows
 	public static byte[] serializeTx(Transaction tx) {
 		try (var out = new ByteArrayOutputStream(); var oout = new ObjectOutputStream(out)) {
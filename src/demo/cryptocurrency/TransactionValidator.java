@@ -5,11 +5,9 @@ import demo.cryptocurrency.utxos.InTransactionUTXO;
 import demo.cryptocurrency.utxos.UTXO;
 import ledger.blocks.BlockmessBlock;
 import org.apache.commons.lang3.tuple.Pair;
-import utils.CryptographicUtils;
+import utils.SignatureVerifier;
 import validators.ApplicationAwareValidator;
 
-import java.security.InvalidKeyException;
-import java.security.SignatureException;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -17,15 +15,13 @@ import static java.util.stream.Collectors.toList;
 
 /**
  * Validates transactions.
+ * <p>The signatures found valid are cached by the {@link SignatureVerifier},
+ * avoiding redundant validations when a transaction received previously is included in a block.
+ * The remaining validations are cheap and repeated.</p>
+ * <p>Is thread safe, and can be used with several "validationThreads".</p>
  */
 public class TransactionValidator implements ApplicationAwareValidator {
 
-	/**
-	 * Caches which transactions have been validated.
-	 * <p>Avoids redundant validations when a block is proposed.</p>
-	 */
-	private static final Set<UUID> validatedTxs = new HashSet<>();
-
 	public static boolean isFinalizedBlockValid(Transaction tx) {
 		Collection<UTXO> inputs = getAllInputs(tx);
 		if (!hasAllInputs(inputs, tx) || !areInputsFromTxIssuer(tx, inputs))
@@ -58,10 +54,6 @@ public class TransactionValidator implements ApplicationAwareValidator {
 		return Stream.concat(tx.getOutputsDestination().stream(), tx.getOutputsOrigin().stream()).collect(toList());
 	}
 
-	public static void forgetTxValidation(Transaction tx) {
-		validatedTxs.remove(tx.getId());
-	}
-
 	@Override
 	public Pair<Boolean, byte[]> validateReceivedOperation(byte[] operation) {
 		return validateUnfinalizedTx(operation);
@@ -69,15 +61,11 @@ public class TransactionValidator implements ApplicationAwareValidator {
 
 	private static Pair<Boolean, byte[]> validateUnfinalizedTx(byte[] operation) {
 		Transaction tx = Transaction.deserializeTx(operation);
-		UUID txId = tx.getId();
-		if (validatedTxs.contains(txId))
-			return Pair.of(true, new byte[0]);
 		Collection<InTransactionUTXO> outputs = getAllOutputs(tx);
 		if (outputsHaveNegativeAmounts(outputs))
 			return Pair.of(false, "One UTXO output has negative value".getBytes());
-		if (!signatureMatches(tx))
+		if (!SignatureVerifier.verifySignature(getSignedContent(tx)))
 			return Pair.of(false, "The signature of the Transation does not match its content".getBytes());
-		validatedTxs.add(tx.getId());
 		return Pair.of(true, new byte[0]);
 	}
 
@@ -85,26 +73,26 @@ public class TransactionValidator implements ApplicationAwareValidator {
 		return outputs.stream().mapToInt(InTransactionUTXO::getAmount).anyMatch(x -> x <= 0);
 	}
 
-	private static boolean signatureMatches(Transaction tx) {
-		try {
-			return tryToMatchSignature(tx);
-		} catch (InvalidKeyException | SignatureException e) {
-			return false;
-		}
-	}
-
-	private static boolean tryToMatchSignature(Transaction tx) throws InvalidKeyException, SignatureException {
-		byte[] reportedSignature = tx.getOriginSignature();
-		byte[] txContents = tx.obtainTxByteFields();
-		return CryptographicUtils.verifyPojoSignature(reportedSignature, txContents, tx.getOrigin());
+	private static SignatureVerifier.SignedContent getSignedContent(Transaction tx) {
+		return new SignatureVerifier.SignedContent(tx.getOriginSignature(), tx.obtainTxByteFields(), tx.getOrigin());
 	}
 
+	/**
+	 * Validates the transactions in a block, verifying their signatures in a single batch.
+	 */
 	@Override
 	public boolean validateBlockContent(BlockmessBlock block) {
-		return block.getContentList().getContentList().parallelStream()
+		List<Transaction> txs = block.getContentList().getContentList().stream()
 				.map(AppOperation::getContent)
-				.map(TransactionValidator::validateUnfinalizedTx)
-				.allMatch(Pair::getLeft);
+				.map(Transaction::deserializeTx)
+				.collect(toList());
+		boolean hasNegativeOutputs = txs.stream()
+				.map(TransactionValidator::getAllOutputs)
+				.anyMatch(TransactionValidator::outputsHaveNegativeAmounts);
+		if (hasNegativeOutputs)
+			return false;
+		return SignatureVerifier.verifyAllSignatures(
+				txs.stream().map(TransactionValidator::getSignedContent).collect(toList()));
 	}
 
 }
@@ -125,7 +125,6 @@ public class CryptocurrencyClient extends ApplicationInterface {
 		db.submitUTXOs(utxos);
 		utxos.stream().filter(u -> Arrays.equals(myKeys.getPublic().getEncoded(), u.getOwner()))
 				.forEach(u -> myUTXOs.put(u.getId(), u));
-		TransactionValidator.forgetTxValidation(tx);
 		finalizedTransactionLog.logFinalizedTransaction(tx);
 		return dest.getEncoded();
 	}
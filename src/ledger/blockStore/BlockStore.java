@@ -0,0 +1,351 @@
+package ledger.blockStore;
+
+import applicationInterface.GlobalProperties;
+import broadcastProtocols.BroadcastValue;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import ledger.blocks.BlockmessBlock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.unl.fct.di.novasys.network.ISerializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Append-only record of the finalized blocks.
+ * <p>Blocks are appended in their serialized format to segment files of fixed size, mapped in memory.
+ * Once a segment is full, a new one is created.
+ * The blocks are therefore kept outside the heap, and the serialized blocks can be served directly from the mapped
+ * segments.</p>
+ * <p>Appending a block only copies it to the mapped memory, and the operating system writes it to the file later.
+ * The segments are forced to the storage device when a new segment is created,
+ * periodically by a daemon thread, and when the node shuts down.
+ * Should the machine crash, the blocks appended since the segments were last forced may be lost.</p>
+ * <p>Each record in a segment is composed of the following fields:</p>
+ * <ul>
+ *     <li>Length of the remainder of the record (int);</li>
+ *     <li>Checksum of the remainder of the record (int);</li>
+ *     <li>Block identifier (two longs);</li>
+ *     <li>Identifier of the Chain where the block was proposed (two longs);</li>
+ *     <li>Rank of the block (long);</li>
+ *     <li>Class identifier of the block, used to select its deserializer (short);</li>
+ *     <li>The serialized block, as written by the block's {@link ISerializer}.</li>
+ * </ul>
+ * <p>The length of a record is written after its content, and a zero length marks the end of the records in a segment.
+ * As the pages of a segment may reach the storage device in any order, the checksum of each record is verified
+ * when the segments are read on startup.
+ * A record whose write was interrupted is therefore ignored, along with any record following it in the segment,
+ * and is overwritten by the next block appended.</p>
+ * <p>The index of the records is kept in memory and rebuilt on startup by reading the records' headers.</p>
+ */
+public class BlockStore {
+
+	private static final Logger logger = LogManager.getLogger(BlockStore.class);
+
+	private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private static final long DEFAULT_FLUSH_PERIOD = 1000;
+
+	private static final int HEADER_SIZE = Integer.BYTES + 5 * Long.BYTES + Short.BYTES;
+
+	private static final String SEGMENT_PREFIX = "segment-";
+
+	private static final String SEGMENT_SUFFIX = ".dat";
+
+	private static BlockStore singleton;
+
+	private final Path directory;
+
+	private final int segmentSize;
+
+	private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Index of the first segment modified since the segments were last forced.
+	 */
+	private volatile int firstUnforcedSegment = 0;
+
+	private final Object flushLock = new Object();
+
+	private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactoryBuilder().setDaemon(true).setNameFormat("block-store-flusher-%d").build());
+
+	private final Map<UUID, BlockLocation> blocksLocation = new ConcurrentHashMap<>();
+
+	private final Map<UUID, NavigableMap<Long, UUID>> chainsBlocks = new ConcurrentHashMap<>();
+
+	/**
+	 * Position in the last segment where the next record will be written.
+	 */
+	private int writePosition;
+
+	public BlockStore(Path directory, int segmentSize) throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		Files.createDirectories(directory);
+		loadSegments();
+	}
+
+	/**
+	 * @return The block store, if it was enabled in the configuration.
+	 */
+	public static Optional<BlockStore> getSingleton() {
+		if (singleton == null) {
+			Properties props = GlobalProperties.getProps();
+			if (!props.getProperty("blockStore", "F").equals("T"))
+				return Optional.empty();
+			singleton = createBlockStore(props);
+		}
+		return Optional.of(singleton);
+	}
+
+	private static BlockStore createBlockStore(Properties props) {
+		Path directory = Path.of(props.getProperty("blockStoreDirectory", "./blockStore"));
+		int segmentSize = parseInt(props.getProperty("blockStoreSegmentSize", String.valueOf(DEFAULT_SEGMENT_SIZE)));
+		long flushPeriod = parseLong(props.getProperty("blockStoreFlushPeriod", String.valueOf(DEFAULT_FLUSH_PERIOD)));
+		try {
+			BlockStore store = new BlockStore(directory, segmentSize);
+			store.scheduleFlushes(flushPeriod);
+			return store;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Periodically forces the segments to the storage device, and forces them one last time when the node shuts down.
+	 */
+	public void scheduleFlushes(long flushPeriod) {
+		flusher.scheduleAtFixedRate(this::flush, flushPeriod, flushPeriod, TimeUnit.MILLISECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(this::flush));
+	}
+
+	private void loadSegments() throws IOException {
+		List<Path> segmentFiles;
+		try (Stream<Path> files = Files.list(directory)) {
+			segmentFiles = files.filter(f -> f.getFileName().toString().startsWith(SEGMENT_PREFIX))
+					.sorted()
+					.collect(toList());
+		}
+		for (Path segmentFile : segmentFiles) {
+			segments.add(mapSegment(segmentFile, (int) Files.size(segmentFile)));
+			writePosition = indexSegment(segments.size() - 1);
+		}
+		firstUnforcedSegment = Math.max(0, segments.size() - 1);
+		logger.info("Loaded {} blocks from {} segments in {}", blocksLocation.size(), segments.size(), directory);
+	}
+
+	/**
+	 * Reads the headers of the records in a segment, adding them to the index.
+	 * <p>Stops at the first record whose length or checksum is invalid.</p>
+	 * @return The position after the last valid record in the segment.
+	 */
+	private int indexSegment(int segmentIdx) {
+		ByteBuffer segment = segments.get(segmentIdx).duplicate();
+		int position = 0;
+		while (position + Integer.BYTES + HEADER_SIZE <= segment.capacity()) {
+			int recordLength = segment.getInt(position);
+			if (recordLength < HEADER_SIZE || position + Integer.BYTES + recordLength > segment.capacity())
+				break;
+			int checksum = segment.getInt(position + Integer.BYTES);
+			if (checksum != computeChecksum(segment, position + Integer.BYTES, recordLength)) {
+				logger.warn("Ignoring the records after position {} of segment {}, as these were not fully written",
+						position, segmentIdx);
+				break;
+			}
+			segment.position(position + 2 * Integer.BYTES);
+			UUID blockId = new UUID(segment.getLong(), segment.getLong());
+			UUID chainId = new UUID(segment.getLong(), segment.getLong());
+			long rank = segment.getLong();
+			indexBlock(blockId, chainId, rank, new BlockLocation(segmentIdx, position + Integer.BYTES, recordLength));
+			position += Integer.BYTES + recordLength;
+		}
+		return position;
+	}
+
+	/**
+	 * Computes the checksum of a record, covering the fields after the checksum.
+	 * @param offset Position of the record in the segment, after the length field.
+	 */
+	private static int computeChecksum(ByteBuffer segment, int offset, int recordLength) {
+		ByteBuffer covered = segment.duplicate();
+		covered.limit(offset + recordLength);
+		covered.position(offset + Integer.BYTES);
+		CRC32C checksum = new CRC32C();
+		checksum.update(covered);
+		return (int) checksum.getValue();
+	}
+
+	private void indexBlock(UUID blockId, UUID chainId, long rank, BlockLocation location) {
+		blocksLocation.put(blockId, location);
+		chainsBlocks.computeIfAbsent(chainId, k -> new ConcurrentSkipListMap<>()).put(rank, blockId);
+	}
+
+	private MappedByteBuffer mapSegment(Path segmentFile, int size) throws IOException {
+		try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	/**
+	 * Appends a finalized block to the store.
+	 * <p>Blocks already in the store are ignored.</p>
+	 * <p>Called by the thread delivering the finalized blocks, so that the blocks are stored in the order they are
+	 * finalized and are available to whoever is notified of their finalization.
+	 * This only copies the block to the mapped memory, while forcing it to the storage device is left to
+	 * {@link #flush()}, which is not executed by the calling thread.</p>
+	 */
+	public synchronized void storeBlock(BlockmessBlock block) {
+		if (blocksLocation.containsKey(block.getBlockId()))
+			return;
+		try {
+			tryToStoreBlock(block);
+		} catch (IOException e) {
+			logger.error("Unable to store block {} because: {}", block.getBlockId(), e.getMessage());
+		}
+	}
+
+	private void tryToStoreBlock(BlockmessBlock block) throws IOException {
+		ByteBuf serialized = Unpooled.buffer();
+		block.getSerializer().serialize(block, serialized);
+		int recordLength = HEADER_SIZE + serialized.readableBytes();
+		MappedByteBuffer segment = getWritableSegment(Integer.BYTES + recordLength);
+		ByteBuffer record = segment.duplicate();
+		record.position(writePosition + 2 * Integer.BYTES);
+		record.putLong(block.getBlockId().getMostSignificantBits());
+		record.putLong(block.getBlockId().getLeastSignificantBits());
+		record.putLong(block.getDestinationChain().getMostSignificantBits());
+		record.putLong(block.getDestinationChain().getLeastSignificantBits());
+		record.putLong(block.getBlockRank());
+		record.putShort(block.getClassId());
+		record.put(serialized.nioBuffer());
+		segment.putInt(writePosition + Integer.BYTES, computeChecksum(segment, writePosition + Integer.BYTES, recordLength));
+		segment.putInt(writePosition + Integer.BYTES + recordLength, 0);
+		segment.putInt(writePosition, recordLength);
+		indexBlock(block.getBlockId(), block.getDestinationChain(), block.getBlockRank(),
+				new BlockLocation(segments.size() - 1, writePosition + Integer.BYTES, recordLength));
+		writePosition += Integer.BYTES + recordLength;
+	}
+
+	/**
+	 * Retrieves the last segment if it can fit the record, otherwise creates a new segment.
+	 * <p>Records larger than the segment size are given a segment of their own.</p>
+	 */
+	private MappedByteBuffer getWritableSegment(int recordSize) throws IOException {
+		boolean fitsLast = !segments.isEmpty()
+				&& writePosition + recordSize + Integer.BYTES <= segments.get(segments.size() - 1).capacity();
+		if (!fitsLast) {
+			flushInBackground();
+			Path segmentFile = directory.resolve(String.format("%s%010d%s",
+					SEGMENT_PREFIX, segments.size(), SEGMENT_SUFFIX));
+			segments.add(mapSegment(segmentFile, Math.max(segmentSize, recordSize + Integer.BYTES)));
+			writePosition = 0;
+			logger.info("Created block store segment {}", segmentFile);
+		}
+		return segments.get(segments.size() - 1);
+	}
+
+	public boolean hasBlock(UUID blockId) {
+		return blocksLocation.containsKey(blockId);
+	}
+
+	/**
+	 * Retrieves a block in its serialized format.
+	 * <p>The buffer returned is a read-only view over the mapped segment, and no copy of the block is made.</p>
+	 */
+	public Optional<ByteBuf> getSerializedBlock(UUID blockId) {
+		BlockLocation location = blocksLocation.get(blockId);
+		if (location == null)
+			return Optional.empty();
+		ByteBuffer serialized = segments.get(location.segment).asReadOnlyBuffer();
+		serialized.position(location.offset + HEADER_SIZE);
+		serialized.limit(location.offset + location.length);
+		return Optional.of(Unpooled.wrappedBuffer(serialized.slice()));
+	}
+
+	/**
+	 * Retrieves and deserializes a block.
+	 */
+	public Optional<BroadcastValue> getBlock(UUID blockId) throws IOException {
+		BlockLocation location = blocksLocation.get(blockId);
+		if (location == null)
+			return Optional.empty();
+		short classId = segments.get(location.segment).getShort(location.offset + HEADER_SIZE - Short.BYTES);
+		ISerializer<BroadcastValue> serializer = BroadcastValue.pojoSerializers.get(classId);
+		return Optional.of(serializer.deserialize(getSerializedBlock(blockId).get()));
+	}
+
+	/**
+	 * @return The identifiers of the blocks stored from a Chain, indexed by their rank.
+	 */
+	public NavigableMap<Long, UUID> getChainBlocks(UUID chainId) {
+		NavigableMap<Long, UUID> chainBlocks = chainsBlocks.get(chainId);
+		return chainBlocks == null ? Collections.emptyNavigableMap()
+				: Collections.unmodifiableNavigableMap(chainBlocks);
+	}
+
+	public int getNumBlocks() {
+		return blocksLocation.size();
+	}
+
+	/**
+	 * Forces the content of the segments modified since the last flush to the storage device.
+	 * <p>Blocks may be appended while the segments are forced.</p>
+	 */
+	public void flush() {
+		synchronized (flushLock) {
+			int lastSegment = segments.size() - 1;
+			for (int i = firstUnforcedSegment; i <= lastSegment; i++)
+				segments.get(i).force();
+			firstUnforcedSegment = Math.max(0, lastSegment);
+		}
+	}
+
+	/**
+	 * Forces the segments that will no longer be modified, without waiting for the storage device.
+	 */
+	private void flushInBackground() {
+		if (!segments.isEmpty())
+			flusher.execute(this::flush);
+	}
+
+	private static class BlockLocation {
+
+		private final int segment;
+
+		/**
+		 * Position of the record in the segment, after the length field.
+		 */
+		private final int offset;
+
+		private final int length;
+
+		BlockLocation(int segment, int offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+}
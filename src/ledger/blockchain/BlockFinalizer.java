@@ -1,13 +1,16 @@
 package ledger.blockchain;
 
 import applicationInterface.GlobalProperties;
+import broadcastProtocols.BroadcastValue;
 import cyclops.control.Trampoline;
+import io.netty.buffer.ByteBuf;
 import lombok.Getter;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 import static cyclops.control.Trampoline.more;
 import static java.lang.Integer.parseInt;
@@ -26,16 +29,38 @@ public class BlockFinalizer {
 
 	public final Map<UUID, BlockchainNode> blocks = new HashMap<>();
 
-	//Only used in the unit tests
+	//Used in the unit tests and to identify the finalized blocks still kept in memory
 	public final Map<UUID, BlockchainNode> finalized = new HashMap<>();
 
 	@Getter
 	public final int finalizedWeight;
 
+	/**
+	 * Number of finalized blocks kept in memory before the last finalized block.
+	 * <p>A negative value keeps every finalized block.</p>
+	 * <p>Blocks referencing a finalized block outside this window are no longer recognized as ordered,
+	 * therefore the window should comfortably exceed the depth of the forks expected to be received.</p>
+	 */
+	private final int finalizedWindow;
+
+	/**
+	 * The finalized blocks kept in memory, from the oldest to the last finalized block.
+	 * <p>Only used when the finalized blocks are pruned.</p>
+	 */
+	private final Deque<BlockchainNode> retainedFinalized = new ArrayDeque<>();
+
+	private Optional<Consumer<BlockchainNode>> prunedListener = Optional.empty();
+
 	//Collection containing the blocks that have no other block referencing them.
 	//Effectively being the tips of their forks.
 	private final Map<UUID, BlockchainNode> chainTips = new HashMap<>();
 
+	/**
+	 * The identifiers of the chain tips indexed by their weight.
+	 * <p>Allows finding the heaviest tips and the tips of the forks to discard without traversing all tips.</p>
+	 */
+	private final NavigableMap<Integer, Set<UUID>> tipsByWeight = new TreeMap<>();
+
 	/**
 	 * The first received block with the highest weight.
 	 * <p>Parent of the next block this node tries to propose.</p>
@@ -49,18 +74,39 @@ public class BlockFinalizer {
 	private BlockchainNode lastFinalized;
 
 	public BlockFinalizer(UUID genesisId) {
+		this();
+		createGenesisBlock(genesisId);
+	}
+
+	private BlockFinalizer() {
 		Properties props = GlobalProperties.getProps();
 		this.finalizedWeight = parseInt(props.getProperty("finalizedWeight",
 				String.valueOf(FINALIZED_WEIGHT)));
-		createGenesisBlock(genesisId);
+		this.finalizedWindow = parseInt(props.getProperty("finalizedWindow", "-1"));
+	}
+
+	/**
+	 * Sets the listener receiving the finalized blocks discarded from memory, in the order they were finalized.
+	 * <p>The listener is called while the block is added, before the blocks it finalized are returned.</p>
+	 */
+	public void setPrunedListener(Consumer<BlockchainNode> prunedListener) {
+		this.prunedListener = Optional.of(prunedListener);
+	}
+
+	/**
+	 * @return Whether the finalized blocks outside the finalized window are discarded from memory.
+	 */
+	public boolean isPruningFinalized() {
+		return finalizedWindow >= 0;
 	}
 
 	private void createGenesisBlock(UUID genesisUUID) {
 		BlockchainNode genesis = new BlockchainNode(genesisUUID,
 				Collections.emptySet(), finalizedWeight);
-		chainTips.put(genesis.getId(), genesis);
+		addTip(genesis);
 		blocks.put(genesis.getId(), genesis);
 		finalized.put(genesis.getId(), genesis);
+		retainedFinalized.add(genesis);
 		lastFinalized = genesis;
 		priorityTip = genesis;
 	}
@@ -70,8 +116,9 @@ public class BlockFinalizer {
 		int chainWeight = weight + prev.getWeight();
 		BlockchainNode block = new BlockchainNode(id, prevIds, chainWeight);
 		prev.getFollowing().add(id);
-		chainTips.remove(prev.getId());
-		chainTips.put(id, block);
+		removeTip(prev.getId());
+		addTip(block);
+		propagateTipWeight(block);
 		if (block.getWeight() > priorityTip.getWeight())
 			priorityTip = block;
 		logger.debug("Inserting: {}", block.getId());
@@ -79,14 +126,70 @@ public class BlockFinalizer {
 		Set<UUID> deleted = deleteForkedChains();
 		List<BlockchainNode> finalizedSequence = finalizeForward();
 		finalized.putAll(finalizedSequence.stream().collect(toMap(BlockchainNode::getId, b -> b)));
+		pruneFinalized(finalizedSequence);
 		List<UUID> finalizedIds = finalizedSequence.stream().map(BlockchainNode::getId).collect(toList());
 		return Pair.of(finalizedIds, deleted);
 	}
 
+	/**
+	 * Removes from memory the finalized blocks outside the finalized window, handing them to the listener.
+	 */
+	private void pruneFinalized(List<BlockchainNode> newlyFinalized) {
+		if (finalizedWindow < 0)
+			return;
+		retainedFinalized.addAll(newlyFinalized);
+		while (retainedFinalized.size() > finalizedWindow + 1) {
+			BlockchainNode pruned = retainedFinalized.poll();
+			blocks.remove(pruned.getId());
+			finalized.remove(pruned.getId());
+			logger.debug("Pruning: {}", pruned.getId());
+			prunedListener.ifPresent(listener -> listener.accept(pruned));
+		}
+	}
+
+	private void addTip(BlockchainNode tip) {
+		chainTips.put(tip.getId(), tip);
+		tipsByWeight.computeIfAbsent(tip.getWeight(), w -> new HashSet<>()).add(tip.getId());
+	}
+
+	private void removeTip(UUID tipId) {
+		BlockchainNode tip = chainTips.remove(tipId);
+		if (tip == null)
+			return;
+		Set<UUID> sameWeight = tipsByWeight.get(tip.getWeight());
+		sameWeight.remove(tipId);
+		if (sameWeight.isEmpty())
+			tipsByWeight.remove(tip.getWeight());
+	}
+
+	/**
+	 * Updates the weight of the heaviest tip following the blocks preceding a new tip.
+	 * <p>Stops at the first block already followed by a heavier tip, or at the finalized blocks,
+	 * which are always in the longest chain.
+	 * Because the blocks after the last finalized are never more than a few forks deep,
+	 * this traverses a bounded number of blocks.</p>
+	 * <p>The weights are not lowered when forks are discarded.
+	 * The discarded forks are lighter than the heaviest tip by at least the finalized weight,
+	 * and the heaviest tip's weight never decreases, so these stale weights never match the heaviest tip.</p>
+	 */
+	private void propagateTipWeight(BlockchainNode tip) {
+		int weight = tip.getWeight();
+		BlockchainNode current = getParent(tip);
+		while (current != null && !finalized.containsKey(current.getId())
+				&& current.getHeaviestTipWeight() < weight) {
+			current.setHeaviestTipWeight(weight);
+			current = getParent(current);
+		}
+	}
+
+	private BlockchainNode getParent(BlockchainNode node) {
+		Set<UUID> previous = node.getPrevious();
+		return previous.isEmpty() ? null : blocks.get(previous.iterator().next());
+	}
+
 	private List<BlockchainNode> finalizeForward() {
 		assert !chainTips.isEmpty();
-		int maxWeight = chainTips.values().stream()
-				.mapToInt(BlockchainNode::getWeight).max().getAsInt();
+		int maxWeight = getMaxWeight();
 		List<BlockchainNode> newlyFinalized = new LinkedList<>();
 		if (lastFinalized.getFollowing().size() < 2
 				&& maxWeight - blocks.get(lastFinalized.getFollowing().iterator().next()).getWeight() >= finalizedWeight)
@@ -104,11 +207,11 @@ public class BlockFinalizer {
 	 */
 	private Set<UUID> deleteForkedChains() {
 		assert !chainTips.isEmpty();
-		int maxChainWeight = chainTips.values().stream()
-				.mapToInt(BlockchainNode::getWeight).max()
-				.getAsInt();
-		List<BlockchainNode> toRemoveTips = chainTips.values().stream()
-				.filter(b -> maxChainWeight - b.getWeight() >= finalizedWeight)
+		int maxChainWeight = getMaxWeight();
+		List<BlockchainNode> toRemoveTips = tipsByWeight.headMap(maxChainWeight - finalizedWeight, true)
+				.values().stream()
+				.flatMap(Collection::stream)
+				.map(chainTips::get)
 				.collect(toList());
 		Set<UUID> deletedBlocks = new HashSet<>();
 		for (BlockchainNode tip : toRemoveTips)
@@ -118,7 +221,7 @@ public class BlockFinalizer {
 
 	private Set<UUID> deleteForkedChain(BlockchainNode chainTip) {
 		Set<UUID> deleted = new HashSet<>();
-		chainTips.remove(chainTip.getId());
+		removeTip(chainTip.getId());
 		BlockchainNode currentBlock = chainTip;
 		BlockchainNode previousBlock = null;
 		while (currentBlock.getFollowing().size() < 2) {
@@ -133,19 +236,21 @@ public class BlockFinalizer {
 		return deleted;
 	}
 
+	/**
+	 * Verifies whether a block is followed by one of the heaviest tips.
+	 * <p>All chain tips follow the finalized blocks, and thus these are always in the longest chain.</p>
+	 */
 	public boolean isInLongestChain(UUID nodeId) {
 		BlockchainNode node = blocks.get(nodeId);
 		if (node == null)
 			return false;
-		if (chainTips.containsKey(nodeId))
-			return node.getWeight() == getMaxWeight();
-		return node.getFollowing().stream().anyMatch(this::isInLongestChain);
+		if (finalized.containsKey(nodeId))
+			return true;
+		return node.getHeaviestTipWeight() == getMaxWeight();
 	}
 
 	private int getMaxWeight() {
-		return chainTips.values().stream()
-				.mapToInt(BlockchainNode::getWeight)
-				.max().orElse(0);
+		return tipsByWeight.isEmpty() ? 0 : tipsByWeight.lastKey();
 	}
 
 	Set<UUID> getForkBlocks(Set<UUID> curr, int depth) {
@@ -174,16 +279,20 @@ public class BlockFinalizer {
 		return Set.of(priorityTip.getId());
 	}
 
+	/**
+	 * Retrieves the blocks at a given distance after a block, traversing the blocks one level at a time.
+	 */
 	public Set<UUID> getFollowing(UUID block, int distance) {
 		if (distance < 0 || blocks.get(block) == null)
 			throw new IllegalArgumentException();
-		return distance == 0 ? Set.of(block) :
-				blocks.get(block)
-						.getFollowing()
-						.stream()
-						.map(b -> getFollowing(b, distance - 1))
-						.flatMap(Collection::stream)
-						.collect(toSet());
+		Set<UUID> following = Set.of(block);
+		for (int i = 0; i < distance; i++) {
+			Set<UUID> nextLevel = new HashSet<>();
+			for (UUID id : following)
+				nextLevel.addAll(blocks.get(id).getFollowing());
+			following = nextLevel;
+		}
+		return following;
 	}
 
 	public int getWeight(UUID block) throws IllegalArgumentException {
@@ -200,4 +309,76 @@ public class BlockFinalizer {
 		return finalized.keySet();
 	}
 
+	/**
+	 * Serializes the blocks that are not finalized and the last finalized blocks.
+	 * <p>Only the last finalizedWeight + 1 finalized blocks are kept.
+	 * A block received afterwards referencing an older finalized block would start a fork discarded right away.</p>
+	 */
+	public void serializeSnapshot(ByteBuf out) {
+		Deque<BlockchainNode> lastFinalizedBlocks = new ArrayDeque<>();
+		BlockchainNode current = lastFinalized;
+		while (current != null && lastFinalizedBlocks.size() <= finalizedWeight) {
+			lastFinalizedBlocks.addFirst(current);
+			current = getParent(current);
+		}
+		out.writeInt(lastFinalizedBlocks.size());
+		lastFinalizedBlocks.forEach(node -> serializeNode(node, out));
+		List<BlockchainNode> pending = blocks.values().stream()
+				.filter(node -> !finalized.containsKey(node.getId()))
+				.collect(toList());
+		out.writeInt(pending.size());
+		pending.forEach(node -> serializeNode(node, out));
+		out.writeLong(priorityTip.getId().getMostSignificantBits());
+		out.writeLong(priorityTip.getId().getLeastSignificantBits());
+	}
+
+	private void serializeNode(BlockchainNode node, ByteBuf out) {
+		out.writeLong(node.getId().getMostSignificantBits());
+		out.writeLong(node.getId().getLeastSignificantBits());
+		out.writeInt(node.getWeight());
+		out.writeInt(node.getHeaviestTipWeight());
+		BroadcastValue.serializeUuids(List.copyOf(node.getPrevious()), out);
+	}
+
+	/**
+	 * Rebuilds the blocks serialized by {@link #serializeSnapshot(ByteBuf)}.
+	 * <p>The blocks following each block and the chain tips are recomputed from the references to the previous blocks.</p>
+	 */
+	public static BlockFinalizer deserializeSnapshot(ByteBuf in) {
+		BlockFinalizer finalizer = new BlockFinalizer();
+		int numFinalized = in.readInt();
+		for (int i = 0; i < numFinalized; i++) {
+			BlockchainNode node = deserializeNode(in);
+			finalizer.blocks.put(node.getId(), node);
+			finalizer.finalized.put(node.getId(), node);
+			finalizer.retainedFinalized.add(node);
+			finalizer.lastFinalized = node;
+		}
+		int numPending = in.readInt();
+		for (int i = 0; i < numPending; i++) {
+			BlockchainNode node = deserializeNode(in);
+			finalizer.blocks.put(node.getId(), node);
+		}
+		for (BlockchainNode node : finalizer.blocks.values())
+			for (UUID prevId : node.getPrevious()) {
+				BlockchainNode prev = finalizer.blocks.get(prevId);
+				if (prev != null)
+					prev.getFollowing().add(node.getId());
+			}
+		finalizer.blocks.values().stream()
+				.filter(node -> node.getFollowing().isEmpty())
+				.forEach(finalizer::addTip);
+		finalizer.priorityTip = finalizer.blocks.get(new UUID(in.readLong(), in.readLong()));
+		return finalizer;
+	}
+
+	private static BlockchainNode deserializeNode(ByteBuf in) {
+		UUID id = new UUID(in.readLong(), in.readLong());
+		int weight = in.readInt();
+		int heaviestTipWeight = in.readInt();
+		BlockchainNode node = new BlockchainNode(id, new HashSet<>(BroadcastValue.deserializeUuids(in)), weight);
+		node.setHeaviestTipWeight(heaviestTipWeight);
+		return node;
+	}
+
 }
@@ -1,15 +1,17 @@
 package ledger.blockchain;
 
 import applicationInterface.GlobalProperties;
+import io.netty.buffer.ByteBuf;
 import ledger.Ledger;
 import ledger.LedgerObserver;
 import ledger.blocks.BlockmessBlock;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import validators.FixedApplicationObliviousValidator;
+import validators.BlockValidationPipeline;
 
 import java.util.*;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -32,6 +34,11 @@ public class Blockchain implements Ledger {
 	//Blocks that have been received but are not yet ordered.
 	private final Map<UUID, BlockmessBlock> scheduledBlocks = new HashMap<>();
 
+	//Finalized blocks kept in memory by the BlockFinalizer, to be handed to the archiver once discarded.
+	private final Map<UUID, BlockmessBlock> retainedFinalized = new HashMap<>();
+
+	private Optional<FinalizedBlockArchiver> archiver = Optional.empty();
+
 
 	public Blockchain() {
 		this(computeGenesisId());
@@ -45,10 +52,37 @@ public class Blockchain implements Ledger {
 	}
 
 	public Blockchain(UUID genesisId) {
-		this.blockFinalizer = new BlockFinalizer(genesisId);
+		this(new BlockFinalizer(genesisId));
+	}
+
+	private Blockchain(BlockFinalizer blockFinalizer) {
+		this.blockFinalizer = blockFinalizer;
 		this.blockScheduler = new BlockScheduler();
 	}
 
+	/**
+	 * Rebuilds a blockchain from the state serialized by {@link #serializeSnapshot(ByteBuf, Consumer)}.
+	 * <p>The blocks that were waiting for their previous blocks are not kept in the snapshot.</p>
+	 */
+	public static Blockchain deserializeSnapshot(ByteBuf in) {
+		return new Blockchain(BlockFinalizer.deserializeSnapshot(in));
+	}
+
+	/**
+	 * Serializes the ordered blocks in the blockchain.
+	 * <p>The observers serialize their state while the blockchain is locked,
+	 * ensuring their state is consistent with the blocks in the snapshot.</p>
+	 */
+	public void serializeSnapshot(ByteBuf out, Consumer<ByteBuf> observersSnapshot) {
+		try {
+			lock.readLock().lock();
+			blockFinalizer.serializeSnapshot(out);
+			observersSnapshot.accept(out);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
 	/**
 	 * Adds a block to the blockchain.
 	 * <p>Blocks are added to the blockchain in a non-deterministic order, as they are received from the network.</p>
@@ -62,7 +96,7 @@ public class Blockchain implements Ledger {
 		List<UUID> prev = block.getPrevRefs();
 		if (prev.size() != 1) {
 			logger.info("Received malformed block with id: {}", block.getBlockId());
-		} else if (!FixedApplicationObliviousValidator.getSingleton().isBlockValid(block)) {
+		} else if (!BlockValidationPipeline.getSingleton().isBlockValid(block)) {
 			logger.info("Received invalid block {} referencing {}",
 					block.getBlockId(), block.getPrevRefs().get(0));
 		} else if (!isOrdered(block)) {
@@ -126,6 +160,7 @@ public class Blockchain implements Ledger {
 		int weight = blockFinalizer.getWeight(prev.get(0)) + block.getInherentWeight();//blocks.get(prev.get(0)).getWeight() + block.getInherentWeight();
 		var deliverFinalizedInfo = blockFinalizer.addBlock(block.getBlockId(),
 				new HashSet<>(prev), block.getInherentWeight());
+		retainFinalizedBlocks(deliverFinalizedInfo.getLeft());
 		Stream.concat(deliverFinalizedInfo.getLeft().stream(), deliverFinalizedInfo.getRight().stream())
 				.forEach(scheduledBlocks::remove);
 		deliverFinalizedBlocks(deliverFinalizedInfo.getLeft(), deliverFinalizedInfo.getRight());
@@ -133,6 +168,34 @@ public class Blockchain implements Ledger {
 	}
 
 
+	/**
+	 * Keeps the finalized blocks that will be handed to the archiver, unless these have been discarded already.
+	 */
+	private void retainFinalizedBlocks(List<UUID> finalizedIds) {
+		if (archiver.isEmpty() || !blockFinalizer.isPruningFinalized())
+			return;
+		Set<UUID> keptFinalized = blockFinalizer.getFinalizedIds();
+		for (UUID id : finalizedIds) {
+			BlockmessBlock block = scheduledBlocks.get(id);
+			if (block != null && keptFinalized.contains(id))
+				retainedFinalized.put(id, block);
+		}
+	}
+
+	/**
+	 * Hands a block discarded by the {@link BlockFinalizer} to the archiver.
+	 * <p>A block finalized in the same call that discards it has not been retained yet, but is still scheduled.</p>
+	 */
+	private void archivePrunedBlock(BlockchainNode pruned) {
+		BlockmessBlock block = retainedFinalized.remove(pruned.getId());
+		if (block == null)
+			block = scheduledBlocks.get(pruned.getId());
+		if (block == null)
+			logger.debug("Block {} was finalized before the archiver was set and is not archived", pruned.getId());
+		else
+			archiver.get().archiveBlock(block);
+	}
+
 	@Override
 	public Set<UUID> getBlockR() {
 		try {
@@ -186,6 +249,20 @@ public class Blockchain implements Ledger {
 		}
 	}
 
+	/**
+	 * Sets the archiver receiving the finalized blocks outside the window of blocks kept in memory.
+	 * <p>Blocks finalized before the archiver is set, including those restored from a snapshot, are not archived.</p>
+	 */
+	public void setFinalizedBlockArchiver(FinalizedBlockArchiver archiver) {
+		try {
+			lock.writeLock().lock();
+			this.archiver = Optional.of(archiver);
+			blockFinalizer.setPrunedListener(this::archivePrunedBlock);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
 	public int getFinalizedWeight() {
 		return blockFinalizer.getFinalizedWeight();
 	}
@@ -28,8 +28,20 @@ public class BlockchainNode extends ScheduledBlock {
 	 */
 	private final int weight;
 
+	/**
+	 * Weight of the heaviest chain tip that follows this block.
+	 * <p>Maintained by the {@link BlockFinalizer} for the blocks that are not yet finalized.
+	 * Allows verifying whether a block is in the longest chain without traversing the blocks that follow it.</p>
+	 */
+	private int heaviestTipWeight;
+
 	public BlockchainNode(UUID id, Set<UUID> previous, int weight) {
 		super(id, previous);
 		this.weight = weight;
+		this.heaviestTipWeight = weight;
+	}
+
+	void setHeaviestTipWeight(int heaviestTipWeight) {
+		this.heaviestTipWeight = heaviestTipWeight;
 	}
 }
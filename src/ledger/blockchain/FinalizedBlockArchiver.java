@@ -0,0 +1,17 @@
+package ledger.blockchain;
+
+import ledger.blocks.BlockmessBlock;
+
+/**
+ * Receives the finalized blocks that fall outside the window of finalized blocks kept by the {@link BlockFinalizer}.
+ * <p>Allows the blocks to be persisted elsewhere before they are discarded from memory.</p>
+ * <p>The blocks of a {@link Blockchain} are archived in the order they were finalized.</p>
+ */
+public interface FinalizedBlockArchiver {
+
+	/**
+	 * @param block The block discarded from memory, from which its Chain and rank can be obtained.
+	 */
+	void archiveBlock(BlockmessBlock block);
+
+}
@@ -2,6 +2,7 @@ package ledger.blocks;
 
 import broadcastProtocols.BroadcastValue;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import lombok.experimental.Delegate;
 import pt.unl.fct.di.novasys.network.ISerializer;
 import sybilResistantElection.SybilResistantElectionProof;
@@ -58,21 +59,33 @@ public class BlockmessBlockImp implements BlockmessBlock {
 		/**
 		 * First lines copied from the deserializer in LedgerBlockImp because I could not extract that logic.
 		 * <p>Beware of certain bugs if the code in the serializer of LedgerBlockImp is altered.</p>
+		 * <p>The block id is computed from the slices of the buffer holding the fields identifying the block,
+		 * rather than by serializing these fields again.
+		 * Must be kept consistent with {@link #computeBlockId(int, List, byte[], SybilResistantElectionProof, UUID)}.</p>
 		 * @throws IOException When the serializer in {@link LedgerBlockImp} is modified,
 		 * in particular the serialize method, the content being deserialized here may
 		 * be different from the content serialized, and the exception is triggered.
 		 */
 		@Override
 		public BroadcastValue deserialize(ByteBuf in) throws IOException {
+			ByteBuf weightBytes = in.slice(in.readerIndex(), Integer.BYTES);
 			int inherentWeight = in.readInt();
+			int prevsStart = in.readerIndex() + Short.BYTES;
 			List<UUID> prevRefs = BroadcastValue.deserializeUuids(in);
+			ByteBuf prevsBytes = in.slice(prevsStart, in.readerIndex() - prevsStart);
 			ContentList contentList = (ContentList) deserializePojo(in);
+			int proofStart = in.readerIndex() + Short.BYTES;
 			SybilResistantElectionProof proof = (SybilResistantElectionProof) deserializePojo(in);
+			ByteBuf proofBytes = in.slice(proofStart, in.readerIndex() - proofStart);
 			List<ValidatorSignature> validatorSignatures = LedgerBlockImp.deserializeValidatorSignatures(in);
+			ByteBuf destinationBytes = in.slice(in.readerIndex(), 2 * Long.BYTES);
 			UUID destinationChain = deserializeDestinationChain(in);
 			long currentRank = in.readLong();
 			long nextRank = in.readLong();
-			return new BlockmessBlockImp(inherentWeight, prevRefs, contentList,
+			ByteBuf contentRoot = Unpooled.wrappedBuffer(contentList.getContentHash());
+			UUID blockId = CryptographicUtils.uuidFromHash(CryptographicUtils.hashByteBufs(
+					weightBytes, prevsBytes, contentRoot, proofBytes, destinationBytes));
+			return new BlockmessBlockImp(blockId, inherentWeight, prevRefs, contentList,
 					proof, validatorSignatures, destinationChain, currentRank, nextRank);
 		}
 
@@ -97,38 +110,43 @@ public class BlockmessBlockImp implements BlockmessBlock {
 	public BlockmessBlockImp(int inherentWeight, List<UUID> prevRefs, ContentList contentList,
 							 SybilResistantElectionProof proof, KeyPair proposer, UUID destinationChain, long currentRank, long nextRank)
 			throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, IOException {
-		UUID blockId = computeBlockId(inherentWeight, prevRefs, contentList, proof, destinationChain);
+		UUID blockId = computeBlockId(inherentWeight, prevRefs, contentList.getContentHash(), proof, destinationChain);
 		this.ledgerBlock = new LedgerBlockImp(blockId, inherentWeight, prevRefs, contentList, proof, proposer, ID);
 		this.destinationChain = destinationChain;
 		this.currentRank = currentRank;
 		this.nextRank = nextRank;
 	}
 
-	private UUID computeBlockId(int inherentWeight, List<UUID> prevRefs, ContentList contentList,
-								SybilResistantElectionProof proof, UUID destinationChain) throws IOException {
-		byte[] blockBytes = computeBlockBytes(inherentWeight, prevRefs, contentList, proof, destinationChain);
-		return CryptographicUtils.generateUUIDFromBytes(blockBytes);
-	}
-
-	private byte[] computeBlockBytes(int inherentWeight, List<UUID> prevRefs, ContentList contentList,
-									 SybilResistantElectionProof proof, UUID destinationChain) throws IOException {
+	/**
+	 * Computes the id of a block from the fields identifying it.
+	 * <p>The content is represented by the root of the Merkle tree of the hashes of its operations,
+	 * so that the id commits to the content root.
+	 * Clients can then verify that an operation is in the block with the id, its header fields and a Merkle proof,
+	 * without obtaining the whole content.</p>
+	 */
+	public static UUID computeBlockId(int inherentWeight, List<UUID> prevRefs, byte[] contentRoot,
+									  SybilResistantElectionProof proof, UUID destinationChain) throws IOException {
 		int bufferSize = Integer.BYTES
 				+ prevRefs.size() * 2 * Long.BYTES
-				+ contentList.getSerializedSize()
+				+ contentRoot.length
 				+ proof.getSerializedSize()
 				+ 2 * Long.BYTES;
-		ByteBuf in = LedgerBlockImp.getLedgerBlockByteBuf(bufferSize, inherentWeight, prevRefs, contentList, proof);
-		in.writeLong(destinationChain.getMostSignificantBits());
-		in.writeLong(destinationChain.getLeastSignificantBits());
-		return in.array();
+		ByteBuf blockBytes = Unpooled.buffer(bufferSize);
+		blockBytes.writeInt(inherentWeight);
+		for (UUID prev : prevRefs) {
+			blockBytes.writeLong(prev.getMostSignificantBits());
+			blockBytes.writeLong(prev.getLeastSignificantBits());
+		}
+		blockBytes.writeBytes(contentRoot);
+		proof.getSerializer().serialize(proof, blockBytes);
+		blockBytes.writeLong(destinationChain.getMostSignificantBits());
+		blockBytes.writeLong(destinationChain.getLeastSignificantBits());
+		return CryptographicUtils.uuidFromHash(CryptographicUtils.hashByteBufs(blockBytes));
 	}
 
-
-	private BlockmessBlockImp(int inherentWeight, List<UUID> prevRefs, ContentList contentList,
+	private BlockmessBlockImp(UUID blockId, int inherentWeight, List<UUID> prevRefs, ContentList contentList,
 							  SybilResistantElectionProof proof, List<ValidatorSignature> validatorSignatures, UUID destinationChain,
-							  long currentRank, long nextRank)
-			throws IOException {
-		UUID blockId = computeBlockId(inherentWeight, prevRefs, contentList, proof, destinationChain);
+							  long currentRank, long nextRank) {
 		this.ledgerBlock = new LedgerBlockImp(blockId, inherentWeight, prevRefs, contentList, proof, validatorSignatures, ID);
 		this.destinationChain = destinationChain;
 		this.currentRank = currentRank;
@@ -6,13 +6,19 @@ import cmux.AppOperation;
 import io.netty.buffer.ByteBuf;
 import lombok.Getter;
 import pt.unl.fct.di.novasys.network.ISerializer;
-import utils.merkleTree.MerkleRoot;
+import utils.merkleTree.FlatMerkleBuilder;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * The operations in a block.
+ * <p>The list is immutable, and thus its Merkle root and serialized size are computed at most once,
+ * and shared by every component using them.</p>
+ */
 public class ContentList extends BroadcastValueAbstract {
 
     public static final short ID = 3920;
@@ -35,10 +41,10 @@ public class ContentList extends BroadcastValueAbstract {
         @Override
         public BroadcastValue deserialize(ByteBuf in) throws IOException {
             int numElems = in.readInt();
-            List<AppOperation> contentLst = new ArrayList<>(numElems);
+            Builder builder = new Builder(numElems);
             for (int i = 0; i < numElems; i++)
-                contentLst.add(deserializeElem(in));
-            return new ContentList(contentLst);
+                builder.add(deserializeElem(in));
+            return builder.build();
         }
 
         private AppOperation deserializeElem(ByteBuf in) throws IOException {
@@ -51,16 +57,40 @@ public class ContentList extends BroadcastValueAbstract {
     @Getter
     private final List<AppOperation> contentList;
 
+    private final int serializedSize;
+
+    private volatile byte[] contentHash;
+
     public ContentList(List<AppOperation> contentList) {
+        this(List.copyOf(contentList), computeSerializedSize(contentList));
+    }
+
+    private ContentList(List<AppOperation> contentList, int serializedSize) {
         super(ID);
         this.contentList = contentList;
+        this.serializedSize = serializedSize;
     }
 
+    private static int computeSerializedSize(List<AppOperation> contentList) {
+        int accum = 0;
+        for (AppOperation elem : contentList)
+            accum += elem.getSerializedSize();
+        return accum;
+    }
+
+    /**
+     * @return The root of the Merkle tree of the operations' hashes. Computed the first time it is requested.
+     * <p>The array returned is shared and must not be modified.</p>
+     */
     public byte[] getContentHash() {
-        List<byte[]> contentHashes = contentList.stream()
-                .map(AppOperation::getHashVal)
-                .collect(Collectors.toList());
-        return new MerkleRoot(contentHashes).getHashValue();
+        byte[] res = contentHash;
+        if (res == null) {
+            List<byte[]> contentHashes = contentList.stream()
+                    .map(AppOperation::getHashVal)
+                    .collect(Collectors.toList());
+            contentHash = res = FlatMerkleBuilder.computeRoot(contentHashes);
+        }
+        return res;
     }
 
     @Override
@@ -69,10 +99,46 @@ public class ContentList extends BroadcastValueAbstract {
     }
 
     public int getSerializedSize() {
-        int accum = 0;
-        for (AppOperation elem : contentList)
-            accum += elem.getSerializedSize();
-        return accum;
+        return serializedSize;
+    }
+
+    /**
+     * Builds a {@link ContentList} one operation at a time, keeping track of its serialized size.
+     */
+    public static class Builder {
+
+        private final List<AppOperation> contentList;
+
+        private int serializedSize = 0;
+
+        public Builder() {
+            this.contentList = new ArrayList<>();
+        }
+
+        public Builder(int expectedSize) {
+            this.contentList = new ArrayList<>(expectedSize);
+        }
+
+        public Builder add(AppOperation operation) {
+            contentList.add(operation);
+            serializedSize += operation.getSerializedSize();
+            return this;
+        }
+
+        /**
+         * @return The serialized size of the {@link ContentList} with the operations added so far.
+         */
+        public int getSerializedSize() {
+            return serializedSize;
+        }
+
+        /**
+         * <p>The builder must not be used after the {@link ContentList} is built.</p>
+         */
+        public ContentList build() {
+            return new ContentList(Collections.unmodifiableList(contentList), serializedSize);
+        }
+
     }
 
 }
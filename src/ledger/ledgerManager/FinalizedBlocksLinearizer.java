@@ -0,0 +1,204 @@
+package ledger.ledgerManager;
+
+import ledger.blocks.BlockmessBlock;
+import ledger.ledgerManager.nodes.BlockmessChain;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Indexes the Chains in the {@link LedgerManager} by the rank of the next finalized block they have buffered and by
+ * their next rank.
+ * <p>Allows the linearization of the finalized blocks to find the confirmation bar and the next Chain with a block to
+ * deliver without polling every Chain, updating the index only for the Chains whose finalized buffer changed.</p>
+ * <p>Among the Chains with blocks under the confirmation bar, the Chains are chosen according to the order in which
+ * they were added to the {@link LedgerManager}.
+ * This is the order in which the Chains were traversed when the linearization polled every Chain,
+ * ensuring the resulting total order of the blocks is the same.</p>
+ * <p>The Chains' buffers are updated by the threads processing the blocks, which only record the change here.
+ * The index itself is only accessed by the thread linearizing the blocks.</p>
+ */
+class FinalizedBlocksLinearizer {
+
+	private static final long CURSOR_START = -1;
+
+	private final Map<UUID, ChainEntry> entries = new HashMap<>();
+
+	private final NavigableSet<ChainEntry> byNextRank = new TreeSet<>(
+			comparingLong(ChainEntry::getNextRank).thenComparingLong(ChainEntry::getOrder));
+
+	private final NavigableSet<ChainEntry> byHeadRank = new TreeSet<>(
+			comparingLong(ChainEntry::getHeadRank).thenComparingLong(ChainEntry::getOrder));
+
+	/**
+	 * Chains with a block that can be delivered under the current confirmation bar, ordered by insertion.
+	 */
+	private final NavigableMap<Long, ChainEntry> deliverable = new TreeMap<>();
+
+	/**
+	 * Chains whose finalized buffer was modified by other threads since their entries were last updated.
+	 */
+	private final Set<UUID> updatedChains = ConcurrentHashMap.newKeySet();
+
+	private long nextOrder = 0;
+
+	private long confirmBar = Long.MIN_VALUE;
+
+	/**
+	 * Order of the last Chain that delivered a block in the current round.
+	 */
+	private long cursor = CURSOR_START;
+
+	void addChain(BlockmessChain chain) {
+		if (entries.containsKey(chain.getChainId()))
+			return;
+		ChainEntry entry = new ChainEntry(chain, nextOrder++);
+		entries.put(chain.getChainId(), entry);
+		updateEntry(entry);
+	}
+
+	void removeChain(UUID chainId) {
+		ChainEntry entry = entries.remove(chainId);
+		if (entry != null)
+			removeFromIndexes(entry);
+	}
+
+	/**
+	 * Records that the finalized blocks buffered by a Chain have changed.
+	 * <p>Can be called from any thread.</p>
+	 */
+	void markUpdated(UUID chainId) {
+		updatedChains.add(chainId);
+	}
+
+	/**
+	 * Updates the entry of a Chain whose buffer was modified by the thread linearizing the blocks.
+	 */
+	void refreshChain(UUID chainId) {
+		ChainEntry entry = entries.get(chainId);
+		if (entry != null)
+			updateEntry(entry);
+	}
+
+	/**
+	 * @return The lowest next rank among the Chains, or the previous bar if there are no Chains.
+	 */
+	long computeConfirmBar(long previousBar) {
+		processUpdates();
+		return byNextRank.isEmpty() ? previousBar : byNextRank.first().getNextRank();
+	}
+
+	/**
+	 * Starts a new round of deliveries, where the Chains deliver blocks with a rank lower than the confirmation bar.
+	 */
+	void startRound(long confirmBar) {
+		processUpdates();
+		this.confirmBar = confirmBar;
+		this.cursor = CURSOR_START;
+		deliverable.clear();
+		for (ChainEntry entry : byHeadRank) {
+			if (entry.getHeadRank() >= confirmBar)
+				break;
+			deliverable.put(entry.getOrder(), entry);
+		}
+	}
+
+	/**
+	 * Finds the next Chain, after the last Chain that delivered a block, with a block under the confirmation bar.
+	 */
+	Optional<BlockmessChain> nextChainToDeliver() {
+		processUpdates();
+		Map.Entry<Long, ChainEntry> next = deliverable.higherEntry(cursor);
+		if (next == null)
+			return Optional.empty();
+		cursor = next.getKey();
+		return Optional.of(next.getValue().getChain());
+	}
+
+	/**
+	 * Restarts the search for Chains with blocks to deliver from the first Chain.
+	 */
+	void resetCursor() {
+		cursor = CURSOR_START;
+	}
+
+	private void processUpdates() {
+		Iterator<UUID> it = updatedChains.iterator();
+		while (it.hasNext()) {
+			UUID chainId = it.next();
+			it.remove();
+			refreshChain(chainId);
+		}
+	}
+
+	private void updateEntry(ChainEntry entry) {
+		removeFromIndexes(entry);
+		BlockmessChain chain = entry.getChain();
+		BlockmessBlock head = chain.peekFinalized();
+		entry.setNextRank(chain.getNextRank());
+		entry.setHead(head);
+		byNextRank.add(entry);
+		if (head != null) {
+			byHeadRank.add(entry);
+			if (head.getBlockRank() < confirmBar)
+				deliverable.put(entry.getOrder(), entry);
+		}
+	}
+
+	private void removeFromIndexes(ChainEntry entry) {
+		byNextRank.remove(entry);
+		if (entry.hasHead())
+			byHeadRank.remove(entry);
+		deliverable.remove(entry.getOrder());
+	}
+
+	private static class ChainEntry {
+
+		private final BlockmessChain chain;
+
+		private final long order;
+
+		private long nextRank;
+
+		private BlockmessBlock head;
+
+		private long headRank;
+
+		ChainEntry(BlockmessChain chain, long order) {
+			this.chain = chain;
+			this.order = order;
+		}
+
+		BlockmessChain getChain() {
+			return chain;
+		}
+
+		long getOrder() {
+			return order;
+		}
+
+		long getNextRank() {
+			return nextRank;
+		}
+
+		void setNextRank(long nextRank) {
+			this.nextRank = nextRank;
+		}
+
+		boolean hasHead() {
+			return head != null;
+		}
+
+		long getHeadRank() {
+			return headRank;
+		}
+
+		void setHead(BlockmessBlock head) {
+			this.head = head;
+			this.headRank = head == null ? Long.MAX_VALUE : head.getBlockRank();
+		}
+	}
+
+}
@@ -2,12 +2,15 @@ package ledger.ledgerManager;
 
 import applicationInterface.GlobalProperties;
 import cmux.AppOperation;
+import io.netty.buffer.ByteBuf;
 import ledger.Ledger;
 import ledger.LedgerObserver;
+import ledger.blockStore.BlockStore;
 import ledger.blockchain.BlockFinalizer;
 import ledger.blocks.BlockmessBlock;
 import ledger.ledgerManager.exceptions.LedgerTreeNodeDoesNotExistException;
 import ledger.ledgerManager.nodes.BlockmessChain;
+import ledger.ledgerManager.nodes.ChainTreeSnapshot;
 import ledger.ledgerManager.nodes.ParentTreeNode;
 import ledger.ledgerManager.nodes.ReferenceNode;
 import lombok.Getter;
@@ -16,11 +19,13 @@ import operationMapper.OperationMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
+import validators.BlockValidationPipeline;
 import validators.FixedApplicationAwareValidator;
 
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import static java.lang.Integer.parseInt;
@@ -43,8 +48,15 @@ public class LedgerManager implements ParentTreeNode, Ledger, LedgerObserver, Op
 	private final int minNumChains;
 	private final int maxNumChains;
 	private final BlockingQueue<Object> deliverFinalizedRequests = new LinkedBlockingQueue<>();
+	/**
+	 * Tasks requiring exclusive access to the Chains, executed by the thread delivering the finalized blocks.
+	 */
+	private final Queue<Runnable> deliveryThreadTasks = new ConcurrentLinkedQueue<>();
 
 	private final List<ChainChangeObserver> chainChangeObservers = new LinkedList<>();
+	private final FinalizedBlocksLinearizer linearizer = new FinalizedBlocksLinearizer();
+	private final Optional<BlockStore> blockStore = BlockStore.getSingleton();
+	@Getter
 	private long confirmBar = 0;
 
 	private LedgerManager() {
@@ -64,9 +76,26 @@ public class LedgerManager implements ParentTreeNode, Ledger, LedgerObserver, Op
 		new Thread(this::processBlockDeliveries).start();
 	}
 
+	/**
+	 * Restores the Chains and the confirmation bar from a snapshot.
+	 * <p>Finalized blocks are only delivered once the LedgerManager is installed by {@link #restoreSingleton(LedgerManager)}.</p>
+	 */
+	private LedgerManager(ByteBuf snapshot) throws IOException {
+		Properties props = GlobalProperties.getProps();
+		this.minNumChains = parseInt(props.getProperty("minNumChains", "1"));
+		this.maxNumChains = parseInt(props.getProperty("maxNumChains", String.valueOf(Integer.MAX_VALUE)));
+		this.finalizedWeight = parseInt(props.getProperty("finalizedWeight", String.valueOf(BlockFinalizer.FINALIZED_WEIGHT)));
+		this.confirmBar = snapshot.readLong();
+		for (BlockmessChain chain : ChainTreeSnapshot.deserialize(snapshot, this, props)) {
+			putChain(chain);
+			chain.attachObserver(this);
+		}
+		logger.info("Restored {} Chains from snapshot", chains.size());
+	}
+
 	private void initializeChains(BlockmessChain origin, int initialNumChains) {
 		int seedCounter = 1;
-		this.chains.put(origin.getChainId(), origin);
+		putChain(origin);
 		List<BlockmessChain> prevRoundChains = List.of(origin);
 		while (chains.size() < initialNumChains) {
 			Iterator<BlockmessChain> chainIterator = prevRoundChains.iterator();
@@ -90,7 +119,7 @@ public class LedgerManager implements ParentTreeNode, Ledger, LedgerObserver, Op
 		while (!toCreateChains.isEmpty()) {
 			try {
 				BlockmessChain chain = toCreateChains.take();
-				chains.put(chain.getChainId(), chain);
+				putChain(chain);
 				chain.attachObserver(this);
 				logger.info("Creating Chain: {}", chain.getChainId());
 			} catch (InterruptedException e) {
@@ -99,36 +128,96 @@ public class LedgerManager implements ParentTreeNode, Ledger, LedgerObserver, Op
 		}
 	}
 
+	private void putChain(BlockmessChain chain) {
+		chains.put(chain.getChainId(), chain);
+		linearizer.addChain(chain);
+	}
+
+	private void removeChain(UUID chainId) {
+		chains.remove(chainId);
+		linearizer.removeChain(chainId);
+	}
+
 	private void processBlockDeliveries() {
 		while (true) {
 			try {
 				deliverFinalizedRequests.take();
 				deliverFinalizedRequests.clear();
 				deliverFinalizedBlocksAsync();
+				runDeliveryThreadTasks();
 			} catch (InterruptedException e) {
 				e.printStackTrace();
 			}
 		}
 	}
 
+	private void runDeliveryThreadTasks() {
+		Runnable task;
+		while ((task = deliveryThreadTasks.poll()) != null)
+			task.run();
+	}
+
 	public void deliverFinalizedBlocksAsync() {
-		int initialNumChains = chains.size();
-		removeObsoleteChains();
-		addNewChains();
-		int finalNumChains = chains.size();
-		if (finalNumChains != initialNumChains)
-			chainChangeObservers.forEach(observer -> observer.notifyChangesChains(finalNumChains));
+		updateChains();
 		for (BlockmessChain chain : chains.values())
 			logger.debug("Chain {} has {} finalized blocks pending, minNextRank is {}, next block has rank {}",
 					chain.getChainId(), chain.getNumFinalizedPending(), chain.getNextRank(),
 					chain.hasFinalized() ? chain.peekFinalized().getBlockRank() : -1);
 		List<BlockmessBlock> linearizedFinalized = linearizeFinalizedBlocksInChains();
 		assert linearizedFinalized != null;
+		blockStore.ifPresent(store -> linearizedFinalized.forEach(store::storeBlock));
 		List<UUID> linearizedUUID = linearizedFinalized.stream().map(BlockmessBlock::getBlockId).collect(toList());
 		for (var observer : observers)
 			observer.deliverFinalizedBlocks(linearizedUUID, emptySet());
 	}
 
+	private void updateChains() {
+		int initialNumChains = chains.size();
+		removeObsoleteChains();
+		addNewChains();
+		int finalNumChains = chains.size();
+		if (finalNumChains != initialNumChains)
+			chainChangeObservers.forEach(observer -> observer.notifyChangesChains(finalNumChains));
+	}
+
+	/**
+	 * Executes a task in the thread delivering the finalized blocks, once it finishes the current delivery.
+	 * <p>While the task executes, no blocks are delivered and the Chains are not modified.</p>
+	 */
+	public void executeInDeliveryThread(Runnable task) {
+		deliveryThreadTasks.add(task);
+		tryToPlaceFinalizationRequest();
+	}
+
+	/**
+	 * Serializes the confirmation bar and the Chains.
+	 * <p>Must be called from the thread delivering the finalized blocks, through {@link #executeInDeliveryThread(Runnable)}.</p>
+	 */
+	public void serializeSnapshot(ByteBuf out) throws IOException {
+		updateChains();
+		out.writeLong(confirmBar);
+		ChainTreeSnapshot.serialize(List.copyOf(chains.values()), out);
+	}
+
+	/**
+	 * Decodes the state serialized by {@link #serializeSnapshot(ByteBuf)} into a new LedgerManager,
+	 * which is neither the singleton nor delivers finalized blocks until it is installed.
+	 * <p>Should the snapshot be malformed, the decoded state is simply discarded.</p>
+	 */
+	public static LedgerManager decodeSnapshot(ByteBuf snapshot) throws IOException {
+		return new LedgerManager(snapshot);
+	}
+
+	/**
+	 * Replaces the singleton with a LedgerManager decoded by {@link #decodeSnapshot(ByteBuf)},
+	 * and starts delivering its finalized blocks.
+	 * <p>Must be called before the singleton is first accessed.</p>
+	 */
+	public static void restoreSingleton(LedgerManager restored) {
+		singleton = restored;
+		new Thread(restored::processBlockDeliveries).start();
+	}
+
 	private List<BlockmessBlock> linearizeFinalizedBlocksInChains() {
 		try {
 			return tryToLinearizeFinalizedBlocksInChains();
@@ -142,7 +231,7 @@ public class LedgerManager implements ParentTreeNode, Ledger, LedgerObserver, Op
 		List<BlockmessBlock> res = new LinkedList<>();
 		List<BlockmessBlock> confirmed;
 		do {
-			confirmBar = computeNextConfirmBar();
+			confirmBar = linearizer.computeConfirmBar(confirmBar);
 			confirmed = confirmBlocksWithRankEqualToConfirmationBar();
 			res.addAll(confirmed);
 		} while (!confirmed.isEmpty());
@@ -151,22 +240,21 @@ public class LedgerManager implements ParentTreeNode, Ledger, LedgerObserver, Op
 
 	private List<BlockmessBlock> confirmBlocksWithRankEqualToConfirmationBar() throws LedgerTreeNodeDoesNotExistException {
 		List<BlockmessBlock> res = new LinkedList<>();
-		Iterator<BlockmessChain> chainIterator = chains.values().iterator();
-		while (chainIterator.hasNext()) {
-			Optional<BlockmessChain> chainOp = findNextChainToDeliver(chainIterator);
-			if (chainOp.isPresent()) {
-				BlockmessChain chain = chainOp.get();
-				BlockmessBlock nextDeliver = chain.deliverChainBlock();
-				res.add(nextDeliver);
-				logger.info("Finalizing block {} in Chain {}", nextDeliver.getBlockId(), chain.getChainId());
-				logger.debug("Number overloaded recent finalized blocks: {}", chain.getNumOverloaded());
-				logger.debug("Number underloaded recent finalized blocks: {}", chain.getNumUnderloaded());
-				if (chain.shouldSpawn() && countReferencedPermanent() <= maxNumChains - 2)
-					chain.spawnChildren(nextDeliver.getBlockId());
-				else {
-					discardSuccessiveChains();
-					chainIterator = chains.values().iterator();
-				}
+		linearizer.startRound(confirmBar);
+		Optional<BlockmessChain> chainOp;
+		while ((chainOp = linearizer.nextChainToDeliver()).isPresent()) {
+			BlockmessChain chain = chainOp.get();
+			BlockmessBlock nextDeliver = chain.deliverChainBlock();
+			linearizer.refreshChain(chain.getChainId());
+			res.add(nextDeliver);
+			logger.info("Finalizing block {} in Chain {}", nextDeliver.getBlockId(), chain.getChainId());
+			logger.debug("Number overloaded recent finalized blocks: {}", chain.getNumOverloaded());
+			logger.debug("Number underloaded recent finalized blocks: {}", chain.getNumUnderloaded());
+			if (chain.shouldSpawn() && countReferencedPermanent() <= maxNumChains - 2)
+				chain.spawnChildren(nextDeliver.getBlockId());
+			else {
+				discardSuccessiveChains();
+				linearizer.resetCursor();
 			}
 		}
 		return res;
@@ -188,7 +276,7 @@ public class LedgerManager implements ParentTreeNode, Ledger, LedgerObserver, Op
 					logger.info("Merging Chains: {}", toRemove);
 					mergeFound = true;
 				}
-			toRemove.forEach(chains::remove);
+			toRemove.forEach(this::removeChain);
 		}
 		toResetSamples.forEach(BlockmessChain::resetSamples);
 	}
@@ -211,31 +299,14 @@ public class LedgerManager implements ParentTreeNode, Ledger, LedgerObserver, Op
 		return chains.entrySet().iterator().next().getValue();
 	}
 
-	private Optional<BlockmessChain> findNextChainToDeliver(Iterator<BlockmessChain> chainIterator) {
-		while (chainIterator.hasNext()) {
-			BlockmessChain chain = chainIterator.next();
-			BlockmessBlock headBlock = chain.peekFinalized();
-			if (headBlock != null && headBlock.getBlockRank() < confirmBar)
-				return Optional.of(chain);
-		}
-		return Optional.empty();
-	}
-
 	private int countReferencedPermanent() {
 		return chains.values().stream().mapToInt(BlockmessChain::countReferencedPermanent).sum() + 1;
 	}
 
-	private long computeNextConfirmBar() {
-		OptionalLong min = chains.values().stream()
-				.mapToLong(BlockmessChain::getNextRank)
-				.min();
-		return min.orElse(confirmBar);
-	}
-
 	private void removeObsoleteChains() {
 		while (!toRemoveChains.isEmpty()) {
 			try {
-				chains.remove(toRemoveChains.take());
+				removeChain(toRemoveChains.take());
 			} catch (InterruptedException e) {
 				e.printStackTrace();
 			}
@@ -264,10 +335,20 @@ public class LedgerManager implements ParentTreeNode, Ledger, LedgerObserver, Op
 		return chains.values().iterator().next().getBlockR();
 	}
 
+	/**
+	 * Submits a block to its destination Chain once it has been validated by the {@link BlockValidationPipeline}.
+	 */
 	@Override
 	public void submitBlock(BlockmessBlock block) {
-		UUID destinationChain = block.getDestinationChain();
-		chains.get(destinationChain).submitBlock(block);
+		BlockValidationPipeline.getSingleton().submitBlock(block, this::submitValidatedBlock);
+	}
+
+	private void submitValidatedBlock(BlockmessBlock block) {
+		BlockmessChain destinationChain = chains.get(block.getDestinationChain());
+		if (destinationChain != null)
+			destinationChain.submitBlock(block);
+		else
+			logger.info("Received block {} for unknown Chain {}", block.getBlockId(), block.getDestinationChain());
 	}
 
 	@Override
@@ -326,6 +407,11 @@ public class LedgerManager implements ParentTreeNode, Ledger, LedgerObserver, Op
 		return this;
 	}
 
+	@Override
+	public void notifyFinalizedBuffered(UUID chainId) {
+		linearizer.markUpdated(chainId);
+	}
+
 	@Override
 	public void deliverNonFinalizedBlock(BlockmessBlock nonFinalized, int weight) {
 		for (LedgerObserver observer : observers)
@@ -0,0 +1,77 @@
+package ledger.ledgerManager.loadEstimators;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Properties;
+
+import static java.lang.Double.parseDouble;
+import static java.lang.Integer.parseInt;
+
+/**
+ * Estimates the load of a Chain with an exponentially weighted moving average of the size of the content in its blocks.
+ * <p>Recent blocks weigh more in the average than in the majority vote of the {@link MajorityLoadEstimator},
+ * allowing the Chains to spawn or merge sooner after a change in the load of the system.</p>
+ * <p>The number of overloaded and underloaded blocks is still counted, but only for reporting.</p>
+ */
+public class EwmaLoadEstimator extends MajorityLoadEstimator {
+
+	/**
+	 * Weight of the most recent block in the average.
+	 */
+	private final double smoothingFactor;
+	/**
+	 * Number of blocks that must be recorded before the Chain is deemed overloaded or underloaded.
+	 */
+	private final int minSamples;
+
+	private double averageContentSize = 0;
+
+	private int numSamples = 0;
+
+	public EwmaLoadEstimator(Properties props) {
+		super(props);
+		this.smoothingFactor = parseDouble(props.getProperty("loadSmoothingFactor",
+				String.valueOf(2.0 / (blocksSampleSize + 1))));
+		this.minSamples = parseInt(props.getProperty("loadMinSamples", "4"));
+	}
+
+	@Override
+	public synchronized void recordBlock(int contentSize) {
+		super.recordBlock(contentSize);
+		averageContentSize = numSamples == 0 ? contentSize
+				: smoothingFactor * contentSize + (1 - smoothingFactor) * averageContentSize;
+		numSamples++;
+	}
+
+	@Override
+	public synchronized boolean isOverloaded() {
+		return numSamples >= minSamples && averageContentSize > maxBlockSize * overloadThreshold;
+	}
+
+	@Override
+	public synchronized boolean isUnderloaded() {
+		return numSamples >= minSamples && averageContentSize < maxBlockSize * underloadedThreshold;
+	}
+
+	@Override
+	public synchronized void reset() {
+		super.reset();
+		averageContentSize = 0;
+		numSamples = 0;
+	}
+
+	@Override
+	public synchronized void serialize(ByteBuf out) {
+		super.serialize(out);
+		out.writeDouble(averageContentSize);
+		out.writeInt(numSamples);
+	}
+
+	@Override
+	public synchronized void deserialize(ByteBuf in) {
+		super.deserialize(in);
+		averageContentSize = in.readDouble();
+		numSamples = in.readInt();
+	}
+
+}
@@ -0,0 +1,58 @@
+package ledger.ledgerManager.loadEstimators;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Properties;
+
+/**
+ * Estimates the load of a Chain from the blocks it delivers, determining whether it should spawn new Chains or
+ * merge into its parent.
+ * <p>The estimate must depend only on the blocks delivered,
+ * because the decision to spawn or merge Chains must be the same in every replica.</p>
+ */
+public interface LoadEstimator {
+
+	/**
+	 * Records the size of the content in a block delivered by the Chain.
+	 */
+	void recordBlock(int contentSize);
+
+	boolean isOverloaded();
+
+	boolean isUnderloaded();
+
+	/**
+	 * @return The number of recent blocks whose content exceeded the overload threshold.
+	 */
+	int getNumOverloaded();
+
+	/**
+	 * @return The number of recent blocks whose content did not exceed the underload threshold.
+	 */
+	int getNumUnderloaded();
+
+	/**
+	 * Discards the blocks recorded, usually because the Chain spawned or merged Chains.
+	 */
+	void reset();
+
+	void serialize(ByteBuf out);
+
+	void deserialize(ByteBuf in);
+
+	/**
+	 * Creates the estimator selected in the properties with the loadEstimator parameter.
+	 */
+	static LoadEstimator fromProperties(Properties props) {
+		String estimator = props.getProperty("loadEstimator", "majority");
+		switch (estimator) {
+			case "majority":
+				return new MajorityLoadEstimator(props);
+			case "ewma":
+				return new EwmaLoadEstimator(props);
+			default:
+				throw new IllegalArgumentException("Unknown load estimator: " + estimator);
+		}
+	}
+
+}
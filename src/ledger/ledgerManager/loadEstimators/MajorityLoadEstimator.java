@@ -0,0 +1,95 @@
+package ledger.ledgerManager.loadEstimators;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Properties;
+
+import static java.lang.Float.parseFloat;
+import static java.lang.Integer.parseInt;
+
+/**
+ * Deems a Chain overloaded (or underloaded) when most of the last blockSampleSize blocks delivered were.
+ * <p>The greater the sample size, the more resilient it is towards adversarial intents,
+ * but the least sensible it is to adapt to changes in the load of the system.</p>
+ */
+public class MajorityLoadEstimator implements LoadEstimator {
+
+	/**
+	 * Number of samples used to determine if the Chain should spawn new Chains or merge into its parent.
+	 */
+	protected final int blocksSampleSize;
+	/**
+	 * The maximum allowed size for a block
+	 */
+	protected final int maxBlockSize;
+	/**
+	 * The percentage of the maxBlockSize size a block must exceed in order to be deemed overloaded.
+	 */
+	protected final float overloadThreshold;
+	/**
+	 * The percentage of the maxBlockSize size a block mustn't exceed in order to be deemed underloaded.
+	 */
+	protected final float underloadedThreshold;
+	/**
+	 * Within the last blocksSampleSize blocks delivered to the application, which were overloaded.
+	 */
+	private final SlidingWindowCounter overloadedBlocksSample;
+	/**
+	 * Within the last blocksSampleSize blocks delivered to the application, which were underloaded.
+	 */
+	private final SlidingWindowCounter underloadedBlocksSample;
+
+	public MajorityLoadEstimator(Properties props) {
+		this.overloadThreshold = parseFloat(props.getProperty("overloadThreshold", "0.9f"));
+		this.underloadedThreshold = parseFloat(props.getProperty("underloadedThreshold", "0.4f"));
+		this.blocksSampleSize = parseInt(props.getProperty("blockSampleSize", "15"));
+		this.maxBlockSize = parseInt(props.getProperty("maxBlockSize", "21000"));
+		this.overloadedBlocksSample = new SlidingWindowCounter(blocksSampleSize);
+		this.underloadedBlocksSample = new SlidingWindowCounter(blocksSampleSize);
+	}
+
+	@Override
+	public void recordBlock(int contentSize) {
+		overloadedBlocksSample.add(contentSize > maxBlockSize * overloadThreshold);
+		underloadedBlocksSample.add(contentSize < maxBlockSize * underloadedThreshold);
+	}
+
+	@Override
+	public boolean isOverloaded() {
+		return getNumOverloaded() > blocksSampleSize / 2;
+	}
+
+	@Override
+	public boolean isUnderloaded() {
+		return getNumUnderloaded() > blocksSampleSize / 2;
+	}
+
+	@Override
+	public int getNumOverloaded() {
+		return overloadedBlocksSample.getCount();
+	}
+
+	@Override
+	public int getNumUnderloaded() {
+		return underloadedBlocksSample.getCount();
+	}
+
+	@Override
+	public void reset() {
+		overloadedBlocksSample.clear();
+		underloadedBlocksSample.clear();
+	}
+
+	@Override
+	public void serialize(ByteBuf out) {
+		overloadedBlocksSample.serialize(out);
+		underloadedBlocksSample.serialize(out);
+	}
+
+	@Override
+	public void deserialize(ByteBuf in) {
+		overloadedBlocksSample.deserialize(in);
+		underloadedBlocksSample.deserialize(in);
+	}
+
+}
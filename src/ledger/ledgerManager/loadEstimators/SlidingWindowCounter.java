@@ -0,0 +1,75 @@
+package ledger.ledgerManager.loadEstimators;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Counts how many of the last samples recorded were true.
+ * <p>The samples are kept in a ring buffer alongside a running count,
+ * so recording a sample and querying the count take constant time.</p>
+ */
+public class SlidingWindowCounter {
+
+	private final boolean[] samples;
+
+	private int next = 0;
+
+	private int size = 0;
+
+	private int count = 0;
+
+	public SlidingWindowCounter(int windowSize) {
+		this.samples = new boolean[Math.max(1, windowSize)];
+	}
+
+	/**
+	 * Records a sample, replacing the oldest one if the window is full.
+	 */
+	public synchronized void add(boolean sample) {
+		if (size == samples.length) {
+			if (samples[next])
+				count--;
+		} else
+			size++;
+		samples[next] = sample;
+		if (sample)
+			count++;
+		next = (next + 1) % samples.length;
+	}
+
+	/**
+	 * @return The number of true samples in the window.
+	 */
+	public synchronized int getCount() {
+		return count;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized void clear() {
+		next = 0;
+		size = 0;
+		count = 0;
+	}
+
+	/**
+	 * Serializes the samples in the window, from the oldest to the most recent.
+	 */
+	public synchronized void serialize(ByteBuf out) {
+		out.writeInt(size);
+		int oldest = (next - size + samples.length) % samples.length;
+		for (int i = 0; i < size; i++)
+			out.writeBoolean(samples[(oldest + i) % samples.length]);
+	}
+
+	/**
+	 * Records the samples serialized by {@link #serialize(ByteBuf)}.
+	 */
+	public void deserialize(ByteBuf in) {
+		int numSamples = in.readInt();
+		for (int i = 0; i < numSamples; i++)
+			add(in.readBoolean());
+	}
+
+}
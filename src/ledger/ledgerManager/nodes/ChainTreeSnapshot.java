@@ -0,0 +1,268 @@
+package ledger.ledgerManager.nodes;
+
+import broadcastProtocols.BroadcastValue;
+import cmux.AppOperation;
+import io.netty.buffer.ByteBuf;
+import ledger.blockchain.Blockchain;
+import ledger.blocks.BlockmessBlock;
+import operationMapper.ComposableOperationMapper;
+import operationMapper.ComposableOperationMapperImp;
+import org.apache.commons.lang3.tuple.Pair;
+import pt.unl.fct.di.novasys.network.ISerializer;
+
+import java.io.IOException;
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Serializes and restores the tree of Chains maintained by the {@link ledger.ledgerManager.LedgerManager}.
+ * <p>The snapshot is composed of the operation mappers, followed by the Chains.
+ * Operation mappers shared by several Chains are serialized once, and the Chains reference them by their position.</p>
+ * <p>For each Chain are serialized the state of its {@link LeafNode}
+ * and the nodes wrapping it, from the outermost to the {@link LeafNode}.
+ * These reference other Chains by their identifiers,
+ * and thus are only rebuilt after every Chain in the snapshot is created.</p>
+ */
+public class ChainTreeSnapshot {
+
+	private static final byte TEMP_NODE = 0;
+
+	private static final byte PERMANENT_NODE = 1;
+
+	private ChainTreeSnapshot() {}
+
+	public static void serialize(Collection<BlockmessChain> chains, ByteBuf out) throws IOException {
+		List<ReferenceNode> references = chains.stream()
+				.map(ReferenceNode.class::cast)
+				.collect(toList());
+		Map<ComposableOperationMapper, Integer> mapperIds = collectMappers(references);
+		serializeMappers(mapperIds, out);
+		out.writeInt(references.size());
+		for (ReferenceNode reference : references)
+			serializeChain(reference, mapperIds, out);
+	}
+
+	private static Map<ComposableOperationMapper, Integer> collectMappers(List<ReferenceNode> references) {
+		Map<ComposableOperationMapper, Integer> mapperIds = new IdentityHashMap<>();
+		for (ReferenceNode reference : references) {
+			mapperIds.putIfAbsent(reference.getLeaf().getOperationMapper(), mapperIds.size());
+			for (BlockmessChain wrapper : getWrappers(reference))
+				if (wrapper instanceof TempChainNode) {
+					var contentStoragePair = ((TempChainNode) wrapper).getContentStoragePair();
+					mapperIds.putIfAbsent(contentStoragePair.getLeft(), mapperIds.size());
+					mapperIds.putIfAbsent(contentStoragePair.getRight(), mapperIds.size());
+				}
+		}
+		return mapperIds;
+	}
+
+	private static void serializeMappers(Map<ComposableOperationMapper, Integer> mapperIds, ByteBuf out)
+			throws IOException {
+		ComposableOperationMapper[] mappers = new ComposableOperationMapper[mapperIds.size()];
+		mapperIds.forEach((mapper, id) -> mappers[id] = mapper);
+		out.writeInt(mappers.length);
+		for (ComposableOperationMapper mapper : mappers) {
+			List<AppOperation> operations = List.copyOf(mapper.getStoredOperations());
+			out.writeInt(operations.size());
+			for (AppOperation operation : operations)
+				AppOperation.serializer.serialize(operation, out);
+		}
+	}
+
+	/**
+	 * @return The nodes wrapping the {@link LeafNode} of a Chain, from the outermost to the innermost.
+	 */
+	private static List<BlockmessChain> getWrappers(ReferenceNode reference) {
+		List<BlockmessChain> wrappers = new ArrayList<>();
+		BlockmessChain current = reference.getNodeState();
+		while (current != reference.getLeaf()) {
+			wrappers.add(current);
+			current = current instanceof TempChainNode ? ((TempChainNode) current).getInner()
+					: ((PermanentChainNode) current).getInner();
+		}
+		return wrappers;
+	}
+
+	private static void serializeChain(ReferenceNode reference, Map<ComposableOperationMapper, Integer> mapperIds,
+									   ByteBuf out) {
+		LeafNode leaf = reference.getLeaf();
+		serializeUuid(leaf.getChainId(), out);
+		out.writeLong(leaf.getMinimumRank());
+		out.writeLong(leaf.getNextRank());
+		out.writeInt(leaf.getDepth());
+		out.writeInt(mapperIds.get(leaf.getOperationMapper()));
+		leaf.serializeSnapshot(out);
+		List<BlockmessChain> wrappers = getWrappers(reference);
+		out.writeInt(wrappers.size());
+		for (BlockmessChain wrapper : wrappers)
+			if (wrapper instanceof TempChainNode)
+				serializeTempNode((TempChainNode) wrapper, mapperIds, out);
+			else
+				serializePermanentNode((PermanentChainNode) wrapper, out);
+	}
+
+	private static void serializeTempNode(TempChainNode node, Map<ComposableOperationMapper, Integer> mapperIds,
+										  ByteBuf out) {
+		out.writeByte(TEMP_NODE);
+		out.writeInt(node.getRootWeight());
+		out.writeInt(node.getChainDepth());
+		out.writeInt(mapperIds.get(node.getContentStoragePair().getLeft()));
+		out.writeInt(mapperIds.get(node.getContentStoragePair().getRight()));
+		out.writeInt(node.getTentativeChains().size());
+		for (var tentative : node.getTentativeChains().entrySet()) {
+			serializeUuid(tentative.getKey(), out);
+			serializeUuid(tentative.getValue().getLeft().getChainId(), out);
+			serializeUuid(tentative.getValue().getRight().getChainId(), out);
+		}
+	}
+
+	private static void serializePermanentNode(PermanentChainNode node, ByteBuf out) {
+		out.writeByte(PERMANENT_NODE);
+		serializeUuid(node.getLft().getChainId(), out);
+		serializeUuid(node.getRgt().getChainId(), out);
+	}
+
+	/**
+	 * Restores the Chains serialized by {@link #serialize(Collection, ByteBuf)}.
+	 * @param treeRoot The node at the root of the tree of Chains, usually the {@link ledger.ledgerManager.LedgerManager}.
+	 * @return The restored Chains, in the order they were serialized.
+	 */
+	public static List<BlockmessChain> deserialize(ByteBuf in, ParentTreeNode treeRoot, Properties props)
+			throws IOException {
+		List<ComposableOperationMapper> mappers = deserializeMappers(in);
+		int numChains = in.readInt();
+		Map<UUID, ReferenceNode> references = new LinkedHashMap<>(numChains);
+		Map<ReferenceNode, List<ByteBuf>> serializedWrappers = new HashMap<>(numChains);
+		for (int i = 0; i < numChains; i++) {
+			ReferenceNode reference = deserializeChain(in, treeRoot, mappers, props);
+			references.put(reference.getChainId(), reference);
+			serializedWrappers.put(reference, readWrappers(in));
+		}
+		for (ReferenceNode reference : references.values())
+			restoreWrappers(reference, serializedWrappers.get(reference), references, mappers, props);
+		return new ArrayList<>(references.values());
+	}
+
+	private static List<ComposableOperationMapper> deserializeMappers(ByteBuf in) throws IOException {
+		int numMappers = in.readInt();
+		List<ComposableOperationMapper> mappers = new ArrayList<>(numMappers);
+		for (int i = 0; i < numMappers; i++) {
+			int numOperations = in.readInt();
+			List<AppOperation> operations = new ArrayList<>(numOperations);
+			for (int j = 0; j < numOperations; j++)
+				operations.add((AppOperation) AppOperation.serializer.deserialize(in));
+			ComposableOperationMapper mapper = new ComposableOperationMapperImp();
+			mapper.submitOperations(operations);
+			mappers.add(mapper);
+		}
+		return mappers;
+	}
+
+	private static ReferenceNode deserializeChain(ByteBuf in, ParentTreeNode treeRoot,
+												  List<ComposableOperationMapper> mappers, Properties props)
+			throws IOException {
+		UUID chainId = deserializeUuid(in);
+		long minRank = in.readLong();
+		long minNextRank = in.readLong();
+		int depth = in.readInt();
+		ComposableOperationMapper mapper = mappers.get(in.readInt());
+		Blockchain blockchain = Blockchain.deserializeSnapshot(in);
+		ReferenceNode reference = new ReferenceNode(props, chainId, treeRoot,
+				minRank, minNextRank, depth, mapper, blockchain);
+		reference.getLeaf().deserializeSnapshot(in);
+		return reference;
+	}
+
+	/**
+	 * Extracts the serialized wrappers of a Chain, to be deserialized once all Chains are created.
+	 */
+	private static List<ByteBuf> readWrappers(ByteBuf in) {
+		int numWrappers = in.readInt();
+		List<ByteBuf> wrappers = new ArrayList<>(numWrappers);
+		for (int i = 0; i < numWrappers; i++) {
+			int start = in.readerIndex();
+			if (in.readByte() == TEMP_NODE) {
+				in.skipBytes(4 * Integer.BYTES);
+				in.skipBytes(in.readInt() * 6 * Long.BYTES);
+			} else
+				in.skipBytes(4 * Long.BYTES);
+			wrappers.add(in.slice(start, in.readerIndex() - start));
+		}
+		return wrappers;
+	}
+
+	/**
+	 * Wraps the {@link LeafNode} of a Chain, starting with the innermost node.
+	 * <p>Each node is created with the {@link ReferenceNode} as its parent,
+	 * which is replaced once the next node wrapping it is created.</p>
+	 */
+	private static void restoreWrappers(ReferenceNode reference, List<ByteBuf> wrappers,
+										Map<UUID, ReferenceNode> references,
+										List<ComposableOperationMapper> mappers, Properties props) {
+		BlockmessChain current = reference.getLeaf();
+		for (int i = wrappers.size() - 1; i >= 0; i--) {
+			ByteBuf serializedWrapper = wrappers.get(i);
+			InnerNode wrapper = serializedWrapper.readByte() == TEMP_NODE
+					? deserializeTempNode(serializedWrapper, current, reference, references, mappers, props)
+					: deserializePermanentNode(serializedWrapper, current, reference, references);
+			current.replaceParent(wrapper);
+			reference.replaceChild(wrapper);
+			current = wrapper;
+		}
+	}
+
+	private static TempChainNode deserializeTempNode(
+			ByteBuf in, BlockmessChain inner, ReferenceNode parent, Map<UUID, ReferenceNode> references,
+			List<ComposableOperationMapper> mappers, Properties props) {
+		int rootWeight = in.readInt();
+		int chainDepth = in.readInt();
+		var contentStoragePair = Pair.of(mappers.get(in.readInt()), mappers.get(in.readInt()));
+		int numTentative = in.readInt();
+		Map<UUID, Pair<ReferenceNode, ReferenceNode>> tentativeChains = new HashMap<>(numTentative);
+		for (int i = 0; i < numTentative; i++) {
+			UUID rootId = deserializeUuid(in);
+			ReferenceNode lft = references.get(deserializeUuid(in));
+			ReferenceNode rgt = references.get(deserializeUuid(in));
+			if (lft != null && rgt != null)
+				tentativeChains.put(rootId, Pair.of(lft, rgt));
+		}
+		return new TempChainNode(props, inner, parent, rootWeight, chainDepth, contentStoragePair, tentativeChains);
+	}
+
+	private static PermanentChainNode deserializePermanentNode(
+			ByteBuf in, BlockmessChain inner, ReferenceNode parent, Map<UUID, ReferenceNode> references) {
+		ReferenceNode lft = references.get(deserializeUuid(in));
+		ReferenceNode rgt = references.get(deserializeUuid(in));
+		return new PermanentChainNode(parent, inner, lft, rgt);
+	}
+
+	static void serializeBlocks(Collection<BlockmessBlock> blocks, ByteBuf out) throws IOException {
+		List<BlockmessBlock> toSerialize = List.copyOf(blocks);
+		out.writeInt(toSerialize.size());
+		for (BlockmessBlock block : toSerialize) {
+			out.writeShort(block.getClassId());
+			block.getSerializer().serialize(block, out);
+		}
+	}
+
+	static List<BlockmessBlock> deserializeBlocks(ByteBuf in) throws IOException {
+		int numBlocks = in.readInt();
+		List<BlockmessBlock> blocks = new ArrayList<>(numBlocks);
+		for (int i = 0; i < numBlocks; i++) {
+			ISerializer<BroadcastValue> serializer = BroadcastValue.pojoSerializers.get(in.readShort());
+			blocks.add((BlockmessBlock) serializer.deserialize(in));
+		}
+		return blocks;
+	}
+
+	private static void serializeUuid(UUID id, ByteBuf out) {
+		out.writeLong(id.getMostSignificantBits());
+		out.writeLong(id.getLeastSignificantBits());
+	}
+
+	private static UUID deserializeUuid(ByteBuf in) {
+		return new UUID(in.readLong(), in.readLong());
+	}
+
+}
@@ -2,20 +2,24 @@ package ledger.ledgerManager.nodes;
 
 import cmux.AppOperation;
 import cmux.CMuxMask;
+import io.netty.buffer.ByteBuf;
 import ledger.Ledger;
 import ledger.LedgerObserver;
 import ledger.blockchain.Blockchain;
 import ledger.blocks.BlockmessBlock;
 import ledger.blocks.ContentList;
+import ledger.ledgerManager.loadEstimators.LoadEstimator;
 import ledger.ledgerManager.exceptions.LedgerTreeNodeDoesNotExistException;
 import lombok.experimental.Delegate;
-import operationMapper.BaseOperationMapper;
+import operationMapper.OperationPool;
 import operationMapper.ComposableOperationMapper;
 import operationMapper.ComposableOperationMapperImp;
 import operationMapper.OperationMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -23,8 +27,6 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Stream;
 
-import static java.lang.Float.parseFloat;
-import static java.lang.Integer.parseInt;
 import static java.util.Collections.emptySet;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
@@ -54,6 +56,7 @@ public class LeafNode implements BlockmessChain, LedgerObserver {
 	 * Contains a mapping between all the blocks' ids and themselves.
 	 * <p>Used because the inner ledger does not provide the finalized blocks, only their identifier.
 	 * However the blocks pass through this object before being finalized.</p>
+	 * <p>Blocks are removed once finalized, being kept in the finalized buffer until delivered, or once discarded.</p>
 	 * <p>Shouldn't need to be concurrent if the inner {@link Ledger} is a {@link ledger.blockchain.Blockchain},
 	 * however, in case the ledger implementation is changed, this will be kept as concurrent.</p>
 	 */
@@ -67,32 +70,10 @@ public class LeafNode implements BlockmessChain, LedgerObserver {
 	 */
 	private final Queue<BlockmessBlock> finalizedBuffer = new ConcurrentLinkedQueue<>();
 	/**
-	 * Ledger<BlockmessBlockImp<C,P>> ledger Number of samples used to determine if the Chain should spawn new Chains or
+	 * Determines from the blocks delivered to the application if the Chain should spawn new Chains or
 	 * merge into its parent.
-	 * <p>The greater the sample size, the more resilient it is towards adversarial intents,
-	 * but the least sensible it is to adapt to changes in the load of the system.</p>
 	 */
-	private final int blocksSampleSize;
-	/**
-	 * Within the last blocksSampleSize blocks delivered to the application, which were overloaded.
-	 */
-	private final List<Boolean> overloadedBlocksSample = Collections.synchronizedList(new LinkedList<>());
-	/**
-	 * Within the last blocksSampleSize blocks delivered to the application, which were underloaded.
-	 */
-	private final List<Boolean> underloadedBlocksSample = Collections.synchronizedList(new LinkedList<>());
-	/**
-	 * The maximum allowed size for a block
-	 */
-	private final int maxBlockSize;
-	/**
-	 * The percentage of the maxBlockSize size a block must exceed in order to be deemed overloaded.
-	 */
-	private final float overloadThreshold;
-	/**
-	 * The percentage of the maxBlockSize size a block mustn't exceed in order to be deemed underloaded.
-	 */
-	private final float underloadedThreshold;
+	private final LoadEstimator loadEstimator;
 	private final long minRank;
 	private ParentTreeNode parent;
 	private long minNextRank;
@@ -107,15 +88,18 @@ public class LeafNode implements BlockmessChain, LedgerObserver {
 	public LeafNode(
 			Properties props, UUID chainId, ParentTreeNode parent,
 			long minRank, long minNextRank, int depth, ComposableOperationMapper operationMapper) {
+		this(props, chainId, parent, minRank, minNextRank, depth, operationMapper, new Blockchain(chainId));
+	}
+
+	LeafNode(
+			Properties props, UUID chainId, ParentTreeNode parent, long minRank, long minNextRank, int depth,
+			ComposableOperationMapper operationMapper, Blockchain blockchain) {
 		this.props = props;
 		this.chainId = chainId;
-		this.ledger = new Blockchain(chainId);
+		this.ledger = blockchain;
 		ledger.attachObserver(this);
 		this.parent = parent;
-		this.overloadThreshold = parseFloat(props.getProperty("overloadThreshold", "0.9f"));
-		this.underloadedThreshold = parseFloat(props.getProperty("underloadedThreshold", "0.4f"));
-		this.blocksSampleSize = parseInt(props.getProperty("blockSampleSize", "15"));
-		this.maxBlockSize = parseInt(props.getProperty("maxBlockSize", "21000"));
+		this.loadEstimator = LoadEstimator.fromProperties(props);
 		this.minRank = minRank;
 		this.minNextRank = minNextRank;
 		this.depth = depth;
@@ -135,8 +119,8 @@ public class LeafNode implements BlockmessChain, LedgerObserver {
 	@Override
 	public void spawnChildren(UUID originator) {
 		CMuxMask mask = new CMuxMask(depth);
-		OperationMapper lft = new BaseOperationMapper();
-		OperationMapper rgt = new BaseOperationMapper();
+		OperationMapper lft = new OperationPool();
+		OperationMapper rgt = new OperationPool();
 		depth++;
 		var spawnedChainDirectors = operationMapper.separateOperations(mask, lft, rgt);
 		var encapsulating = new TempChainNode(props, this, parent, originator, depth, spawnedChainDirectors);
@@ -179,13 +163,7 @@ public class LeafNode implements BlockmessChain, LedgerObserver {
 		if (blocksBeforeResumingMetrics > 0)
 			blocksBeforeResumingMetrics--;
 		else {
-			int contentSize = getContentSerializedSize(block);
-			overloadedBlocksSample.add(contentSize > maxBlockSize * overloadThreshold);
-			underloadedBlocksSample.add(contentSize < maxBlockSize * underloadedThreshold);
-			if (overloadedBlocksSample.size() > blocksSampleSize)
-				overloadedBlocksSample.remove(0);
-			if (underloadedBlocksSample.size() > blocksSampleSize)
-				underloadedBlocksSample.remove(0);
+			loadEstimator.recordBlock(getContentSerializedSize(block));
 		}
 	}
 
@@ -205,12 +183,12 @@ public class LeafNode implements BlockmessChain, LedgerObserver {
 	}
 
 	private boolean isOverloaded() {
-		return getNumOverloaded() > blocksSampleSize / 2;
+		return loadEstimator.isOverloaded();
 	}
 
 	@Override
 	public int getNumOverloaded() {
-		return getTrueSamples(overloadedBlocksSample);
+		return loadEstimator.getNumOverloaded();
 	}
 
 	@Override
@@ -218,10 +196,6 @@ public class LeafNode implements BlockmessChain, LedgerObserver {
 		return finalizedBuffer.size();
 	}
 
-	private int getTrueSamples(List<Boolean> samples) {
-		return (int) samples.stream().filter(s -> s).count();
-	}
-
 	@Override
 	public boolean shouldMerge() {
 		return false;
@@ -229,7 +203,7 @@ public class LeafNode implements BlockmessChain, LedgerObserver {
 
 	@Override
 	public boolean isUnderloaded() {
-		return getNumUnderloaded() > blocksSampleSize / 2;
+		return loadEstimator.isUnderloaded();
 	}
 
 	@Override
@@ -244,14 +218,13 @@ public class LeafNode implements BlockmessChain, LedgerObserver {
 
 	@Override
 	public int getNumUnderloaded() {
-		return getTrueSamples(underloadedBlocksSample);
+		return loadEstimator.getNumUnderloaded();
 	}
 
 	@Override
 	public void resetSamples() {
 		this.blocksBeforeResumingMetrics = getFinalizedWeight();
-		this.overloadedBlocksSample.clear();
-		this.underloadedBlocksSample.clear();
+		this.loadEstimator.reset();
 	}
 
 	@Override
@@ -339,12 +312,14 @@ public class LeafNode implements BlockmessChain, LedgerObserver {
 		List<BlockmessBlock> finalizedBlocks = finalized.stream().map(blocks::get).collect(toList());
 		finalizedBuffer.addAll(finalizedBlocks);
 		updateNextRank();
+		parent.notifyFinalizedBuffered(chainId);
 		operationMapper.deleteOperations(getFinalizedContent(finalized));
 		finalized.forEach(blocks::remove);
+		discarded.forEach(blocks::remove);
 		logger.info("Delivering finalized blocks {} in Chain {}",
 				finalized, chainId);
 		logger.debug("Observed {} blocks over the size threshold",
-				overloadedBlocksSample.stream().filter(b -> b).count());
+				loadEstimator.getNumOverloaded());
 		deliverFinalizedBlocksToObservers(finalized, discarded);
 	}
 
@@ -381,6 +356,43 @@ public class LeafNode implements BlockmessChain, LedgerObserver {
 		).collect(toSet());
 	}
 
+	int getDepth() {
+		return depth;
+	}
+
+	ComposableOperationMapper getOperationMapper() {
+		return operationMapper;
+	}
+
+	/**
+	 * Serializes the inner ledger, followed by the blocks received in this Chain and the block size samples.
+	 * <p>The samples are kept because the decision to spawn or merge Chains must be the same in every replica.</p>
+	 */
+	void serializeSnapshot(ByteBuf out) {
+		((Blockchain) ledger).serializeSnapshot(out, this::serializeBlocks);
+		out.writeInt(blocksBeforeResumingMetrics);
+		loadEstimator.serialize(out);
+	}
+
+	private void serializeBlocks(ByteBuf out) {
+		try {
+			ChainTreeSnapshot.serializeBlocks(blocks.values(), out);
+			ChainTreeSnapshot.serializeBlocks(finalizedBuffer, out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Restores the state serialized after the inner ledger in {@link #serializeSnapshot(ByteBuf)}.
+	 */
+	void deserializeSnapshot(ByteBuf in) throws IOException {
+		ChainTreeSnapshot.deserializeBlocks(in).forEach(block -> blocks.put(block.getBlockId(), block));
+		finalizedBuffer.addAll(ChainTreeSnapshot.deserializeBlocks(in));
+		blocksBeforeResumingMetrics = in.readInt();
+		loadEstimator.deserialize(in);
+	}
+
 	private interface ExcludeInnerLedger {
 		void attachObserver(LedgerObserver observer);
 	}
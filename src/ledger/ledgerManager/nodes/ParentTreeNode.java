@@ -14,4 +14,9 @@ public interface ParentTreeNode {
 
     ParentTreeNode getTreeRoot();
 
+    /**
+     * Notifies the root of the tree that the finalized blocks buffered by a Chain have changed.
+     */
+    void notifyFinalizedBuffered(UUID chainId);
+
 }
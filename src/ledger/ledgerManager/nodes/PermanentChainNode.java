@@ -123,6 +123,18 @@ public class PermanentChainNode implements InnerNode, BlockmessChain{
         inner.deleteOperations(operatationIds);
     }
 
+    ReferenceNode getLft() {
+        return lft;
+    }
+
+    ReferenceNode getRgt() {
+        return rgt;
+    }
+
+    BlockmessChain getInner() {
+        return inner;
+    }
+
     private interface ExcludeParent {
         void replaceChild(BlockmessChain newChild);
     }
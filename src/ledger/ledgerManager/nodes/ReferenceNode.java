@@ -3,6 +3,7 @@ package ledger.ledgerManager.nodes;
 import cmux.AppOperation;
 import cmux.CMuxMask;
 import ledger.LedgerObserver;
+import ledger.blockchain.Blockchain;
 import ledger.blocks.BlockmessBlock;
 import lombok.experimental.Delegate;
 import operationMapper.ComposableOperationMapper;
@@ -46,6 +47,25 @@ public class ReferenceNode implements InnerNode, BlockmessChain {
 		this.parent = parent;
 	}
 
+	/**
+	 * Creates a Chain whose blocks were restored from a snapshot.
+	 */
+	ReferenceNode(
+			Properties props, UUID chainId, ParentTreeNode parent, long minRank, long minNextRank, int depth,
+			ComposableOperationMapper contentStorage, Blockchain blockchain) {
+		this.leaf = new LeafNode(props, chainId, this, minRank, minNextRank, depth, contentStorage, blockchain);
+		this.nodeState = leaf;
+		this.parent = parent;
+	}
+
+	LeafNode getLeaf() {
+		return leaf;
+	}
+
+	BlockmessChain getNodeState() {
+		return nodeState;
+	}
+
 	@Override
 	public UUID getChainId() {
 		return leaf.getChainId();
@@ -60,6 +60,24 @@ public class TempChainNode implements InnerNode, LedgerObserver, BlockmessChain
 		fillChainMap(ChainOriginatorBlockId);
 	}
 
+	/**
+	 * Creates a node whose tentative Chains were restored from a snapshot.
+	 */
+	TempChainNode(
+			Properties props, BlockmessChain inner, ParentTreeNode parent, int rootWeight, int chainDepth,
+			Pair<ComposableOperationMapper, ComposableOperationMapper> contentStoragePair,
+			Map<UUID, Pair<ReferenceNode, ReferenceNode>> tentativeChains) {
+		this.props = props;
+		this.inner = inner;
+		inner.attachObserver(this);
+		this.parent = parent;
+		this.finalizedWeight = parseInt(props.getProperty("finalizedWeight", "6"));
+		this.rootWeight = rootWeight;
+		this.chainDepth = chainDepth;
+		this.contentStoragePair = contentStoragePair;
+		this.tentativeChains.putAll(tentativeChains);
+	}
+
 	private void fillChainMap(UUID chainOriginatorBlockId) {
 		Set<UUID> rootIds = inner.getFollowing(chainOriginatorBlockId, finalizedWeight + 3);
 		Set<BlockmessBlock> roots = inner.getBlocks(rootIds);
@@ -240,6 +258,26 @@ public class TempChainNode implements InnerNode, LedgerObserver, BlockmessChain
 		inner.deleteOperations(operatationIds);
 	}
 
+	int getRootWeight() {
+		return rootWeight;
+	}
+
+	int getChainDepth() {
+		return chainDepth;
+	}
+
+	Pair<ComposableOperationMapper, ComposableOperationMapper> getContentStoragePair() {
+		return contentStoragePair;
+	}
+
+	Map<UUID, Pair<ReferenceNode, ReferenceNode>> getTentativeChains() {
+		return tentativeChains;
+	}
+
+	BlockmessChain getInner() {
+		return inner;
+	}
+
 	private interface ExcludeInnerBlockmessChain {
 		void replaceParent(ParentTreeNode parent);
 
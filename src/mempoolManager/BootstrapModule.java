@@ -8,7 +8,7 @@ import org.apache.logging.log4j.Logger;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 
@@ -35,7 +35,7 @@ public class BootstrapModule {
 					"./bootstrapContent/bootstrap.txt");
 			String bootstrapJson = Files.readString(Path.of(bootstrapFile));
 			MempoolChunk[] chunks = new Gson().fromJson(bootstrapJson, MempoolChunk[].class);
-			return new ArrayList<>(chunks.length);
+			return Arrays.asList(chunks);
 		}
 		return emptyList();
 	}
@@ -1,8 +1,10 @@
 package mempoolManager;
 
 import cmux.AppOperation;
+import cyclops.data.HashSet;
 import lombok.Getter;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -22,12 +24,35 @@ public class MempoolChunk {
 
 	private final int weight;
 
+	/**
+	 * Identifiers of the operations in this chunk and in every unfinalized chunk preceding it.
+	 * <p>The set is persistent, sharing its structure with the sets of the previous chunks.
+	 * Thus, creating a chunk costs proportionally to the operations it adds,
+	 * rather than the operations in all unfinalized chunks.</p>
+	 */
+	private volatile HashSet<UUID> cumulativeUsedIds;
+
 	public MempoolChunk(UUID id, Set<UUID> previousIds, List<AppOperation> addedContent) {
+		this(id, previousIds, addedContent, HashSet.empty());
+	}
+
+	/**
+	 * @param previousUsedIds The identifiers of the operations used in the chunks preceding this one.
+	 */
+	MempoolChunk(UUID id, Set<UUID> previousIds, List<AppOperation> addedContent, HashSet<UUID> previousUsedIds) {
 		this.id = id;
 		this.previousIds = previousIds;
 		this.usedIds = addedContent.stream().map(AppOperation::getId).collect(toSet());
 		this.addedContent = addedContent;
 		this.weight = 1;
+		this.cumulativeUsedIds = previousUsedIds.plusAll(usedIds);
+	}
+
+	/**
+	 * Forgets the operations that have been finalized, and thus can no longer be proposed.
+	 */
+	void pruneUsedIds(Collection<UUID> finalizedIds) {
+		cumulativeUsedIds = cumulativeUsedIds.removeAll(finalizedIds);
 	}
 
 }
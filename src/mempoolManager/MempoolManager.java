@@ -3,6 +3,8 @@ package mempoolManager;
 import applicationInterface.DeliverFinalizedContentNotification;
 import broadcastProtocols.BroadcastValue;
 import cmux.AppOperation;
+import cyclops.data.HashSet;
+import io.netty.buffer.ByteBuf;
 import ledger.LedgerObserver;
 import ledger.blocks.BlockmessBlock;
 import ledger.blocks.ContentList;
@@ -13,8 +15,10 @@ import org.apache.logging.log4j.Logger;
 import pt.unl.fct.di.novasys.babel.core.GenericProtocol;
 import utils.IDGenerator;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
@@ -66,26 +70,39 @@ public class MempoolManager extends GenericProtocol implements LedgerObserver {
 		observers.add(observer);
 	}
 
-	public Set<UUID> getUsedContentFromChunk(UUID previousState, Set<UUID> visited) {
+	/**
+	 * @return The identifiers of the operations in a chunk and in the unfinalized chunks preceding it.
+	 * Empty if the chunk has been finalized or is unknown.
+	 */
+	public HashSet<UUID> getUsedContentFromChunk(UUID previousState) {
 		MempoolChunk chunk = mempool.get(previousState);
-		if (visited.contains(previousState) || chunk == null) return Collections.emptySet();
-		visited.add(previousState);
-		Set<UUID> invalid = new HashSet<>(chunk.getUsedIds());
-		chunk.getPreviousIds().forEach(id -> invalid.addAll(getUsedContentFromChunk(id, visited)));
-		return invalid;
+		return chunk == null ? HashSet.empty() : chunk.getCumulativeUsedIds();
 	}
 
 	@Override
 	public void deliverNonFinalizedBlock(BlockmessBlock block, int weight) {
 		logger.debug("Received non finalized block with id {}", block.getBlockId());
-		MempoolChunk chunk = createChunk(block);
-		mempool.put(chunk.getId(), chunk);
+		List<AppOperation> unwrappedContent = block.getContentList().getContentList();
+		addChunk(block.getBlockId(), Set.copyOf(block.getPrevRefs()), unwrappedContent);
 		observers.forEach(observer -> observer.deliverNonFinalizedBlock(block, weight));
 	}
 
-	private MempoolChunk createChunk(LedgerBlock block) {
-		List<AppOperation> unwrappedContent = block.getContentList().getContentList();
-		return new MempoolChunk(block.getBlockId(), Set.copyOf(block.getPrevRefs()), unwrappedContent);
+	private void addChunk(UUID id, Set<UUID> previousIds, List<AppOperation> addedContent) {
+		HashSet<UUID> previousUsedIds = mergeUsedIds(previousIds, this::getUsedContentFromChunk);
+		mempool.put(id, new MempoolChunk(id, previousIds, addedContent, previousUsedIds));
+	}
+
+	/**
+	 * Joins the operations used by the previous chunks, adding the smaller sets to the larger.
+	 */
+	private static HashSet<UUID> mergeUsedIds(Set<UUID> previousIds, Function<UUID, HashSet<UUID>> getUsedIds) {
+		HashSet<UUID> previousUsedIds = HashSet.empty();
+		for (UUID previousId : previousIds) {
+			HashSet<UUID> used = getUsedIds.apply(previousId);
+			previousUsedIds = previousUsedIds.size() >= used.size() ? previousUsedIds.plusAll(used)
+					: used.plusAll(previousUsedIds);
+		}
+		return previousUsedIds;
 	}
 
 	@Override
@@ -98,9 +115,75 @@ public class MempoolManager extends GenericProtocol implements LedgerObserver {
 				.map(MempoolChunk::getAddedContent)
 				.flatMap(Collection::stream)
 				.collect(toList());
-		LedgerManager.getSingleton().deleteOperations(finalizedContent.stream().map(AppOperation::getId).collect(toSet()));
+		Set<UUID> finalizedIds = finalizedContent.stream().map(AppOperation::getId).collect(toSet());
+		mempool.values().forEach(chunk -> chunk.pruneUsedIds(finalizedIds));
+		LedgerManager.getSingleton().deleteOperations(finalizedIds);
 		observers.forEach(observer -> observer.deliverFinalizedBlocks(finalized, discarded));
 		triggerNotification(new DeliverFinalizedContentNotification(finalizedContent));
 	}
 
+	public void serializeSnapshot(ByteBuf out) throws IOException {
+		serializeChunks(List.copyOf(mempool.values()), out);
+	}
+
+	public static void serializeChunks(Collection<MempoolChunk> chunks, ByteBuf out) throws IOException {
+		out.writeInt(chunks.size());
+		for (MempoolChunk chunk : chunks) {
+			out.writeLong(chunk.getId().getMostSignificantBits());
+			out.writeLong(chunk.getId().getLeastSignificantBits());
+			BroadcastValue.serializeUuids(List.copyOf(chunk.getPreviousIds()), out);
+			out.writeInt(chunk.getAddedContent().size());
+			for (AppOperation operation : chunk.getAddedContent())
+				AppOperation.serializer.serialize(operation, out);
+		}
+	}
+
+	/**
+	 * Decodes the chunks serialized by {@link #serializeChunks(Collection, ByteBuf)}, without modifying the mempool.
+	 * <p>Each chunk is placed after the chunks preceding it,
+	 * as the operations these use are part of the chunk.</p>
+	 * @return The chunks to be added to the mempool by {@link #restoreChunks(List)}.
+	 * @throws IOException If the chunks precede each other in a cycle.
+	 */
+	public static List<MempoolChunk> decodeSnapshot(ByteBuf in) throws IOException {
+		int numChunks = in.readInt();
+		Map<UUID, MempoolChunk> pending = new HashMap<>(Math.min(numChunks, in.readableBytes()));
+		for (int i = 0; i < numChunks; i++) {
+			UUID id = new UUID(in.readLong(), in.readLong());
+			Set<UUID> previousIds = Set.copyOf(BroadcastValue.deserializeUuids(in));
+			int numOperations = in.readInt();
+			List<AppOperation> addedContent = new ArrayList<>(Math.min(numOperations, in.readableBytes()));
+			for (int j = 0; j < numOperations; j++)
+				addedContent.add((AppOperation) AppOperation.serializer.deserialize(in));
+			pending.put(id, new MempoolChunk(id, previousIds, addedContent));
+		}
+		List<MempoolChunk> ordered = new ArrayList<>(pending.size());
+		Map<UUID, HashSet<UUID>> usedIds = new HashMap<>(pending.size());
+		while (!pending.isEmpty()) {
+			List<MempoolChunk> ready = pending.values().stream()
+					.filter(chunk -> chunk.getPreviousIds().stream().noneMatch(pending::containsKey))
+					.collect(toList());
+			if (ready.isEmpty())
+				throw new IOException("Mempool chunks in snapshot precede each other in a cycle");
+			for (MempoolChunk chunk : ready) {
+				HashSet<UUID> previousUsedIds = mergeUsedIds(chunk.getPreviousIds(),
+						previousId -> usedIds.getOrDefault(previousId, HashSet.empty()));
+				MempoolChunk restored = new MempoolChunk(chunk.getId(), chunk.getPreviousIds(),
+						chunk.getAddedContent(), previousUsedIds);
+				usedIds.put(restored.getId(), restored.getCumulativeUsedIds());
+				ordered.add(restored);
+				pending.remove(chunk.getId());
+			}
+		}
+		return ordered;
+	}
+
+	/**
+	 * Adds the chunks decoded by {@link #decodeSnapshot(ByteBuf)} to the mempool.
+	 */
+	public void restoreChunks(List<MempoolChunk> chunks) {
+		chunks.forEach(chunk -> mempool.put(chunk.getId(), chunk));
+		logger.info("Restored {} mempool chunks from snapshot", chunks.size());
+	}
+
 }
@@ -2,10 +2,9 @@ package operationMapper;
 
 import applicationInterface.GlobalProperties;
 import cmux.AppOperation;
-import mempoolManager.MempoolManager;
-import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 import static java.lang.Integer.parseInt;
 import static java.util.stream.Collectors.toMap;
@@ -24,16 +23,8 @@ public class BaseOperationMapper implements OperationMapper {
 
 	@Override
 	public List<AppOperation> generateOperationList(Collection<UUID> states, int usedSpace) {
-		Set<UUID> used = findUsedContent(states);
-		return getContentDeterministicOrderBound(used);
-	}
-
-	private Set<UUID> findUsedContent(Collection<UUID> states) {
-		Set<UUID> used = new HashSet<>();
-		Set<UUID> visited = new HashSet<>();
-		for (UUID state : states)
-			used.addAll(MempoolManager.getSingleton().getUsedContentFromChunk(state, visited));
-		return used;
+		Predicate<UUID> used = BlockContentSelector.findUsedContent(states);
+		return BlockContentSelector.selectOperations(contentMap.values().iterator(), used, maxBlockSize);
 	}
 
 	@Override
@@ -56,21 +47,4 @@ public class BaseOperationMapper implements OperationMapper {
 		return contentMap.values();
 	}
 
-	@NotNull
-	private List<AppOperation> getContentDeterministicOrderBound(Set<UUID> used) {
-		int usedSpace = 0;
-		Iterator<Map.Entry<UUID, AppOperation>> contentEntries = contentMap.entrySet().iterator();
-		List<AppOperation> content = new ArrayList<>();
-		while (contentEntries.hasNext() && usedSpace < maxBlockSize) {
-			Map.Entry<UUID, AppOperation> contentEntry = contentEntries.next();
-			if (!used.contains(contentEntry.getKey())) {
-				int contentSize = contentEntry.getValue().getSerializedSize();
-				if (usedSpace + contentSize < maxBlockSize)
-					content.add(contentEntry.getValue());
-				usedSpace += contentEntry.getValue().getSerializedSize();
-			}
-		}
-		return content;
-	}
-
 }
@@ -0,0 +1,51 @@
+package operationMapper;
+
+import cmux.AppOperation;
+import cyclops.data.HashSet;
+import mempoolManager.MempoolManager;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Selects the content of the blocks proposed by the {@link OperationMapper}s keeping their operations in a
+ * deterministic order, so that these assemble the same blocks from the same operations.
+ */
+final class BlockContentSelector {
+
+	private BlockContentSelector() {}
+
+	/**
+	 * The operations used in each state are kept by the {@link MempoolManager} in persistent sets,
+	 * which are queried directly rather than merged.
+	 */
+	static Predicate<UUID> findUsedContent(Collection<UUID> states) {
+		List<HashSet<UUID>> used = states.stream()
+				.map(state -> MempoolManager.getSingleton().getUsedContentFromChunk(state))
+				.collect(toList());
+		return id -> used.stream().anyMatch(set -> set.containsValue(id));
+	}
+
+	/**
+	 * Traverses the operations in order, skipping those already used, until the block reaches its maximum size.
+	 * <p>Operations that would exceed the maximum size are not placed in the block, but count towards its size.</p>
+	 */
+	static List<AppOperation> selectOperations(Iterator<AppOperation> operations, Predicate<UUID> used,
+											   int maxBlockSize) {
+		int blockSize = 0;
+		List<AppOperation> content = new ArrayList<>();
+		while (operations.hasNext() && blockSize < maxBlockSize) {
+			AppOperation operation = operations.next();
+			if (!used.test(operation.getId())) {
+				int operationSize = operation.getSerializedSize();
+				if (blockSize + operationSize < maxBlockSize)
+					content.add(operation);
+				blockSize += operationSize;
+			}
+		}
+		return content;
+	}
+
+}
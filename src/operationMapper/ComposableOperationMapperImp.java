@@ -7,6 +7,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -17,7 +18,7 @@ public class ComposableOperationMapperImp implements ComposableOperationMapper {
     private final ReadWriteLock innerLock = new ReentrantReadWriteLock();
 
     public ComposableOperationMapperImp() {
-        this.inner = new BaseOperationMapper();
+        this.inner = new OperationPool();
     }
 
     public ComposableOperationMapperImp(OperationMapper inner) {
@@ -38,33 +39,41 @@ public class ComposableOperationMapperImp implements ComposableOperationMapper {
     @Override
     public void submitOperations(Collection<AppOperation> operations) {
         try {
-            innerLock.writeLock().lock();
+            getUpdateLock().lock();
             inner.submitOperations(operations);
         } finally {
-            innerLock.writeLock().unlock();
+            getUpdateLock().unlock();
         }
     }
 
     @Override
     public void submitOperation(AppOperation operation) {
         try {
-            innerLock.writeLock().lock();
+            getUpdateLock().lock();
             inner.submitOperation(operation);
         } finally {
-            innerLock.writeLock().unlock();
+            getUpdateLock().unlock();
         }
     }
 
     @Override
     public void deleteOperations(Set<UUID> operatationIds) {
         try {
-            innerLock.writeLock().lock();
+            getUpdateLock().lock();
             inner.deleteOperations(operatationIds);
         } finally {
-            innerLock.writeLock().unlock();
+            getUpdateLock().unlock();
         }
     }
 
+    /**
+     * Operations are added and removed under the write lock, unless the inner mapper is thread safe.
+     * <p>In that case, only the separation and aggregation of operations excludes other updates.</p>
+     */
+    private Lock getUpdateLock() {
+        return inner.isThreadSafe() ? innerLock.readLock() : innerLock.writeLock();
+    }
+
     @Override
     public Collection<AppOperation> getStoredOperations() {
         try {
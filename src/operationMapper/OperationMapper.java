@@ -20,4 +20,11 @@ public interface OperationMapper {
 
     Collection<AppOperation> getStoredOperations();
 
+    /**
+     * @return Whether the operations can be submitted, deleted and read concurrently without external synchronization.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
 }
@@ -0,0 +1,183 @@
+package operationMapper;
+
+import applicationInterface.GlobalProperties;
+import cmux.AppOperation;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+import static java.lang.Integer.parseInt;
+import static operationMapper.BaseOperationMapper.MAX_BLOCK_SIZE;
+
+/**
+ * Thread safe {@link OperationMapper} keeping the operations in a {@link ConcurrentSkipListMap}.
+ * <p>Operations are ordered by their priority, and those with the same priority by their identifier,
+ * as in the {@link BaseOperationMapper}. By default all operations have the same priority.</p>
+ * <p>Blocks are assembled by traversing the operations in order,
+ * stopping as soon as the block reaches the maximum size.
+ * For the most recent sets of states, the pool records the last operation of the prefix of operations already used
+ * in those states, and the next assembly for the same states resumes after it instead of skipping the prefix again.
+ * A cursor is discarded when an operation is submitted before it.</p>
+ * <p>Each operation is inserted and removed atomically with its key, so that concurrent submissions and deletions
+ * of the same operation cannot leave it in the pool without a key.</p>
+ */
+public class OperationPool implements OperationMapper {
+
+	/**
+	 * Assigns a priority to each operation. Operations with higher priority are placed in blocks first.
+	 * <p>The priority of an operation must not change while it is in the pool.</p>
+	 */
+	public interface OperationPriority {
+		long getPriority(AppOperation operation);
+	}
+
+	private static volatile OperationPriority customPriority = operation -> 0;
+
+	private static final int MAX_CURSORS = 16;
+
+	private final int maxBlockSize;
+
+	private final OperationPriority priority;
+
+	private final ConcurrentSkipListMap<PoolKey, AppOperation> operations = new ConcurrentSkipListMap<>();
+
+	private final Map<UUID, PoolKey> keys = new ConcurrentHashMap<>();
+
+	/**
+	 * Key of the last operation in the prefix of operations used in each set of states.
+	 * <p>Guards the {@link #traversals} as well.</p>
+	 */
+	private final Map<Set<UUID>, PoolKey> cursors = new LinkedHashMap<>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Set<UUID>, PoolKey> eldest) {
+			return size() > MAX_CURSORS;
+		}
+	};
+
+	/**
+	 * Assemblies in progress, which must not record their cursor past an operation submitted meanwhile.
+	 */
+	private final Set<Traversal> traversals = new HashSet<>();
+
+	public OperationPool() {
+		Properties props = GlobalProperties.getProps();
+		this.maxBlockSize = parseInt(props.getProperty("maxBlockSize", String.valueOf(MAX_BLOCK_SIZE)));
+		this.priority = customPriority;
+	}
+
+	/**
+	 * Replaces the priority of the operations in the pools created afterwards.
+	 */
+	public static void setCustomPriority(OperationPriority priority) {
+		customPriority = priority;
+	}
+
+	@Override
+	public List<AppOperation> generateOperationList(Collection<UUID> states, int usedSpace) {
+		Set<UUID> stateIds = Set.copyOf(states);
+		Predicate<UUID> used = BlockContentSelector.findUsedContent(states);
+		Traversal traversal = new Traversal();
+		PoolKey cursor;
+		synchronized (cursors) {
+			cursor = cursors.get(stateIds);
+			traversals.add(traversal);
+		}
+		try {
+			var remaining = cursor == null ? operations : operations.tailMap(cursor, false);
+			PeekingIterator<Map.Entry<PoolKey, AppOperation>> it =
+					Iterators.peekingIterator(remaining.entrySet().iterator());
+			PoolKey lastUsed = cursor;
+			while (it.hasNext() && used.test(it.peek().getKey().id))
+				lastUsed = it.next().getKey();
+			List<AppOperation> content = BlockContentSelector.selectOperations(
+					Iterators.transform(it, Map.Entry::getValue), used, maxBlockSize);
+			recordCursor(stateIds, lastUsed, traversal);
+			return content;
+		} finally {
+			synchronized (cursors) {
+				traversals.remove(traversal);
+			}
+		}
+	}
+
+	private void recordCursor(Set<UUID> stateIds, PoolKey lastUsed, Traversal traversal) {
+		synchronized (cursors) {
+			if (lastUsed != null && (traversal.lowestSubmitted == null
+					|| lastUsed.compareTo(traversal.lowestSubmitted) < 0))
+				cursors.put(stateIds, lastUsed);
+		}
+	}
+
+	@Override
+	public void submitOperations(Collection<AppOperation> operations) {
+		operations.forEach(this::submitOperation);
+	}
+
+	@Override
+	public void submitOperation(AppOperation operation) {
+		PoolKey key = new PoolKey(priority.getPriority(operation), operation.getId());
+		PoolKey stored = keys.computeIfAbsent(operation.getId(), id -> {
+			operations.put(key, operation);
+			return key;
+		});
+		if (stored == key)
+			discardCursorsAfter(key);
+	}
+
+	private void discardCursorsAfter(PoolKey key) {
+		synchronized (cursors) {
+			cursors.values().removeIf(cursor -> key.compareTo(cursor) <= 0);
+			for (Traversal traversal : traversals)
+				if (traversal.lowestSubmitted == null || key.compareTo(traversal.lowestSubmitted) < 0)
+					traversal.lowestSubmitted = key;
+		}
+	}
+
+	@Override
+	public void deleteOperations(Set<UUID> operatationIds) {
+		for (UUID id : operatationIds)
+			keys.computeIfPresent(id, (ignored, key) -> {
+				operations.remove(key);
+				return null;
+			});
+	}
+
+	@Override
+	public Collection<AppOperation> getStoredOperations() {
+		return operations.values();
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	private static class Traversal {
+
+		private PoolKey lowestSubmitted;
+
+	}
+
+	private static class PoolKey implements Comparable<PoolKey> {
+
+		private final long priority;
+
+		private final UUID id;
+
+		PoolKey(long priority, UUID id) {
+			this.priority = priority;
+			this.id = id;
+		}
+
+		@Override
+		public int compareTo(PoolKey other) {
+			int byPriority = Long.compare(other.priority, priority);
+			return byPriority != 0 ? byPriority : id.compareTo(other.id);
+		}
+	}
+
+}
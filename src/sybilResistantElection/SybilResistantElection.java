@@ -2,8 +2,10 @@ package sybilResistantElection;
 
 import applicationInterface.BlockmessLauncher;
 import applicationInterface.GlobalProperties;
+import applicationInterface.SnapshotManager;
 import broadcastProtocols.BroadcastValue;
 import cmux.AppOperation;
+import com.google.common.util.concurrent.RateLimiter;
 import ledger.LedgerObserver;
 import ledger.blocks.BlockmessBlock;
 import ledger.blocks.BlockmessBlockImp;
@@ -19,31 +21,44 @@ import sybilResistantElection.difficultyComputers.MultiChainDifficultyComputer;
 import utils.CryptographicUtils;
 import utils.IDGenerator;
 import utils.merkleTree.ConcurrentMerkleTree;
-import utils.merkleTree.ConsistentOrderMerkleTree;
+import utils.merkleTree.IncrementalMerkleTree;
 import utils.merkleTree.MerkleTree;
 import valueDispatcher.ValueDispatcher;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.security.InvalidKeyException;
-import java.security.KeyPair;
-import java.security.NoSuchAlgorithmException;
-import java.security.SignatureException;
+import java.security.*;
 import java.util.*;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Stream;
 
 import static java.lang.Integer.parseInt;
 import static java.util.stream.Collectors.toList;
+import static sybilResistantElection.difficultyComputers.BaseDifficultyComputer.MINING_HASH_RATE;
 import static sybilResistantElection.difficultyComputers.BaseDifficultyComputer.TIME_BETWEEN_QUERIES;
 
+/**
+ * Finds the solutions of the Sybil Resistant Election proofs, and proposes blocks when these are found.
+ * <p>By default, a single attempt to find a solution is made every "timeBetweenQueries" milliseconds.
+ * When "miningThreads" is greater than zero, the solutions are instead searched continuously by that many threads,
+ * each trying a disjoint set of nonces, and computing at most "miningHashRate" hashes per second between them.
+ * The number of threads does not change the difficulty of the proofs, which is selected by "difficultyMode".</p>
+ * <p>The threads work over a snapshot of the random seed and the {@link ChainSeed}s, which is replaced
+ * whenever these change. A solution found for a snapshot that has since been replaced is discarded.</p>
+ */
 public class SybilResistantElection implements LedgerObserver {
 
 	public static final short ID = IDGenerator.genId();
 	public static final int INITIALIZATION_TIME = 120 * 1000;
 	private static final Logger logger = LogManager.getLogger(SybilResistantElection.class);
+	/**
+	 * Number of hashes a mining thread computes for each permit acquired from the hash rate budget.
+	 */
+	private static final int HASHES_PER_PERMIT = 64;
+	private static final long EXHAUSTED_NONCES_WAIT = 100;
 	private final KeyPair self;
 
 	private final LedgerManager blockmessRoot;
@@ -51,6 +66,7 @@ public class SybilResistantElection implements LedgerObserver {
 	private final ReentrantLock lock = new ReentrantLock();
 	private MerkleTree randomSeed;
 	private LinkedHashMap<UUID, ChainSeed> chainSeeds = new LinkedHashMap<>();
+	private volatile MiningTarget target;
 	private int nonce = 0;
 
 	public SybilResistantElection(KeyPair self) {
@@ -60,17 +76,53 @@ public class SybilResistantElection implements LedgerObserver {
 				blockmessRoot.getAvailableChains().size());
 		this.chainSeeds = replaceChainSeeds(blockmessRoot.getAvailableChains());
 		this.randomSeed = computeRandomSeed();
+		publishTarget();
 		BroadcastValue.pojoSerializers.put(SybilResistantElectionProof.ID, SybilResistantElectionProof.serializer);
 		MempoolManager.getSingleton().attachObserver(this);
 		establishQueryTimer();
 	}
 
+	/**
+	 * Replaces the snapshot of the random seed and {@link ChainSeed}s used to search for solutions.
+	 * <p>Must be called while holding the lock, after every modification to these.</p>
+	 */
+	private void publishTarget() {
+		long epoch = target == null ? 0 : target.epoch + 1;
+		target = new MiningTarget(epoch, randomSeed.getHashValue().clone(), new LinkedHashMap<>(chainSeeds));
+	}
+
 	private MerkleTree computeRandomSeed() {
 		List<byte[]> randomSeedElements = Stream.concat(
 				Stream.of(self.getPublic().getEncoded()),
 				chainSeeds.values().stream().map(ChainSeed::getChainSeed)
 		).collect(toList());
-		return new ConcurrentMerkleTree(new ConsistentOrderMerkleTree(randomSeedElements));
+		return new ConcurrentMerkleTree(new IncrementalMerkleTree(randomSeedElements));
+	}
+
+	/**
+	 * Updates the random seed after the Chains changed, removing the seeds of the Chains no longer available
+	 * and appending those of the new Chains.
+	 * <p>The random seed is only recomputed if the Chains that remain available were reordered,
+	 * or the new Chains are not the last ones.</p>
+	 */
+	private void updateRandomSeed(LinkedHashMap<UUID, ChainSeed> previousSeeds) {
+		List<UUID> retained = previousSeeds.keySet().stream()
+				.filter(chainSeeds::containsKey)
+				.collect(toList());
+		List<ChainSeed> currentSeeds = new ArrayList<>(chainSeeds.values());
+		boolean keptOrder = currentSeeds.subList(0, retained.size()).stream()
+				.map(ChainSeed::getChainId)
+				.collect(toList())
+				.equals(retained);
+		if (!keptOrder) {
+			randomSeed = computeRandomSeed();
+			return;
+		}
+		previousSeeds.values().stream()
+				.filter(seed -> !chainSeeds.containsKey(seed.getChainId()))
+				.forEach(seed -> randomSeed.removeLeaf(seed.getChainSeed()));
+		currentSeeds.subList(retained.size(), currentSeeds.size())
+				.forEach(seed -> randomSeed.addLeaf(seed.getChainSeed()));
 	}
 
 	public void establishQueryTimer() {
@@ -78,49 +130,133 @@ public class SybilResistantElection implements LedgerObserver {
 		int timeBetweenQueries = parseInt(props.getProperty("timeBetweenQueries", TIME_BETWEEN_QUERIES));
 		int initializationTime = parseInt(props.getProperty("initializationTime",
 				String.valueOf(INITIALIZATION_TIME)));
+		int miningThreads = parseInt(props.getProperty("miningThreads", "0"));
 		long currTime = System.currentTimeMillis();
 		long elapsed = currTime - BlockmessLauncher.startTime;
-		long remainder = initializationTime - elapsed;
+		long remainder = SnapshotManager.isRestored() ? 0 : initializationTime - elapsed;
 		logger.info("Starting to generate Sybil Resistant Proof for block in {} miliseconds.",
 				remainder);
-		Executors.newScheduledThreadPool(1)
-				.scheduleAtFixedRate(new Thread(this::attemptToProposeBlock), remainder, timeBetweenQueries, TimeUnit.MILLISECONDS);
+		if (miningThreads > 0)
+			startMiningThreads(miningThreads, remainder, props);
+		else
+			Executors.newScheduledThreadPool(1)
+					.scheduleAtFixedRate(new Thread(this::attemptToProposeBlock), remainder, timeBetweenQueries, TimeUnit.MILLISECONDS);
+	}
+
+	private void startMiningThreads(int miningThreads, long remainder, Properties props) {
+		double hashRate = Double.parseDouble(props.getProperty("miningHashRate", MINING_HASH_RATE));
+		RateLimiter hashBudget = RateLimiter.create(hashRate / HASHES_PER_PERMIT);
+		ScheduledExecutorService miners = Executors.newScheduledThreadPool(miningThreads);
+		for (int i = 0; i < miningThreads; i++) {
+			int firstNonce = i;
+			miners.schedule(() -> mine(firstNonce, miningThreads, hashBudget), remainder, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Continuously searches for solutions, trying the nonces firstNonce, firstNonce + stride, ...
+	 * <p>The search restarts from the first nonce whenever the target is replaced.
+	 * If every nonce is tried before the target is replaced, the thread waits for a new target.</p>
+	 */
+	private void mine(int firstNonce, int stride, RateLimiter hashBudget) {
+		MessageDigest digest = getMessageDigest();
+		MiningTarget currTarget = null;
+		byte[] input = null;
+		long currNonce = 0;
+		while (!Thread.currentThread().isInterrupted()) {
+			hashBudget.acquire();
+			for (int i = 0; i < HASHES_PER_PERMIT; i++) {
+				if (currTarget != target) {
+					currTarget = target;
+					input = currTarget.seed.clone();
+					currNonce = firstNonce;
+				}
+				if (currNonce > 0xFFFFFFFFL) {
+					waitForNewTarget(currTarget);
+					break;
+				}
+				int attemptNonce = (int) currNonce;
+				currNonce += stride;
+				byte[] solution = computeSolution(digest, input, attemptNonce);
+				if (difficultyComputer.hasEnoughLeadingZeros(solution))
+					proposeBlock(currTarget, attemptNonce, solution);
+			}
+		}
+	}
+
+	private static MessageDigest getMessageDigest() {
+		try {
+			return MessageDigest.getInstance(CryptographicUtils.HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Computes the solution in the same manner as {@link #computeSolution(MiningTarget)},
+	 * overwriting the first bytes of the input with the nonce.
+	 */
+	private static byte[] computeSolution(MessageDigest digest, byte[] input, int nonce) {
+		ByteBuffer.wrap(input).putInt(nonce);
+		return digest.digest(input);
+	}
+
+	private void waitForNewTarget(MiningTarget exhausted) {
+		while (target == exhausted && !Thread.currentThread().isInterrupted()) {
+			try {
+				Thread.sleep(EXHAUSTED_NONCES_WAIT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
 	}
 
 	private void attemptToProposeBlock() {
-		byte[] solution = computeSolution();
+		MiningTarget currTarget = target;
+		byte[] solution = computeSolution(currTarget);
 		if (difficultyComputer.hasEnoughLeadingZeros(solution))
-			proposeBlock(solution);
+			proposeBlock(currTarget, nonce, solution);
 	}
 
-	private void proposeBlock(byte[] solution) {
+	private void proposeBlock(MiningTarget solved, int solvedNonce, byte[] solution) {
 		try {
-			tryToProposeBlock(solution);
+			tryToProposeBlock(solved, solvedNonce, solution);
 		} catch (NoSuchAlgorithmException | SignatureException | InvalidKeyException | IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
-	private void tryToProposeBlock(byte[] solution) throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, IOException {
-		logger.info("Found valid solution with nonce {}, with {} leading zeros",
-				nonce, difficultyComputer.getSolutionLeadingZeros(solution));
-		ChainSeed placementChain = multiplexChain(solution);
-		List<Pair<UUID, byte[]>> chainSeeds = computeChainSeedsList();
-		SybilResistantElectionProof proof = new SybilResistantElectionProof(chainSeeds, nonce);
-		BlockmessBlockImp block = new BlockmessBlockImp(1, List.of(placementChain.getPrevBlock()),
-				placementChain.getCurrContent(), proof, self, placementChain.getChainId(),
-				placementChain.getChain().getRankFromRefs(Set.of(placementChain.getPrevBlock())),
-				blockmessRoot.getHighestSeenRank() + 1);
+	private void tryToProposeBlock(MiningTarget solved, int solvedNonce, byte[] solution)
+			throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, IOException {
+		BlockmessBlockImp block;
+		try {
+			lock.lock();
+			if (solved != target) {
+				logger.debug("Discarding solution with nonce {} found for replaced seed {}", solvedNonce, solved.epoch);
+				return;
+			}
+			logger.info("Found valid solution with nonce {}, with {} leading zeros",
+					solvedNonce, difficultyComputer.getSolutionLeadingZeros(solution));
+			ChainSeed placementChain = multiplexChain(solved.chainSeeds, solution);
+			List<Pair<UUID, byte[]>> chainSeeds = computeChainSeedsList(solved.chainSeeds);
+			SybilResistantElectionProof proof = new SybilResistantElectionProof(chainSeeds, solvedNonce);
+			block = new BlockmessBlockImp(1, List.of(placementChain.getPrevBlock()),
+					placementChain.getCurrContent(), proof, self, placementChain.getChainId(),
+					placementChain.getChain().getRankFromRefs(Set.of(placementChain.getPrevBlock())),
+					blockmessRoot.getHighestSeenRank() + 1);
+		} finally {
+			lock.unlock();
+		}
 		ValueDispatcher.getSingleton().disseminateBlockRequest(block);
 	}
 
-	private List<Pair<UUID, byte[]>> computeChainSeedsList() {
+	private List<Pair<UUID, byte[]>> computeChainSeedsList(LinkedHashMap<UUID, ChainSeed> chainSeeds) {
 		return chainSeeds.values().stream()
 				.map(b -> Pair.of(b.getChainId(), b.getChainSeed()))
 				.collect(toList());
 	}
 
-	private ChainSeed multiplexChain(byte[] solution) {
+	private ChainSeed multiplexChain(LinkedHashMap<UUID, ChainSeed> chainSeeds, byte[] solution) {
 		long lastInteger = Integer.toUnsignedLong(getLastInteger(solution));
 		int numChains = chainSeeds.size();
 		long maxUnsignedInteger = 1L << Integer.SIZE;
@@ -143,9 +279,9 @@ public class SybilResistantElection implements LedgerObserver {
 		return byteBuffer.getInt();
 	}
 
-	private byte[] computeSolution() {
+	private byte[] computeSolution(MiningTarget currTarget) {
 		nonce = (nonce + 1) % Integer.MAX_VALUE;
-		ByteBuffer byteBuffer = ByteBuffer.wrap(randomSeed.getHashValue());
+		ByteBuffer byteBuffer = ByteBuffer.wrap(currTarget.seed.clone());
 		byteBuffer.putInt(nonce);
 		byte[] solution = CryptographicUtils.hashInput(byteBuffer.array());
 		logger.debug("Solution with nonce {}, has {} leading zeros",
@@ -230,12 +366,15 @@ public class SybilResistantElection implements LedgerObserver {
 		ChainSeed newChainSeed = new ChainSeed(oldSeed.getChainId(), newPrev, newContent, oldSeed.getChain());
 		chainSeeds.replace(oldSeed.getChainId(), newChainSeed);
 		randomSeed.replaceLeaf(oldSeed.getChainSeed(), newChainSeed.getChainSeed());
+		publishTarget();
 	}
 
 	private void reactToChangeInNumberOfChains(List<BlockmessChain> chains) {
 		difficultyComputer.setNumChains(chains.size());
+		LinkedHashMap<UUID, ChainSeed> previousSeeds = chainSeeds;
 		chainSeeds = replaceChainSeeds(chains);
-		randomSeed = computeRandomSeed();
+		updateRandomSeed(previousSeeds);
+		publishTarget();
 		logger.info("There are currently {} active chains, resulting in valid proofs of {}  leading zeros",
 				chainSeeds.size(), difficultyComputer.getNumLeadingZeros());
 	}
@@ -258,4 +397,23 @@ public class SybilResistantElection implements LedgerObserver {
 			lock.unlock();
 		}
 	}
+
+	/**
+	 * Snapshot of the values from which the solutions are computed.
+	 */
+	private static class MiningTarget {
+
+		private final long epoch;
+
+		private final byte[] seed;
+
+		private final LinkedHashMap<UUID, ChainSeed> chainSeeds;
+
+		MiningTarget(long epoch, byte[] seed, LinkedHashMap<UUID, ChainSeed> chainSeeds) {
+			this.epoch = epoch;
+			this.seed = seed;
+			this.chainSeeds = chainSeeds;
+		}
+	}
+
 }
@@ -8,6 +8,8 @@ public class BaseDifficultyComputer implements DifficultyComputer {
 
     public static final String EXPECTED_TIME_BETWEEN_BLOCKS = "60000";
 
+    public static final String MINING_HASH_RATE = "1000"; //Hashes per second
+
     protected final int numLeadingZeros;
 
     BaseDifficultyComputer(double probNodeFindingSolutionInRound) {
@@ -43,6 +45,18 @@ public class BaseDifficultyComputer implements DifficultyComputer {
         return probFindSolutionInARound / expectedNumNodes;
     }
 
+    /**
+     * Counterpart of {@link #getProbNodeFindingSolutionInRound(int, int, int)} when the solutions are searched
+     * continuously by the mining threads.
+     * @param miningHashRate The number of hashes each node computes per second.
+     * @return The probability of a single hash being a valid solution.
+     */
+    static double getProbNodeFindingSolutionPerHash(int expectedNumNodes, double miningHashRate,
+                                                    int expectedTimeBetweenBlocks) {
+        double numHashesBetweenBlocks = miningHashRate * expectedTimeBetweenBlocks / 1000;
+        return 1 / (numHashesBetweenBlocks * expectedNumNodes);
+    }
+
     @Override
     public boolean hasEnoughLeadingZeros(byte[] solution) {
         int numBytesZero = numLeadingZeros / Byte.SIZE;
@@ -0,0 +1,94 @@
+package sybilResistantElection.difficultyComputers;
+
+import applicationInterface.GlobalProperties;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import static java.lang.Integer.parseInt;
+import static sybilResistantElection.difficultyComputers.BaseDifficultyComputer.*;
+
+/**
+ * Memoizes the difficulty of the Sybil Resistant Election proofs for each number of Chains.
+ * <p>The difficulty depends only on the properties of the system and on the number of Chains in the proof.
+ * The difficulties for up to "maxNumChains" Chains are computed when the table is created,
+ * and the table is extended should a proof with more Chains be validated.</p>
+ * <p>The "difficultyMode" parameter selects whether the difficulty is computed from "timeBetweenQueries" or from
+ * "miningHashRate". It must be set the same way in every node, regardless of whether the node has mining threads,
+ * otherwise the nodes disagree on which proofs are valid.</p>
+ */
+public class DifficultyTable {
+
+	/**
+	 * Maximum number of entries computed when the table is created,
+	 * in case "maxNumChains" is not bounded.
+	 */
+	private static final int MAX_PRECOMPUTED = 1024;
+
+	private static DifficultyTable singleton;
+
+	private final double probNodeFindingSolutionInRound;
+
+	private volatile DifficultyComputer[] table;
+
+	private DifficultyTable() {
+		Properties props = GlobalProperties.getProps();
+		int expectedNumNodes = parseInt(props.getProperty("expectedNumNodes", EXPECTED_NUM_NODES));
+		int timeBetweenQueries = parseInt(props.getProperty("timeBetweenQueries", TIME_BETWEEN_QUERIES));
+		int expectedTimeBetweenBlocks = parseInt(props.getProperty("expectedTimeBetweenBlocks",
+				EXPECTED_TIME_BETWEEN_BLOCKS));
+		String difficultyMode = props.getProperty("difficultyMode", "queries");
+		switch (difficultyMode) {
+			case "queries":
+				probNodeFindingSolutionInRound = getProbNodeFindingSolutionInRound(expectedNumNodes,
+						timeBetweenQueries, expectedTimeBetweenBlocks);
+				break;
+			case "hashRate":
+				double miningHashRate = Double.parseDouble(props.getProperty("miningHashRate", MINING_HASH_RATE));
+				probNodeFindingSolutionInRound = getProbNodeFindingSolutionPerHash(expectedNumNodes,
+						miningHashRate, expectedTimeBetweenBlocks);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown difficulty mode: " + difficultyMode);
+		}
+		int maxNumChains = parseInt(props.getProperty("maxNumChains", String.valueOf(Integer.MAX_VALUE)));
+		this.table = computeTable(new DifficultyComputer[0], Math.min(maxNumChains, MAX_PRECOMPUTED));
+	}
+
+	public static DifficultyTable getSingleton() {
+		if (singleton == null)
+			singleton = new DifficultyTable();
+		return singleton;
+	}
+
+	/**
+	 * @return The difficulty of the proofs when there are a given number of Chains.
+	 */
+	public DifficultyComputer getDifficultyComputer(int numChains) {
+		DifficultyComputer[] curr = table;
+		if (numChains < curr.length)
+			return curr[numChains];
+		return extendTable(numChains)[numChains];
+	}
+
+	private synchronized DifficultyComputer[] extendTable(int numChains) {
+		if (numChains >= table.length)
+			table = computeTable(table, Math.max(numChains, 2 * (table.length - 1)));
+		return table;
+	}
+
+	private DifficultyComputer[] computeTable(DifficultyComputer[] prev, int maxNumChains) {
+		DifficultyComputer[] res = Arrays.copyOf(prev, maxNumChains + 1);
+		for (int numChains = Math.max(1, prev.length); numChains <= maxNumChains; numChains++)
+			res[numChains] = new BaseDifficultyComputer(numChains * probNodeFindingSolutionInRound);
+		return res;
+	}
+
+	/**
+	 * @return Whether a solution is valid for a proof with a given number of Chains.
+	 */
+	public boolean hasEnoughLeadingZeros(byte[] solution, int numChains) {
+		return getDifficultyComputer(numChains).hasEnoughLeadingZeros(solution);
+	}
+
+}
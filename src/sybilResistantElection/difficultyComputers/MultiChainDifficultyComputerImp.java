@@ -1,29 +1,14 @@
 package sybilResistantElection.difficultyComputers;
 
-import applicationInterface.GlobalProperties;
-
-import java.util.Properties;
-
-import static java.lang.Integer.parseInt;
-import static sybilResistantElection.difficultyComputers.BaseDifficultyComputer.*;
-
 public class MultiChainDifficultyComputerImp implements MultiChainDifficultyComputer {
 
-	private final double probNodeFindingSolutionInRound;
-
-	private int numChains = 1;
+	private int numChains;
 
 	private DifficultyComputer inner;
 
 	public MultiChainDifficultyComputerImp(int numChains) {
-		Properties props = GlobalProperties.getProps();
-		int expectedNumNodes = parseInt(props.getProperty("expectedNumNodes", EXPECTED_NUM_NODES));
-		int timeBetweenQueries = parseInt(props.getProperty("timeBetweenQueries", TIME_BETWEEN_QUERIES));
-		int expectedTimeBetweenBlocks = parseInt(props.getProperty("expectedTimeBetweenBlocks",
-				EXPECTED_TIME_BETWEEN_BLOCKS));
-		probNodeFindingSolutionInRound = BaseDifficultyComputer.getProbNodeFindingSolutionInRound(expectedNumNodes,
-				timeBetweenQueries, expectedTimeBetweenBlocks);
-		inner = new BaseDifficultyComputer(numChains * probNodeFindingSolutionInRound);
+		this.numChains = numChains;
+		this.inner = DifficultyTable.getSingleton().getDifficultyComputer(numChains);
 	}
 
 	@Override
@@ -45,8 +30,7 @@ public class MultiChainDifficultyComputerImp implements MultiChainDifficultyComp
 	public void setNumChains(int Chains) {
 		if (numChains != Chains) {
 			numChains = Chains;
-			inner = new BaseDifficultyComputer(
-					Chains * probNodeFindingSolutionInRound);
+			inner = DifficultyTable.getSingleton().getDifficultyComputer(Chains);
 		}
 	}
 
@@ -1,13 +1,13 @@
 package utils;
 
 import applicationInterface.GlobalProperties;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.netty.buffer.ByteBuf;
 import lombok.SneakyThrows;
 import org.bouncycastle.util.io.pem.PemObject;
 import org.bouncycastle.util.io.pem.PemReader;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.FileReader;
 import java.nio.ByteBuffer;
 import java.security.*;
@@ -18,6 +18,8 @@ import java.security.spec.X509EncodedKeySpec;
 import java.util.Properties;
 import java.util.UUID;
 
+import static java.lang.Integer.parseInt;
+
 public class CryptographicUtils {
 
 	/**
@@ -34,6 +36,36 @@ public class CryptographicUtils {
 	 */
 	public static final String HASH_ALGORITHM = "SHA-256";
 
+	/**
+	 * Number of bytes in the hashes computed with {@link #HASH_ALGORITHM}.
+	 */
+	public static final int HASH_LENGTH = 32;
+
+	/**
+	 * MessageDigest and Signature instances reused by each thread.
+	 * <p>Obtaining these instances requires looking up the security providers, which is expensive
+	 * relative to the hashing of the small inputs used throughout the program.</p>
+	 * <p>The instances are reset by every method using them, and thus cannot be used across method calls.</p>
+	 */
+	private static final ThreadLocal<MessageDigest> threadDigest =
+			ThreadLocal.withInitial(() -> getInstance(HASH_ALGORITHM));
+
+	private static final ThreadLocal<Signature> threadSignature =
+			ThreadLocal.withInitial(() -> getSignatureInstance(SIGN_ALGORITHM));
+
+	private static final ThreadLocal<KeyFactory> threadKeyFactory =
+			ThreadLocal.withInitial(() -> getKeyFactoryInstance("EC"));
+
+	/**
+	 * Signature instances used to verify signatures, alongside the key each was last initialized with.
+	 * <p>After verifying a signature, a Signature instance returns to the state following its initialization,
+	 * and thus can verify another signature from the same key without being initialized again.</p>
+	 */
+	private static final ThreadLocal<ReusableVerifier> threadVerifier =
+			ThreadLocal.withInitial(() -> new ReusableVerifier(getSignatureInstance(SIGN_ALGORITHM)));
+
+	private static final int DEFAULT_KEY_CACHE_SIZE = 4096;
+
 	/**
 	 * Common operation used in the serializers.
 	 * <p>Serializes an asymmetric cryptographic key.</p>
@@ -69,11 +101,18 @@ public class CryptographicUtils {
 		return fromEncodedFormat(encoded);
 	}
 
+	/**
+	 * Decodes a public key, returning the same instance for repeated encodings of a key.
+	 */
 	public static PublicKey fromEncodedFormat(byte[] encoded)
 			throws NoSuchAlgorithmException, InvalidKeySpecException {
-		X509EncodedKeySpec pubKeySpec = new X509EncodedKeySpec(encoded);
-		KeyFactory factory = KeyFactory.getInstance("EC");
-		return factory.generatePublic(pubKeySpec);
+		ByteBuffer cacheKey = ByteBuffer.wrap(encoded);
+		PublicKey key = DecodedKeys.cache.getIfPresent(cacheKey);
+		if (key == null) {
+			key = threadKeyFactory.get().generatePublic(new X509EncodedKeySpec(encoded));
+			DecodedKeys.cache.put(ByteBuffer.wrap(encoded.clone()), key);
+		}
+		return key;
 	}
 
 	/**
@@ -84,22 +123,98 @@ public class CryptographicUtils {
 	 *              input received is hashed, but it's a waste.
 	 * @return A unique identifier for the instance calling the method.
 	 */
-	@SneakyThrows
 	public static UUID generateUUIDFromBytes(byte[] input) {
-		byte[] hashedContent = MessageDigest.getInstance(HASH_ALGORITHM).digest(input);
-		try (var in = new DataInputStream(new ByteArrayInputStream(hashedContent))) {
-			return new UUID(in.readLong(), in.readLong());
-		}
+		return uuidFromHash(hashInput(input));
+	}
+
+	/**
+	 * Extracts a UUID from the first 16 bytes of a hash.
+	 */
+	public static UUID uuidFromHash(byte[] hash) {
+		return new UUID(readLong(hash, 0), readLong(hash, Long.BYTES));
+	}
+
+	private static long readLong(byte[] array, int offset) {
+		long res = 0;
+		for (int i = offset; i < offset + Long.BYTES; i++)
+			res = (res << Byte.SIZE) | (array[i] & 0xFF);
+		return res;
 	}
 
-	@SneakyThrows
 	public static byte[] hashInput(byte[] input) {
-		return MessageDigest.getInstance(HASH_ALGORITHM).digest(input);
+		return threadDigest.get().digest(input);
+	}
+
+	/**
+	 * Computes the hash of the concatenation of several inputs, without concatenating them.
+	 */
+	public static byte[] hashInputs(byte[]... inputs) {
+		MessageDigest digest = threadDigest.get();
+		for (byte[] input : inputs)
+			digest.update(input);
+		return digest.digest();
+	}
+
+	/**
+	 * Computes the hash of the concatenation of the readable bytes of several buffers,
+	 * without copying them to an array.
+	 * <p>Slices of a received buffer can be hashed directly, without materialising their content.</p>
+	 */
+	public static byte[] hashByteBufs(ByteBuf... inputs) {
+		MessageDigest digest = threadDigest.get();
+		for (ByteBuf input : inputs)
+			for (ByteBuffer component : input.nioBuffers())
+				digest.update(component);
+		return digest.digest();
+	}
+
+	/**
+	 * Computes the hash of an input, placing it in a buffer supplied by the caller.
+	 * @param out The buffer where the hash is placed. Must have {@link #HASH_LENGTH} bytes available after the offset.
+	 */
+	@SneakyThrows
+	public static void hashInto(byte[] input, byte[] out, int offset) {
+		if (out.length - offset < HASH_LENGTH)
+			throw new IllegalArgumentException("Insufficient space in buffer to place the hash");
+		MessageDigest digest = threadDigest.get();
+		digest.update(input);
+		digest.digest(out, offset, HASH_LENGTH);
+	}
+
+	/**
+	 * Computes the hash of the concatenation of two regions of byte arrays, placing it in a buffer supplied by the caller.
+	 * <p>Allows hashing the children of a Merkle tree node stored in a larger array, without copying them.</p>
+	 * @param out The buffer where the hash is placed. Must have {@link #HASH_LENGTH} bytes available after the offset.
+	 */
+	@SneakyThrows
+	public static void hashPairInto(byte[] lft, int lftOffset, int lftLength,
+									byte[] rgt, int rgtOffset, int rgtLength, byte[] out, int offset) {
+		if (out.length - offset < HASH_LENGTH)
+			throw new IllegalArgumentException("Insufficient space in buffer to place the hash");
+		MessageDigest digest = threadDigest.get();
+		digest.update(lft, lftOffset, lftLength);
+		digest.update(rgt, rgtOffset, rgtLength);
+		digest.digest(out, offset, HASH_LENGTH);
+	}
+
+	@SneakyThrows
+	private static MessageDigest getInstance(String algorithm) {
+		return MessageDigest.getInstance(algorithm);
+	}
+
+	@SneakyThrows
+	private static Signature getSignatureInstance(String algorithm) {
+		return Signature.getInstance(algorithm);
+	}
+
+	@SneakyThrows
+	private static KeyFactory getKeyFactoryInstance(String algorithm) {
+		return KeyFactory.getInstance(algorithm);
 	}
 
 	@SneakyThrows
 	public static byte[] signUUID(PrivateKey signer, UUID id) {
-		Signature signature = Signature.getInstance(CryptographicUtils.SIGN_ALGORITHM);
+		Signature signature = threadSignature.get();
 		signature.initSign(signer);
 		byte[] idBytes = getIDBytes(id);
 		signature.update(idBytes);
@@ -122,7 +237,7 @@ public class CryptographicUtils {
 	 */
 	@SneakyThrows
 	public static byte[] getFieldsSignature(byte[] byteFields, PrivateKey signer) {
-		Signature signature = Signature.getInstance(SIGN_ALGORITHM);
+		Signature signature = threadSignature.get();
 		signature.initSign(signer);
 		signature.update(byteFields);
 		return signature.sign();
@@ -137,15 +252,7 @@ public class CryptographicUtils {
 	 * @return True if the signedContent matches the byteFields with the received verifier.
 	 */
 	public static boolean verifyPojoSignature(byte[] signedContent, byte[] byteFields, PublicKey verifier) throws InvalidKeyException, SignatureException {
-		try {
-			Signature signature = Signature.getInstance(SIGN_ALGORITHM);
-			signature.initVerify(verifier);
-			signature.update(byteFields);
-			return signature.verify(signedContent);
-		} catch (NoSuchAlgorithmException e) {
-			e.printStackTrace();
-			throw new Error(); //Should never happen, and if it does, it's the node computing the method's fault.
-		}
+		return threadVerifier.get().verify(signedContent, byteFields, verifier);
 	}
 
 	public static KeyPair getNodeKeys() {
@@ -195,4 +302,47 @@ public class CryptographicUtils {
 			return factory.generatePrivate(secretKeySpec);
 		}
 	}
+
+	/**
+	 * Public keys decoded from their encoded format.
+	 * <p>The keys of the proposers appear in every block they propose.
+	 * Interning them avoids decoding the same key repeatedly,
+	 * and allows the {@link #threadVerifier} to recognize the key verified last.</p>
+	 * <p>Created when a key is first decoded, after the properties are loaded.</p>
+	 */
+	private static class DecodedKeys {
+
+		private static final Cache<ByteBuffer, PublicKey> cache = CacheBuilder.newBuilder()
+				.maximumSize(parseInt(GlobalProperties.getProps().getProperty("publicKeyCacheSize",
+						String.valueOf(DEFAULT_KEY_CACHE_SIZE))))
+				.build();
+	}
+
+	private static class ReusableVerifier {
+
+		private final Signature signature;
+
+		private PublicKey initializedKey;
+
+		ReusableVerifier(Signature signature) {
+			this.signature = signature;
+		}
+
+		boolean verify(byte[] signedContent, byte[] byteFields, PublicKey verifier)
+				throws InvalidKeyException, SignatureException {
+			if (verifier != initializedKey) {
+				initializedKey = null;
+				signature.initVerify(verifier);
+				initializedKey = verifier;
+			}
+			try {
+				signature.update(byteFields);
+				return signature.verify(signedContent);
+			} catch (SignatureException e) {
+				initializedKey = null;
+				throw e;
+			}
+		}
+	}
+
 }
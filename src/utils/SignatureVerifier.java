@@ -0,0 +1,158 @@
+package utils;
+
+import applicationInterface.GlobalProperties;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.lang.Integer.parseInt;
+
+/**
+ * Verifies signatures, recording those found valid in a bounded cache.
+ * <p>Operations are usually verified when they are first received, and again when they are received in a block.
+ * With the cache, the second verification only requires computing a hash.</p>
+ * <p>The cache is keyed by the hash of the public key, the signed content and the signature, each preceded by its
+ * length, so that distinct triples cannot be confused by shifting bytes between them.
+ * Invalid signatures are not recorded, preventing invalid operations from evicting valid ones.</p>
+ * <p>Batches of signatures are split among a dedicated pool of daemon threads,
+ * with the calling thread verifying one of the partitions.</p>
+ * <p>The cache and the pool are created when first used, after the properties have been loaded.</p>
+ */
+public class SignatureVerifier {
+
+	private static final int DEFAULT_CACHE_SIZE = 100000;
+
+	private SignatureVerifier() {}
+
+	/**
+	 * Verifies a signature, unless it has been found valid before.
+	 * @return True if the signature matches the content and the public key.
+	 */
+	public static boolean verifySignature(byte[] signature, byte[] content, PublicKey verifier) {
+		ByteBuffer cacheKey = computeCacheKey(signature, content, verifier);
+		if (Resources.verifiedSignatures.getIfPresent(cacheKey) != null)
+			return true;
+		boolean isValid = tryToVerifySignature(signature, content, verifier);
+		if (isValid)
+			Resources.verifiedSignatures.put(cacheKey, true);
+		return isValid;
+	}
+
+	public static boolean verifySignature(SignedContent signed) {
+		return verifySignature(signed.getSignature(), signed.getContent(), signed.getVerifier());
+	}
+
+	private static boolean tryToVerifySignature(byte[] signature, byte[] content, PublicKey verifier) {
+		try {
+			return CryptographicUtils.verifyPojoSignature(signature, content, verifier);
+		} catch (InvalidKeyException | SignatureException e) {
+			return false;
+		}
+	}
+
+	private static ByteBuffer computeCacheKey(byte[] signature, byte[] content, PublicKey verifier) {
+		byte[] key = verifier.getEncoded();
+		byte[] lengths = ByteBuffer.allocate(3 * Integer.BYTES)
+				.putInt(key.length)
+				.putInt(content.length)
+				.putInt(signature.length)
+				.array();
+		return ByteBuffer.wrap(CryptographicUtils.hashInputs(lengths, key, content, signature));
+	}
+
+	/**
+	 * Verifies a batch of signatures in parallel.
+	 * @return The validity of each signature, in the order of the batch.
+	 */
+	public static boolean[] verifySignatures(List<SignedContent> batch) {
+		boolean[] results = new boolean[batch.size()];
+		int numPartitions = Resources.verifiers == null ? 1 : Math.min(Resources.numVerifiers, batch.size());
+		if (numPartitions <= 1) {
+			verifyPartition(batch, results, 0, batch.size());
+			return results;
+		}
+		int partitionLen = (batch.size() + numPartitions - 1) / numPartitions;
+		List<Future<?>> partitions = new ArrayList<>(numPartitions - 1);
+		for (int start = partitionLen; start < batch.size(); start += partitionLen) {
+			int partitionStart = start;
+			int partitionEnd = Math.min(batch.size(), start + partitionLen);
+			partitions.add(Resources.verifiers.submit(
+					() -> verifyPartition(batch, results, partitionStart, partitionEnd)));
+		}
+		verifyPartition(batch, results, 0, Math.min(batch.size(), partitionLen));
+		awaitPartitions(partitions);
+		return results;
+	}
+
+	private static void verifyPartition(List<SignedContent> batch, boolean[] results, int start, int end) {
+		for (int i = start; i < end; i++)
+			results[i] = verifySignature(batch.get(i));
+	}
+
+	private static void awaitPartitions(List<Future<?>> partitions) {
+		try {
+			for (Future<?> partition : partitions)
+				partition.get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return True if every signature in the batch is valid.
+	 */
+	public static boolean verifyAllSignatures(List<SignedContent> batch) {
+		for (boolean isValid : verifySignatures(batch))
+			if (!isValid)
+				return false;
+		return true;
+	}
+
+	private static class Resources {
+
+		private static final Cache<ByteBuffer, Boolean> verifiedSignatures;
+
+		private static final ExecutorService verifiers;
+
+		private static final int numVerifiers;
+
+		static {
+			Properties props = GlobalProperties.getProps();
+			int cacheSize = parseInt(props.getProperty("signatureCacheSize", String.valueOf(DEFAULT_CACHE_SIZE)));
+			verifiedSignatures = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+			numVerifiers = parseInt(props.getProperty("signatureVerificationThreads",
+					String.valueOf(Runtime.getRuntime().availableProcessors())));
+			verifiers = numVerifiers > 1
+					? Executors.newFixedThreadPool(numVerifiers - 1, new ThreadFactoryBuilder()
+							.setDaemon(true).setNameFormat("signature-verifier-%d").build())
+					: null;
+		}
+	}
+
+	@Getter
+	@AllArgsConstructor
+	public static class SignedContent {
+
+		private final byte[] signature;
+
+		private final byte[] content;
+
+		private final PublicKey verifier;
+
+	}
+
+}
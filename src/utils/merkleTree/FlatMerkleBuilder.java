@@ -0,0 +1,207 @@
+package utils.merkleTree;
+
+import utils.CryptographicUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import static utils.CryptographicUtils.HASH_LENGTH;
+
+/**
+ * Computes the root of a Merkle tree without creating an object for each node,
+ * producing the same hash as a {@link MerkleRoot} created with the same leaves.
+ * <p>The hashes of the inner nodes are placed in a single array.
+ * The node splitting the leaves in positions [start, end) is placed in position mid - 1,
+ * where mid is the first leaf of its right subtree.
+ * Therefore the inner nodes of a subtree occupy a contiguous region of the array,
+ * and the subtrees hashed by different threads write to disjoint regions.</p>
+ * <p>Subtrees are hashed in parallel by {@link ForkJoinTask}s in the common pool,
+ * which are split until they cover {@link #LEAVES_PER_TASK} leaves.</p>
+ * <p>A tree created by {@link #build(List)} keeps the array of inner hashes,
+ * and generates proofs of inclusion of its leaves without hashing them again.</p>
+ */
+public class FlatMerkleBuilder {
+
+    /**
+     * Maximum number of leaves hashed sequentially by a task.
+     * <p>The inner nodes written by a task occupy 32 bytes each, and thus span 128 cache lines of 64 bytes,
+     * with contention between threads limited to the lines at the edges of the regions.</p>
+     */
+    private static final int LEAVES_PER_TASK = 256;
+
+    private final byte[][] leaves;
+
+    private final byte[] innerHashes;
+
+    private final int numDirectChildren;
+
+    private final int intervalLen;
+
+    private final byte[] root;
+
+    private FlatMerkleBuilder(List<byte[]> leaves, int cutoffPoint) {
+        this.leaves = leaves.toArray(byte[][]::new);
+        this.innerHashes = new byte[Math.max(0, this.leaves.length - 1) * HASH_LENGTH];
+        this.numDirectChildren = Math.min(Runtime.getRuntime().availableProcessors(),
+                (this.leaves.length / cutoffPoint) + 1);
+        this.intervalLen = this.leaves.length / numDirectChildren;
+        this.root = this.leaves.length == 0 ? CryptographicUtils.hashInputs() : computeRootHash();
+    }
+
+    public static byte[] computeRoot(List<byte[]> leaves) {
+        return computeRoot(leaves, MerkleRoot.CUTOFF_POINT);
+    }
+
+    public static byte[] computeRoot(List<byte[]> leaves, int cutoffPoint) {
+        return build(leaves, cutoffPoint).getRoot();
+    }
+
+    public static FlatMerkleBuilder build(List<byte[]> leaves) {
+        return build(leaves, MerkleRoot.CUTOFF_POINT);
+    }
+
+    public static FlatMerkleBuilder build(List<byte[]> leaves, int cutoffPoint) {
+        return new FlatMerkleBuilder(leaves, cutoffPoint);
+    }
+
+    public byte[] getRoot() {
+        return root;
+    }
+
+    /**
+     * Splits the leaves between the children of the root as in the {@link MerkleRoot},
+     * not including the leaves past the last interval.
+     */
+    private byte[] computeRootHash() {
+        RangeHasher[] firstLevel = new RangeHasher[numDirectChildren];
+        for (int i = 0; i < numDirectChildren; i++)
+            firstLevel[i] = new RangeHasher(i * intervalLen, (i + 1) * intervalLen);
+        if (leaves.length <= LEAVES_PER_TASK)
+            for (RangeHasher hasher : firstLevel)
+                hashRangeSequentially(hasher.start, hasher.end);
+        else
+            ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(firstLevel);
+                }
+            });
+        if (numDirectChildren == 1)
+            return getRangeHash(0, intervalLen);
+        return CryptographicUtils.hashInputs(getFirstLevelHashes(0, numDirectChildren).toArray(byte[][]::new));
+    }
+
+    private List<byte[]> getFirstLevelHashes(int from, int to) {
+        List<byte[]> hashes = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++)
+            hashes.add(getRangeHash(i * intervalLen, (i + 1) * intervalLen));
+        return hashes;
+    }
+
+    /**
+     * @return The proof of inclusion of the leaf in the given position, with the same steps as the proof generated
+     * by a {@link MerkleRoot} with the same leaves. Empty if the leaf is past the last interval of the root.
+     */
+    public Optional<MerkleProof> generateProof(int leafIndex) {
+        if (leafIndex < 0 || leaves.length == 0 || leafIndex >= numDirectChildren * intervalLen)
+            return Optional.empty();
+        int interval = leafIndex / intervalLen;
+        List<MerkleProof.ProofStep> steps = new ArrayList<>();
+        collectProofSteps(interval * intervalLen, (interval + 1) * intervalLen, leafIndex, steps);
+        if (numDirectChildren > 1)
+            steps.add(new MerkleProof.ProofStep(getFirstLevelHashes(0, interval),
+                    getFirstLevelHashes(interval + 1, numDirectChildren)));
+        return Optional.of(new MerkleProof(steps));
+    }
+
+    /**
+     * Adds the siblings of the nodes in the path from the leaf to the node covering the leaves in [start, end).
+     */
+    private void collectProofSteps(int start, int end, int leafIndex, List<MerkleProof.ProofStep> steps) {
+        if (end - start == 1)
+            return;
+        int mid = start + (end - start) / 2;
+        if (leafIndex < mid) {
+            collectProofSteps(start, mid, leafIndex, steps);
+            steps.add(MerkleProof.ProofStep.withRgtSibling(getRangeHash(mid, end)));
+        } else {
+            collectProofSteps(mid, end, leafIndex, steps);
+            steps.add(MerkleProof.ProofStep.withLftSibling(getRangeHash(start, mid)));
+        }
+    }
+
+    private byte[] getRangeHash(int start, int end) {
+        if (end - start == 1)
+            return leaves[start];
+        int offset = getNodeOffset(start, end);
+        return Arrays.copyOfRange(innerHashes, offset, offset + HASH_LENGTH);
+    }
+
+    private void hashRangeSequentially(int start, int end) {
+        if (end - start == 1)
+            return;
+        int mid = start + (end - start) / 2;
+        hashRangeSequentially(start, mid);
+        hashRangeSequentially(mid, end);
+        hashNode(start, mid, end);
+    }
+
+    /**
+     * Computes the hash of a node from the hashes of its children, which must have been computed.
+     */
+    private void hashNode(int start, int mid, int end) {
+        byte[] lft, rgt;
+        int lftOffset, lftLength, rgtOffset, rgtLength;
+        if (mid - start == 1) {
+            lft = leaves[start];
+            lftOffset = 0;
+            lftLength = lft.length;
+        } else {
+            lft = innerHashes;
+            lftOffset = getNodeOffset(start, mid);
+            lftLength = HASH_LENGTH;
+        }
+        if (end - mid == 1) {
+            rgt = leaves[mid];
+            rgtOffset = 0;
+            rgtLength = rgt.length;
+        } else {
+            rgt = innerHashes;
+            rgtOffset = getNodeOffset(mid, end);
+            rgtLength = HASH_LENGTH;
+        }
+        CryptographicUtils.hashPairInto(lft, lftOffset, lftLength, rgt, rgtOffset, rgtLength,
+                innerHashes, (mid - 1) * HASH_LENGTH);
+    }
+
+    private static int getNodeOffset(int start, int end) {
+        return (start + (end - start) / 2 - 1) * HASH_LENGTH;
+    }
+
+    private class RangeHasher extends RecursiveAction {
+
+        private final int start, end;
+
+        RangeHasher(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LEAVES_PER_TASK) {
+                hashRangeSequentially(start, end);
+                return;
+            }
+            int mid = start + (end - start) / 2;
+            invokeAll(new RangeHasher(start, mid), new RangeHasher(mid, end));
+            hashNode(start, mid, end);
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package utils.merkleTree;
+
+import org.apache.commons.lang3.tuple.Pair;
+import utils.CryptographicUtils;
+
+import java.util.*;
+
+/**
+ * MerkleTree keeping its leaves in insertion order and the hashes of its inner nodes in a cache,
+ * producing the same hash as a {@link MerkleRoot} created with the same leaves in the same order.
+ * <p>Replacing a leaf keeps its position in the tree, and only recomputes the hashes in the path to the root.</p>
+ * <p>Leaves are appended at the end of the tree and removed without changing the order of the remaining leaves.
+ * Because the shape of the tree depends on its number of leaves, adding or removing a leaf traverses the whole tree,
+ * but only the inner nodes whose leaves changed are hashed again.</p>
+ * <p>Inner nodes are identified by their first and last leaves,
+ * which hold a sequence number given when the leaf was inserted.
+ * An inner node with the same first and last leaves as a cached one, and no modified leaf in between,
+ * must have the same leaves and hash.</p>
+ * <p>Repeated leaves are allowed. Replacing or removing a repeated leaf affects its earliest occurrence.</p>
+ */
+public class IncrementalMerkleTree implements MerkleTree {
+
+    private final int cutoffPoint;
+
+    private final List<byte[]> leaves = new ArrayList<>();
+
+    /**
+     * Sequence number of each leaf, in the same positions as the leaves.
+     * <p>Leaves are only appended, therefore the sequence numbers are sorted.</p>
+     */
+    private final List<Long> sequenceNumbers = new ArrayList<>();
+
+    private final Map<ArrayWrapper, TreeSet<Long>> occurrences = new HashMap<>();
+
+    /**
+     * Hash values of the inner nodes in the current shape of the tree, identified by the sequence numbers of their
+     * first and last leaves.
+     */
+    private Map<Pair<Long, Long>, byte[]> innerHashes = new HashMap<>();
+
+    private long nextSequenceNumber = 0;
+
+    /**
+     * Number of children of the root and number of leaves under each of them, in the current shape of the tree.
+     */
+    private int numDirectChildren, intervalLen;
+
+    private byte[] hashValue;
+
+    public IncrementalMerkleTree(List<byte[]> leaves) {
+        this(leaves, MerkleRoot.CUTOFF_POINT);
+    }
+
+    public IncrementalMerkleTree(List<byte[]> leaves, int cutoffPoint) {
+        this.cutoffPoint = cutoffPoint;
+        leaves.forEach(this::appendLeaf);
+        recomputeHashes();
+    }
+
+    @Override
+    public byte[] getHashValue() {
+        return hashValue;
+    }
+
+    @Override
+    public void addLeaf(byte[] hashVal) {
+        appendLeaf(hashVal);
+        recomputeHashes();
+    }
+
+    private void appendLeaf(byte[] hashVal) {
+        long sequenceNumber = nextSequenceNumber++;
+        leaves.add(hashVal);
+        sequenceNumbers.add(sequenceNumber);
+        occurrences.computeIfAbsent(new ArrayWrapper(hashVal), k -> new TreeSet<>()).add(sequenceNumber);
+    }
+
+    @Override
+    public boolean removeLeaf(byte[] hashVal) {
+        OptionalInt index = takeEarliestOccurrence(hashVal);
+        if (index.isEmpty())
+            return false;
+        for (int[] range : getPathRanges(index.getAsInt()))
+            innerHashes.remove(getRangeKey(range[0], range[1]));
+        leaves.remove(index.getAsInt());
+        sequenceNumbers.remove(index.getAsInt());
+        recomputeHashes();
+        return true;
+    }
+
+    @Override
+    public boolean replaceLeaf(byte[] oldVal, byte[] newVal) {
+        OptionalInt index = takeEarliestOccurrence(oldVal);
+        if (index.isEmpty())
+            return false;
+        int leafIndex = index.getAsInt();
+        leaves.set(leafIndex, newVal);
+        occurrences.computeIfAbsent(new ArrayWrapper(newVal), k -> new TreeSet<>())
+                .add(sequenceNumbers.get(leafIndex));
+        List<int[]> path = getPathRanges(leafIndex);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            int[] range = path.get(i);
+            int mid = range[0] + (range[1] - range[0]) / 2;
+            byte[] rangeHash = CryptographicUtils.hashInputs(
+                    getRangeHash(range[0], mid), getRangeHash(mid, range[1]));
+            innerHashes.put(getRangeKey(range[0], range[1]), rangeHash);
+        }
+        hashValue = computeRootHash();
+        return true;
+    }
+
+    /**
+     * Removes the earliest occurrence of a leaf from the occurrences.
+     * @return The position of the leaf, or empty if there is no such leaf.
+     */
+    private OptionalInt takeEarliestOccurrence(byte[] hashVal) {
+        ArrayWrapper key = new ArrayWrapper(hashVal);
+        TreeSet<Long> leafOccurrences = occurrences.get(key);
+        if (leafOccurrences == null)
+            return OptionalInt.empty();
+        long sequenceNumber = leafOccurrences.pollFirst();
+        if (leafOccurrences.isEmpty())
+            occurrences.remove(key);
+        return OptionalInt.of(Collections.binarySearch(sequenceNumbers, sequenceNumber));
+    }
+
+    @Override
+    public Set<byte[]> getLeaves() {
+        return new HashSet<>(leaves);
+    }
+
+    /**
+     * Recomputes the hashes of the inner nodes after the shape of the tree changed,
+     * reusing the cached hashes of the nodes whose leaves were not modified.
+     * <p>Only the nodes in the new shape of the tree are kept in the cache.</p>
+     */
+    private void recomputeHashes() {
+        Map<Pair<Long, Long>, byte[]> previousHashes = innerHashes;
+        innerHashes = new HashMap<>(previousHashes.size());
+        numDirectChildren = leaves.isEmpty() ? 0
+                : Math.min(Runtime.getRuntime().availableProcessors(), (leaves.size() / cutoffPoint) + 1);
+        intervalLen = numDirectChildren == 0 ? 0 : leaves.size() / numDirectChildren;
+        for (int i = 0; i < numDirectChildren; i++)
+            recomputeRangeHash(i * intervalLen, (i + 1) * intervalLen, previousHashes);
+        hashValue = computeRootHash();
+    }
+
+    private byte[] recomputeRangeHash(int start, int end, Map<Pair<Long, Long>, byte[]> previousHashes) {
+        if (end - start == 1)
+            return leaves.get(start);
+        int mid = start + (end - start) / 2;
+        byte[] lft = recomputeRangeHash(start, mid, previousHashes);
+        byte[] rgt = recomputeRangeHash(mid, end, previousHashes);
+        Pair<Long, Long> key = getRangeKey(start, end);
+        byte[] rangeHash = previousHashes.get(key);
+        if (rangeHash == null)
+            rangeHash = CryptographicUtils.hashInputs(lft, rgt);
+        innerHashes.put(key, rangeHash);
+        return rangeHash;
+    }
+
+    /**
+     * Combines the hashes of the children of the root as in the {@link MerkleRoot}.
+     * <p>As in the {@link MerkleRoot}, the leaves past the last interval of the root's children are not included.</p>
+     */
+    private byte[] computeRootHash() {
+        byte[][] firstLevel = new byte[numDirectChildren][];
+        for (int i = 0; i < numDirectChildren; i++)
+            firstLevel[i] = getRangeHash(i * intervalLen, (i + 1) * intervalLen);
+        if (firstLevel.length == 1)
+            return firstLevel[0];
+        return CryptographicUtils.hashInputs(firstLevel);
+    }
+
+    /**
+     * @return The ranges of the inner nodes in the path from a child of the root to a leaf, starting with the highest.
+     * Empty if the leaf is not included in the hash of the tree.
+     */
+    private List<int[]> getPathRanges(int leafIndex) {
+        List<int[]> path = new ArrayList<>();
+        if (leafIndex >= numDirectChildren * intervalLen)
+            return path;
+        int start = leafIndex / intervalLen * intervalLen;
+        int end = start + intervalLen;
+        while (end - start > 1) {
+            path.add(new int[]{start, end});
+            int mid = start + (end - start) / 2;
+            if (leafIndex < mid)
+                end = mid;
+            else
+                start = mid;
+        }
+        return path;
+    }
+
+    private byte[] getRangeHash(int start, int end) {
+        return end - start == 1 ? leaves.get(start) : innerHashes.get(getRangeKey(start, end));
+    }
+
+    private Pair<Long, Long> getRangeKey(int start, int end) {
+        return Pair.of(sequenceNumbers.get(start), sequenceNumbers.get(end - 1));
+    }
+
+}
@@ -1,15 +1,12 @@
 package utils.merkleTree;
 
 import org.apache.commons.collections4.SetUtils;
+import utils.CryptographicUtils;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
-import static utils.CryptographicUtils.HASH_ALGORITHM;
-
 public class InnerNode implements MerkleNode, ParentMerkleNode {
 
     private ParentMerkleNode parent;
@@ -50,22 +47,7 @@ public class InnerNode implements MerkleNode, ParentMerkleNode {
     }
 
     private byte[] computeNodeHash() {
-        try {
-            return tryToComputeNodeHash();
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            System.exit(1);
-        }
-        return null;
-    }
-
-    private byte[] tryToComputeNodeHash() throws NoSuchAlgorithmException {
-        byte[] lftBytes = lft.getHashValue();
-        byte[] rgtBytes = rgt.getHashValue();
-        byte[] fullBytes = new byte[lftBytes.length + rgtBytes.length];
-        System.arraycopy(lftBytes, 0, fullBytes, 0, lftBytes.length);
-        System.arraycopy(rgtBytes, 0, fullBytes, lftBytes.length, rgtBytes.length);
-        return MessageDigest.getInstance(HASH_ALGORITHM).digest(fullBytes);
+        return CryptographicUtils.hashInputs(lft.getHashValue(), rgt.getHashValue());
     }
 
     @Override
@@ -130,6 +112,13 @@ public class InnerNode implements MerkleNode, ParentMerkleNode {
             parent.replaceChild(this, lft);
     }
 
+    @Override
+    public void collectProofSteps(MerkleNode child, List<MerkleProof.ProofStep> steps) {
+        steps.add(child == lft ? MerkleProof.ProofStep.withRgtSibling(rgt.getHashValue())
+                : MerkleProof.ProofStep.withLftSibling(lft.getHashValue()));
+        parent.collectProofSteps(this, steps);
+    }
+
     @Override
     public void setParent(ParentMerkleNode parent) {
         this.parent = parent;
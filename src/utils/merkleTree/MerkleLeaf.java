@@ -1,6 +1,8 @@
 package utils.merkleTree;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 public class MerkleLeaf implements MerkleNode {
@@ -57,6 +59,15 @@ public class MerkleLeaf implements MerkleNode {
         return Set.of(hashVal);
     }
 
+    /**
+     * @return The proof of inclusion of this leaf in the tree it belongs to.
+     */
+    public MerkleProof generateProof() {
+        List<MerkleProof.ProofStep> steps = new ArrayList<>();
+        parent.collectProofSteps(this, steps);
+        return new MerkleProof(steps);
+    }
+
     @Override
     public void setParent(ParentMerkleNode parent) {
         this.parent = parent;
@@ -0,0 +1,114 @@
+package utils.merkleTree;
+
+import io.netty.buffer.ByteBuf;
+import utils.CryptographicUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Proof that a leaf is included in a Merkle tree with a given root.
+ * <p>Holds the hashes of the siblings of the nodes in the path from the leaf to the root, starting with the leaf.
+ * The hash of each node is obtained by hashing its children from left to right,
+ * therefore each step keeps the siblings to the left and to the right of the node in the path.
+ * Steps below the root have a single sibling,
+ * while the root of a {@link MerkleRoot} may have several children.</p>
+ * <p>Verifying a proof requires a number of hashes logarithmic in the number of leaves in the tree.</p>
+ */
+public class MerkleProof {
+
+    private final List<ProofStep> steps;
+
+    public MerkleProof(List<ProofStep> steps) {
+        this.steps = List.copyOf(steps);
+    }
+
+    public List<ProofStep> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return The root of the tree in which the leaf is included, according to this proof.
+     */
+    public byte[] computeRoot(byte[] leaf) {
+        byte[] current = leaf;
+        for (ProofStep step : steps) {
+            List<byte[]> inputs = new ArrayList<>(step.lftSiblings.size() + step.rgtSiblings.size() + 1);
+            inputs.addAll(step.lftSiblings);
+            inputs.add(current);
+            inputs.addAll(step.rgtSiblings);
+            current = CryptographicUtils.hashInputs(inputs.toArray(byte[][]::new));
+        }
+        return current;
+    }
+
+    public static boolean verify(byte[] leaf, MerkleProof proof, byte[] root) {
+        return Arrays.equals(proof.computeRoot(leaf), root);
+    }
+
+    public void serialize(ByteBuf out) {
+        out.writeShort(steps.size());
+        for (ProofStep step : steps) {
+            serializeHashes(step.lftSiblings, out);
+            serializeHashes(step.rgtSiblings, out);
+        }
+    }
+
+    private static void serializeHashes(List<byte[]> hashes, ByteBuf out) {
+        out.writeShort(hashes.size());
+        for (byte[] hash : hashes) {
+            out.writeShort(hash.length);
+            out.writeBytes(hash);
+        }
+    }
+
+    public static MerkleProof deserialize(ByteBuf in) {
+        int numSteps = in.readShort();
+        List<ProofStep> steps = new ArrayList<>(numSteps);
+        for (int i = 0; i < numSteps; i++)
+            steps.add(new ProofStep(deserializeHashes(in), deserializeHashes(in)));
+        return new MerkleProof(steps);
+    }
+
+    private static List<byte[]> deserializeHashes(ByteBuf in) {
+        int numHashes = in.readShort();
+        List<byte[]> hashes = new ArrayList<>(numHashes);
+        for (int i = 0; i < numHashes; i++) {
+            byte[] hash = new byte[in.readShort()];
+            in.readBytes(hash);
+            hashes.add(hash);
+        }
+        return hashes;
+    }
+
+    public static class ProofStep {
+
+        private final List<byte[]> lftSiblings;
+
+        private final List<byte[]> rgtSiblings;
+
+        public ProofStep(List<byte[]> lftSiblings, List<byte[]> rgtSiblings) {
+            this.lftSiblings = List.copyOf(lftSiblings);
+            this.rgtSiblings = List.copyOf(rgtSiblings);
+        }
+
+        static ProofStep withLftSibling(byte[] sibling) {
+            return new ProofStep(List.of(sibling), Collections.emptyList());
+        }
+
+        static ProofStep withRgtSibling(byte[] sibling) {
+            return new ProofStep(Collections.emptyList(), List.of(sibling));
+        }
+
+        public List<byte[]> getLftSiblings() {
+            return lftSiblings;
+        }
+
+        public List<byte[]> getRgtSiblings() {
+            return rgtSiblings;
+        }
+    }
+
+}
@@ -1,20 +1,21 @@
 package utils.merkleTree;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import utils.CryptographicUtils;
+
 import java.util.*;
 
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
-import static utils.CryptographicUtils.HASH_ALGORITHM;
 
 public class MerkleRoot implements ParentMerkleNode, MerkleTree {
 
     /**
      * Minimum number of nodes that must be processed by a thread.
      * The number of threads used will be limited by this value.
+     * <p>As it determines the number of children of the root, every tree producing the same hashes as this one
+     * in this package must use this value.</p>
      */
-    private static final int CUTOFF_POINT = 10000;
+    static final int CUTOFF_POINT = 10000;
 
     private final Map<ArrayWrapper, MerkleLeaf> leaves = new HashMap<>();
 
@@ -84,6 +85,32 @@ public class MerkleRoot implements ParentMerkleNode, MerkleTree {
             }
     }
 
+    /**
+     * The root combines the hashes of all its children, placing those of the other children in a single step.
+     * <p>A root with a single child has the same hash as the child, and adds no step.</p>
+     */
+    @Override
+    public void collectProofSteps(MerkleNode child, List<MerkleProof.ProofStep> steps) {
+        if (firstLevel.size() == 1)
+            return;
+        int childIdx = firstLevel.indexOf(child);
+        List<byte[]> lftSiblings = firstLevel.subList(0, childIdx).stream()
+                .map(MerkleNode::getHashValue)
+                .collect(toList());
+        List<byte[]> rgtSiblings = firstLevel.subList(childIdx + 1, firstLevel.size()).stream()
+                .map(MerkleNode::getHashValue)
+                .collect(toList());
+        steps.add(new MerkleProof.ProofStep(lftSiblings, rgtSiblings));
+    }
+
+    /**
+     * @return The proof of inclusion of a leaf in this tree, or empty if there is no such leaf.
+     */
+    public Optional<MerkleProof> generateProof(byte[] leafHash) {
+        MerkleLeaf leaf = leaves.get(new ArrayWrapper(leafHash));
+        return Optional.ofNullable(leaf).map(MerkleLeaf::generateProof);
+    }
+
     @Override
     public byte[] getHashValue() {
         hashValue = isModified ? computeHashValue() : hashValue;
@@ -92,25 +119,10 @@ public class MerkleRoot implements ParentMerkleNode, MerkleTree {
     }
 
     private byte[] computeHashValue() {
-        try {
-            return tryToComputeHashValue();
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            System.exit(1);
-        }
-        return null;
-    }
-
-    private byte[] tryToComputeHashValue() throws NoSuchAlgorithmException {
         List<byte[]> firstLevelHashVals = computeFirstLevelHash();
         if (firstLevelHashVals.size() == 1)
             return firstLevelHashVals.get(0);
-        return mergeFirstLevelHashes(firstLevelHashVals);
-    }
-
-    private byte[] mergeFirstLevelHashes(List<byte[]> firstLevelHashVals) throws NoSuchAlgorithmException {
-        byte[] allHashesConcatenated = concatHashes(firstLevelHashVals);
-        return MessageDigest.getInstance(HASH_ALGORITHM).digest(allHashesConcatenated);
+        return CryptographicUtils.hashInputs(firstLevelHashVals.toArray(byte[][]::new));
     }
 
     private List<byte[]> computeFirstLevelHash() {
@@ -120,17 +132,6 @@ public class MerkleRoot implements ParentMerkleNode, MerkleTree {
                 .collect(toList());
     }
 
-    private byte[] concatHashes(List<byte[]> seperateHashes) {
-        int fullLen = seperateHashes.stream().mapToInt(b -> b.length).sum();
-        byte[] fullHash = new byte[fullLen];
-        int currPos = 0;
-        for (byte[] hash : seperateHashes) {
-            System.arraycopy(hash, 0, fullHash, currPos, hash.length);
-            currPos += hash.length;
-        }
-        return fullHash;
-    }
-
     @Override
     public void addLeaf(byte[] hashVal) {
         MerkleNode subtree = this.firstLevel.get(addRoundRobin);
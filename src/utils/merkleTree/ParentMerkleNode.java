@@ -1,5 +1,7 @@
 package utils.merkleTree;
 
+import java.util.List;
+
 public interface ParentMerkleNode {
 
     void percolateChange();
@@ -14,4 +16,10 @@ public interface ParentMerkleNode {
 
     void removeChild(MerkleLeaf oldChild);
 
+    /**
+     * Adds the step of an inclusion proof corresponding to this node, followed by those of its ancestors.
+     * @param child The child of this node in the path from the leaf being proven.
+     */
+    void collectProofSteps(MerkleNode child, List<MerkleProof.ProofStep> steps);
+
 }
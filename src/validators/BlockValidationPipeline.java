@@ -0,0 +1,118 @@
+package validators;
+
+import applicationInterface.GlobalProperties;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import ledger.blocks.BlockmessBlock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static java.lang.Integer.parseInt;
+
+/**
+ * Validates the blocks received in a pool of threads, before these are submitted to the Chains.
+ * <p>Blocks are validated concurrently, regardless of the Chain they are destined to,
+ * and are submitted to the Chains by a single thread as their validation completes.
+ * Blocks validated before their previous block are held by the {@link ledger.blockchain.BlockScheduler}
+ * until it is delivered, as in the case where the blocks are received out of order.</p>
+ * <p>The result of the validation is recorded and used by the {@link ledger.blockchain.Blockchain}
+ * when the block is submitted, instead of validating the block again.</p>
+ * <p>When "validationThreads" is 0, the blocks are validated and submitted by the thread receiving them.
+ * Otherwise, the {@link ApplicationAwareValidator} in use must be thread safe.</p>
+ * <p>The threads of the pipeline are daemons, and thus do not prevent the node from stopping.</p>
+ */
+public class BlockValidationPipeline {
+
+	private static final Logger logger = LogManager.getLogger(BlockValidationPipeline.class);
+
+	private static final int DEFAULT_QUEUE_SIZE = 1024;
+
+	private final ExecutorService validators;
+
+	private final ExecutorService submitter;
+
+	private final ApplicationObliviousValidator validator;
+
+	private final Map<UUID, Boolean> validationResults = new ConcurrentHashMap<>();
+
+	public BlockValidationPipeline(int validationThreads, int queueSize, ApplicationObliviousValidator validator) {
+		this.validator = validator;
+		if (validationThreads > 0) {
+			this.validators = new ThreadPoolExecutor(validationThreads, validationThreads,
+					0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+					genDaemonFactory("block-validator-%d"), new ThreadPoolExecutor.CallerRunsPolicy());
+			this.submitter = Executors.newSingleThreadExecutor(genDaemonFactory("block-submitter-%d"));
+		} else {
+			this.validators = null;
+			this.submitter = null;
+		}
+	}
+
+	private static ThreadFactory genDaemonFactory(String nameFormat) {
+		return new ThreadFactoryBuilder().setDaemon(true).setNameFormat(nameFormat).build();
+	}
+
+	public static BlockValidationPipeline getSingleton() {
+		return Singleton.instance;
+	}
+
+	/**
+	 * Validates a block and then submits it.
+	 * <p>When the validation queue is full, the block is validated by the calling thread,
+	 * slowing down the reception of blocks until the validators catch up.</p>
+	 * @param submit Submits the block to the Chains. Always called from the same thread.
+	 */
+	public void submitBlock(BlockmessBlock block, Consumer<BlockmessBlock> submit) {
+		if (validators == null) {
+			submit.accept(block);
+			return;
+		}
+		validators.execute(() -> {
+			validationResults.put(block.getBlockId(), validate(block));
+			submitter.execute(() -> {
+				submit.accept(block);
+				validationResults.remove(block.getBlockId());
+			});
+		});
+	}
+
+	private boolean validate(BlockmessBlock block) {
+		try {
+			return validator.isBlockValid(block);
+		} catch (RuntimeException e) {
+			logger.error("Unable to validate block {} because: {}", block.getBlockId(), e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * @return The result of the validation of a block submitted through {@link #submitBlock(BlockmessBlock, Consumer)},
+	 * or the result of validating it now if it was not.
+	 */
+	public boolean isBlockValid(BlockmessBlock block) {
+		Boolean isValid = validationResults.remove(block.getBlockId());
+		return isValid != null ? isValid : validator.isBlockValid(block);
+	}
+
+	/**
+	 * Creates the pipeline when first used, as it is reached from the threads of several protocols.
+	 */
+	private static class Singleton {
+
+		private static final BlockValidationPipeline instance = fromProperties();
+
+		private static BlockValidationPipeline fromProperties() {
+			Properties props = GlobalProperties.getProps();
+			int validationThreads = parseInt(props.getProperty("validationThreads", "0"));
+			int queueSize = parseInt(props.getProperty("validationQueueSize", String.valueOf(DEFAULT_QUEUE_SIZE)));
+			return new BlockValidationPipeline(validationThreads, queueSize,
+					FixedApplicationObliviousValidator.getSingleton());
+		}
+	}
+
+}
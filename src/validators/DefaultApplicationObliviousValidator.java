@@ -7,10 +7,10 @@ import org.apache.commons.lang3.tuple.Pair;
 import pt.unl.fct.di.novasys.babel.core.GenericProtocol;
 import sybilResistantElection.ChainSeed;
 import sybilResistantElection.SybilResistantElectionProof;
-import sybilResistantElection.difficultyComputers.MultiChainDifficultyComputerImp;
+import sybilResistantElection.difficultyComputers.DifficultyTable;
 import utils.CryptographicUtils;
 import utils.IDGenerator;
-import utils.merkleTree.MerkleRoot;
+import utils.merkleTree.IncrementalMerkleTree;
 import utils.merkleTree.MerkleTree;
 
 import java.nio.ByteBuffer;
@@ -36,12 +36,16 @@ public class DefaultApplicationObliviousValidator extends GenericProtocol implem
 	public void init(Properties properties) {
 	}
 
+	/**
+	 * Validates the proof of the block, followed by its content.
+	 * <p>The broadcast protocols are notified once the proof is validated,
+	 * not waiting for the possibly expensive validation of the content.</p>
+	 */
 	@Override
 	public boolean isBlockValid(BlockmessBlock block) {
-		boolean isValid = isProofValid(block)
-				&& FixedApplicationAwareValidator.getSingleton().validateBlockContent(block);
+		boolean isProofValid = isProofValid(block);
 		notifyBlockValidity(block);
-		return isValid;
+		return isProofValid && FixedApplicationAwareValidator.getSingleton().validateBlockContent(block);
 	}
 
 	private void notifyBlockValidity(BlockmessBlock block) {
@@ -62,8 +66,7 @@ public class DefaultApplicationObliviousValidator extends GenericProtocol implem
 			return false;
 		MerkleTree randomSeed = computeRandomSeed(block);
 		byte[] solution = computeSolution(randomSeed, proof.getNonce());
-		return new MultiChainDifficultyComputerImp(proof.getChainSeeds().size())
-				.hasEnoughLeadingZeros(solution);
+		return DifficultyTable.getSingleton().hasEnoughLeadingZeros(solution, proof.getChainSeeds().size());
 	}
 
 	private MerkleTree computeRandomSeed(BlockmessBlock block) {
@@ -77,7 +80,7 @@ public class DefaultApplicationObliviousValidator extends GenericProtocol implem
 					pair.getRight();
 			randomSeedElems.add(chainSeed);
 		}
-		return new MerkleRoot(randomSeedElems);
+		return new IncrementalMerkleTree(randomSeedElems);
 	}
 
 	private byte[] computeSolution(MerkleTree randomSeed, int nonce) {
@@ -2,11 +2,16 @@ import applicationInterface.BlockmessLauncher;
 import applicationInterface.GlobalProperties;
 import ledger.blockchain.BlockFinalizer;
 import ledger.blockchain.Blockchain;
+import ledger.blocks.BlockmessBlock;
+import ledger.blocks.ContentList;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 import pt.unl.fct.di.novasys.babel.core.Babel;
+import validators.FixedApplicationObliviousValidator;
 
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -226,4 +231,148 @@ public class BlockFinalizerTests {
 	}
 
 
+	@Test
+	void shouldNotFindOvertakenForkInLongestChain() {
+		UUID genesis = blockFinalizer.getBlockR().iterator().next();
+		var block1 = addBlock(genesis);
+		var block2 = addBlock(genesis);
+		assertTrue(blockFinalizer.isInLongestChain(block1));
+		var last = addBlock(block2);
+		assertFalse(blockFinalizer.isInLongestChain(block1));
+		assertTrue(blockFinalizer.isInLongestChain(block2));
+		assertTrue(blockFinalizer.isInLongestChain(last));
+		var tied = addBlock(block1);
+		assertTrue(blockFinalizer.isInLongestChain(block1));
+		assertTrue(blockFinalizer.isInLongestChain(tied));
+		assertTrue(blockFinalizer.isInLongestChain(last));
+	}
+
+	@Test
+	void shouldGetFollowingBlocksAtDistance() {
+		UUID genesis = blockFinalizer.getBlockR().iterator().next();
+		var block1 = addBlock(genesis);
+		var block2 = addBlock(genesis);
+		var block11 = addBlock(block1);
+		var block21 = addBlock(block2);
+		var block22 = addBlock(block2);
+		assertEquals(Set.of(genesis), blockFinalizer.getFollowing(genesis, 0));
+		assertEquals(Set.of(block1, block2), blockFinalizer.getFollowing(genesis, 1));
+		assertEquals(Set.of(block11, block21, block22), blockFinalizer.getFollowing(genesis, 2));
+		assertEquals(Set.of(block21, block22), blockFinalizer.getFollowing(block2, 1));
+		assertTrue(blockFinalizer.getFollowing(genesis, 3).isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> blockFinalizer.getFollowing(genesis, -1));
+	}
+
+	/**
+	 * Extends a single chain with a finalized window, verifying that only the blocks in the window are kept,
+	 * and that the discarded blocks are handed to the listener in the order they were finalized.
+	 */
+	@Test
+	void shouldKeepOnlyFinalizedWindow() {
+		int window = 4;
+		List<UUID> pruned = new ArrayList<>();
+		BlockFinalizer finalizer = withFinalizedWindow(window, () -> new BlockFinalizer(new UUID(0, 0)));
+		finalizer.setPrunedListener(node -> pruned.add(node.getId()));
+		List<UUID> finalizedOrder = new ArrayList<>(List.of(new UUID(0, 0)));
+		for (int i = 0; i < 30; i++)
+			finalizedOrder.addAll(finalizer.addBlock(UUID.randomUUID(), finalizer.getBlockR(), 1).getLeft());
+
+		assertEquals(window + 1, finalizer.getFinalizedIds().size());
+		List<UUID> kept = finalizedOrder.subList(finalizedOrder.size() - window - 1, finalizedOrder.size());
+		assertEquals(Set.copyOf(kept), finalizer.getFinalizedIds());
+		assertEquals(finalizedOrder.subList(0, finalizedOrder.size() - window - 1), pruned);
+		pruned.forEach(id -> assertFalse(finalizer.getNodesIds().contains(id)));
+		assertEquals(window + 1 + finalizer.getFinalizedWeight(), finalizer.getNodesIds().size());
+	}
+
+	/**
+	 * Forks the chain at the oldest finalized block kept and right after the last finalized block.
+	 * Verifies that both forks are discarded, that the blocks discarded from the window are never part of a fork,
+	 * and that the blocks preceding the window are no longer known, so that blocks referencing them are not ordered.
+	 */
+	@Test
+	void shouldDiscardForksNearWindowEdge() {
+		int window = 3;
+		List<UUID> pruned = new ArrayList<>();
+		BlockFinalizer finalizer = withFinalizedWindow(window, () -> new BlockFinalizer(new UUID(0, 0)));
+		finalizer.setPrunedListener(node -> pruned.add(node.getId()));
+		List<UUID> finalizedOrder = new ArrayList<>(List.of(new UUID(0, 0)));
+		for (int i = 0; i < 20; i++)
+			finalizedOrder.addAll(finalizer.addBlock(UUID.randomUUID(), finalizer.getBlockR(), 1).getLeft());
+		UUID oldestKept = finalizedOrder.get(finalizedOrder.size() - window - 1);
+		UUID lastPruned = finalizedOrder.get(finalizedOrder.size() - window - 2);
+		assertFalse(finalizer.getNodesIds().contains(lastPruned));
+
+		UUID oldFork = UUID.randomUUID();
+		assertTrue(finalizer.addBlock(oldFork, Set.of(oldestKept), 1).getRight().contains(oldFork));
+		assertFalse(finalizer.getNodesIds().contains(oldFork));
+		assertTrue(finalizer.getNodesIds().contains(oldestKept));
+
+		UUID lastFinalized = finalizedOrder.get(finalizedOrder.size() - 1);
+		UUID recentFork = addBlock(finalizer, lastFinalized);
+		recentFork = addBlock(finalizer, recentFork);
+		for (int i = 0; i < 3 * finalizer.getFinalizedWeight(); i++)
+			finalizedOrder.addAll(finalizer.addBlock(UUID.randomUUID(), finalizer.getBlockR(), 1).getLeft());
+		assertFalse(finalizer.getNodesIds().contains(recentFork));
+		assertFalse(finalizedOrder.contains(recentFork));
+		assertEquals(finalizedOrder.subList(0, finalizedOrder.size() - window - 1), pruned);
+		assertEquals(window + 1, finalizer.getFinalizedIds().size());
+	}
+
+	/**
+	 * Verifies that a {@link Blockchain} hands the discarded blocks to the archiver with their Chain and rank,
+	 * including the blocks discarded as soon as these are finalized.
+	 */
+	@Test
+	void shouldArchiveDiscardedBlocksInFinalizationOrder() {
+		FixedApplicationObliviousValidator.getSingleton()
+				.setCustomValidator(new LedgerManagerTests.DummyApplicationObliviousValidator());
+		UUID chainId = UUID.randomUUID();
+		Blockchain blockchain = withFinalizedWindow(0, () -> new Blockchain(chainId));
+		List<BlockmessBlock> archived = new ArrayList<>();
+		blockchain.setFinalizedBlockArchiver(archived::add);
+		var observer = new LedgerManagerTests.LedgerManagerObserver();
+		blockchain.attachObserver(observer);
+		Map<UUID, BlockmessBlock> submitted = new HashMap<>();
+		for (int i = 0; i < 20; i++) {
+			BlockmessBlock block = new LedgerManagerTests.DummyBlockmessBlock(UUID.randomUUID(), chainId,
+					List.copyOf(blockchain.getBlockR()), new ContentList(Collections.emptyList()), i, i + 1, null);
+			submitted.put(block.getBlockId(), block);
+			blockchain.submitBlock(block);
+		}
+
+		List<UUID> finalized = observer.getFinalized();
+		assertFalse(finalized.isEmpty());
+		List<BlockmessBlock> expected = finalized.subList(0, finalized.size() - 1).stream()
+				.map(submitted::get)
+				.collect(Collectors.toList());
+		assertEquals(expected, archived);
+		for (int i = 0; i < archived.size(); i++) {
+			assertEquals(chainId, archived.get(i).getDestinationChain());
+			assertEquals(i, archived.get(i).getBlockRank());
+		}
+	}
+
+	private static UUID addBlock(BlockFinalizer finalizer, UUID prev) {
+		UUID id = UUID.randomUUID();
+		finalizer.addBlock(id, Set.of(prev), 1);
+		return id;
+	}
+
+	/**
+	 * Creates an object reading the finalized window from the properties, restoring the properties afterwards.
+	 */
+	private static <T> T withFinalizedWindow(int finalizedWindow, Supplier<T> create) {
+		Properties props = GlobalProperties.getProps();
+		Properties windowed = new Properties();
+		windowed.putAll(props);
+		windowed.setProperty("finalizedWindow", String.valueOf(finalizedWindow));
+		GlobalProperties.setProps(windowed);
+		try {
+			return create.get();
+		} finally {
+			GlobalProperties.setProps(props);
+		}
+	}
+
 }
@@ -0,0 +1,71 @@
+import broadcastProtocols.BroadcastValue;
+import cmux.AppOperation;
+import ledger.blocks.BlockmessBlock;
+import ledger.blocks.BlockmessBlockImp;
+import ledger.blocks.ContentList;
+import org.apache.commons.lang3.tuple.Pair;
+import sybilResistantElection.SybilResistantElectionProof;
+import utils.CryptographicUtils;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates {@link BlockmessBlockImp}s from a single proposer, with random operations and election proofs.
+ * <p>Registers the serializers of the fields of the blocks, so that these can be serialized and deserialized.</p>
+ */
+public class BlockGenerator {
+
+	private final KeyPair proposer = CryptographicUtils.generateECDSAKeyPair();
+
+	private final Random random;
+
+	public BlockGenerator(Random random) {
+		this.random = random;
+		BroadcastValue.pojoSerializers.put(BlockmessBlockImp.ID, BlockmessBlockImp.serializer);
+		BroadcastValue.pojoSerializers.put(ContentList.ID, ContentList.serializer);
+		BroadcastValue.pojoSerializers.put(SybilResistantElectionProof.ID, SybilResistantElectionProof.serializer);
+		BroadcastValue.pojoSerializers.put(AppOperation.ID, AppOperation.serializer);
+	}
+
+	/**
+	 * Generates a block whose election proof has a seed for its destination Chain.
+	 */
+	public BlockmessBlock genBlock(List<UUID> prevRefs, List<AppOperation> content, UUID destinationChain,
+								   long rank, long nextRank) throws Exception {
+		return genBlock(prevRefs, content, List.of(destinationChain), destinationChain, rank, nextRank);
+	}
+
+	/**
+	 * Generates a block whose election proof has a seed for each of the given Chains.
+	 */
+	public BlockmessBlock genBlock(List<UUID> prevRefs, List<AppOperation> content, List<UUID> seedChains,
+								   UUID destinationChain, long rank, long nextRank) throws Exception {
+		List<Pair<UUID, byte[]>> chainSeeds = new ArrayList<>(seedChains.size());
+		for (UUID chainId : seedChains)
+			chainSeeds.add(Pair.of(chainId, genBytes(32)));
+		SybilResistantElectionProof proof = new SybilResistantElectionProof(chainSeeds, random.nextInt());
+		return new BlockmessBlockImp(1, prevRefs, new ContentList(content), proof, proposer,
+				destinationChain, rank, nextRank);
+	}
+
+	/**
+	 * Generates operations whose content has a random length in [minLength, maxLength).
+	 */
+	public List<AppOperation> genOperations(int numOperations, int minLength, int maxLength) {
+		List<AppOperation> operations = new ArrayList<>(numOperations);
+		for (int i = 0; i < numOperations; i++)
+			operations.add(new AppOperation(genBytes(minLength + random.nextInt(maxLength - minLength)), genBytes(8)));
+		return operations;
+	}
+
+	public byte[] genBytes(int length) {
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+
+}
@@ -0,0 +1,185 @@
+import applicationInterface.BlockmessLauncher;
+import applicationInterface.GlobalProperties;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import ledger.blockStore.BlockStore;
+import ledger.blocks.BlockmessBlock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.unl.fct.di.novasys.babel.core.Babel;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockStoreTests {
+
+	private static final int SEGMENT_SIZE = 4096;
+
+	private final BlockGenerator generator = new BlockGenerator(new Random(42));
+
+	private final UUID chainId = UUID.randomUUID();
+
+	private long nextRank = 0;
+
+	@TempDir
+	Path directory;
+
+	public BlockStoreTests() throws Exception {
+		try {
+			GlobalProperties.getProps();
+		} catch (GlobalProperties.GlobalPropertiesNotInitializedException e) {
+			GlobalProperties.setProps(Babel.loadConfig(new String[]{}, BlockmessLauncher.DEFAULT_CONF));
+		}
+	}
+
+	@Test
+	public void shouldRetrieveAppendedBlocks() throws Exception {
+		BlockStore store = new BlockStore(directory, SEGMENT_SIZE);
+		List<BlockmessBlock> blocks = genBlocks(5, 2);
+		blocks.forEach(store::storeBlock);
+		store.storeBlock(blocks.get(2));
+
+		assertEquals(blocks.size(), store.getNumBlocks());
+		assertStoresBlocks(store, blocks);
+		for (BlockmessBlock block : blocks)
+			assertEquals(block.getBlockId(), ((BlockmessBlock) store.getBlock(block.getBlockId()).get()).getBlockId());
+		assertFalse(store.hasBlock(UUID.randomUUID()));
+	}
+
+	@Test
+	public void shouldReindexBlocksOnRestart() throws Exception {
+		BlockStore store = new BlockStore(directory, SEGMENT_SIZE);
+		List<BlockmessBlock> blocks = genBlocks(5, 2);
+		blocks.forEach(store::storeBlock);
+		store.flush();
+
+		BlockStore restarted = new BlockStore(directory, SEGMENT_SIZE);
+		assertEquals(blocks.size(), restarted.getNumBlocks());
+		assertStoresBlocks(restarted, blocks);
+
+		List<BlockmessBlock> appended = genBlocks(2, 2);
+		appended.forEach(restarted::storeBlock);
+		restarted.flush();
+		blocks.addAll(appended);
+
+		BlockStore restartedAgain = new BlockStore(directory, SEGMENT_SIZE);
+		assertEquals(blocks.size(), restartedAgain.getNumBlocks());
+		assertStoresBlocks(restartedAgain, blocks);
+	}
+
+	@Test
+	public void shouldIgnoreTornRecord() throws Exception {
+		BlockStore store = new BlockStore(directory, SEGMENT_SIZE);
+		List<BlockmessBlock> blocks = genBlocks(3, 2);
+		blocks.forEach(store::storeBlock);
+		store.flush();
+		BlockmessBlock torn = blocks.remove(blocks.size() - 1);
+		corruptRecord(torn.getBlockId());
+
+		BlockStore restarted = new BlockStore(directory, SEGMENT_SIZE);
+		assertEquals(blocks.size(), restarted.getNumBlocks());
+		assertFalse(restarted.hasBlock(torn.getBlockId()));
+		assertStoresBlocks(restarted, blocks);
+
+		BlockmessBlock replacement = genBlock(1);
+		restarted.storeBlock(replacement);
+		restarted.flush();
+		blocks.add(replacement);
+
+		BlockStore restartedAgain = new BlockStore(directory, SEGMENT_SIZE);
+		assertEquals(blocks.size(), restartedAgain.getNumBlocks());
+		assertFalse(restartedAgain.hasBlock(torn.getBlockId()));
+		assertStoresBlocks(restartedAgain, blocks);
+	}
+
+	@Test
+	public void shouldRollOverSegments() throws Exception {
+		BlockStore store = new BlockStore(directory, SEGMENT_SIZE);
+		List<BlockmessBlock> blocks = genBlocks(20, 5);
+		blocks.add(genBlock(40));
+		blocks.addAll(genBlocks(3, 1));
+		blocks.forEach(store::storeBlock);
+		store.flush();
+
+		assertTrue(getSegmentFiles().size() > 2);
+		assertEquals(SEGMENT_SIZE, Files.size(getSegmentFiles().get(0)));
+		assertStoresBlocks(store, blocks);
+
+		BlockStore restarted = new BlockStore(directory, SEGMENT_SIZE);
+		assertEquals(blocks.size(), restarted.getNumBlocks());
+		assertStoresBlocks(restarted, blocks);
+	}
+
+	private void assertStoresBlocks(BlockStore store, List<BlockmessBlock> blocks) throws Exception {
+		for (BlockmessBlock block : blocks) {
+			assertTrue(store.hasBlock(block.getBlockId()));
+			ByteBuf stored = store.getSerializedBlock(block.getBlockId()).get();
+			assertArrayEquals(serialize(block), ByteBufUtil.getBytes(stored));
+			assertEquals(block.getBlockId(), store.getChainBlocks(chainId).get(block.getBlockRank()));
+		}
+	}
+
+	/**
+	 * Modifies a byte in the record of a block, as if the page holding it was not written before a crash.
+	 */
+	private void corruptRecord(UUID blockId) throws Exception {
+		byte[] id = ByteBuffer.allocate(2 * Long.BYTES)
+				.putLong(blockId.getMostSignificantBits())
+				.putLong(blockId.getLeastSignificantBits())
+				.array();
+		for (Path segmentFile : getSegmentFiles()) {
+			byte[] content = Files.readAllBytes(segmentFile);
+			int position = indexOf(content, id);
+			if (position < 0)
+				continue;
+			try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.WRITE)) {
+				channel.write(ByteBuffer.wrap(new byte[]{(byte) ~content[position + id.length]}),
+						position + id.length);
+			}
+			return;
+		}
+		fail("Record not found");
+	}
+
+	private static int indexOf(byte[] content, byte[] pattern) {
+		for (int i = 0; i + pattern.length <= content.length; i++)
+			if (Arrays.equals(content, i, i + pattern.length, pattern, 0, pattern.length))
+				return i;
+		return -1;
+	}
+
+	private List<Path> getSegmentFiles() throws Exception {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.sorted().collect(toList());
+		}
+	}
+
+	private static byte[] serialize(BlockmessBlock block) throws Exception {
+		ByteBuf serialized = Unpooled.buffer();
+		block.getSerializer().serialize(block, serialized);
+		return ByteBufUtil.getBytes(serialized);
+	}
+
+	private List<BlockmessBlock> genBlocks(int numBlocks, int numOperations) throws Exception {
+		List<BlockmessBlock> blocks = new ArrayList<>(numBlocks);
+		for (int i = 0; i < numBlocks; i++)
+			blocks.add(genBlock(numOperations));
+		return blocks;
+	}
+
+	private BlockmessBlock genBlock(int numOperations) throws Exception {
+		long rank = nextRank++;
+		return generator.genBlock(List.of(UUID.randomUUID()), generator.genOperations(numOperations, 100, 200),
+				chainId, rank, rank + 1);
+	}
+
+}
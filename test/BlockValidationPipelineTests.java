@@ -0,0 +1,144 @@
+import ledger.blockchain.BlockScheduler;
+import ledger.blockchain.ScheduledBlock;
+import ledger.blocks.BlockmessBlock;
+import org.junit.jupiter.api.Test;
+import validators.ApplicationObliviousValidator;
+import validators.BlockValidationPipeline;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockValidationPipelineTests {
+
+	private static final long TIMEOUT = 10;
+
+	/**
+	 * Validator recording the thread validating each block, and holding the validation of a block until released.
+	 */
+	private static class HoldingValidator implements ApplicationObliviousValidator {
+
+		private final Map<UUID, Thread> validatingThreads = new ConcurrentHashMap<>();
+
+		private final UUID heldBlock;
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		HoldingValidator(UUID heldBlock) {
+			this.heldBlock = heldBlock;
+		}
+
+		@Override
+		public boolean isBlockValid(BlockmessBlock block) {
+			validatingThreads.put(block.getBlockId(), Thread.currentThread());
+			if (block.getBlockId().equals(heldBlock)) {
+				started.countDown();
+				try {
+					release.await(TIMEOUT, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isProofValid(BlockmessBlock block) {
+			return true;
+		}
+	}
+
+	@Test
+	public void shouldDeliverParentBeforeChildValidatedFirst() throws Exception {
+		UUID genesis = UUID.randomUUID();
+		BlockmessBlock parent = genBlock(genesis);
+		BlockmessBlock child = genBlock(parent.getBlockId());
+		HoldingValidator validator = new HoldingValidator(parent.getBlockId());
+		BlockValidationPipeline pipeline = new BlockValidationPipeline(2, 16, validator);
+		BlockScheduler scheduler = new BlockScheduler();
+		Set<UUID> delivered = new HashSet<>(Set.of(genesis));
+		List<UUID> submissionOrder = new ArrayList<>();
+		List<UUID> deliveryOrder = new ArrayList<>();
+		CountDownLatch childSubmitted = new CountDownLatch(1);
+		CountDownLatch allDelivered = new CountDownLatch(2);
+		pipeline.submitBlock(parent, block -> schedule(block, pipeline, scheduler, delivered,
+				submissionOrder, deliveryOrder, allDelivered));
+		assertTrue(validator.started.await(TIMEOUT, TimeUnit.SECONDS));
+		pipeline.submitBlock(child, block -> {
+			schedule(block, pipeline, scheduler, delivered, submissionOrder, deliveryOrder, allDelivered);
+			childSubmitted.countDown();
+		});
+		assertTrue(childSubmitted.await(TIMEOUT, TimeUnit.SECONDS));
+		assertTrue(deliveryOrder.isEmpty());
+		validator.release.countDown();
+		assertTrue(allDelivered.await(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(List.of(child.getBlockId(), parent.getBlockId()), submissionOrder);
+		assertEquals(List.of(parent.getBlockId(), child.getBlockId()), deliveryOrder);
+	}
+
+	@Test
+	public void shouldValidateInCallerWhenQueueIsFull() throws Exception {
+		BlockmessBlock held = genBlock(UUID.randomUUID());
+		BlockmessBlock queued = genBlock(UUID.randomUUID());
+		BlockmessBlock overflow = genBlock(UUID.randomUUID());
+		HoldingValidator validator = new HoldingValidator(held.getBlockId());
+		BlockValidationPipeline pipeline = new BlockValidationPipeline(1, 1, validator);
+		List<UUID> submitted = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch done = new CountDownLatch(3);
+		pipeline.submitBlock(held, block -> {
+			submitted.add(block.getBlockId());
+			done.countDown();
+		});
+		assertTrue(validator.started.await(TIMEOUT, TimeUnit.SECONDS));
+		pipeline.submitBlock(queued, block -> {
+			submitted.add(block.getBlockId());
+			done.countDown();
+		});
+		pipeline.submitBlock(overflow, block -> {
+			submitted.add(block.getBlockId());
+			done.countDown();
+		});
+		assertSame(Thread.currentThread(), validator.validatingThreads.get(overflow.getBlockId()));
+		validator.release.countDown();
+		assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(Set.of(held.getBlockId(), queued.getBlockId(), overflow.getBlockId()), new HashSet<>(submitted));
+		assertNotSame(Thread.currentThread(), validator.validatingThreads.get(queued.getBlockId()));
+	}
+
+	/**
+	 * Submits a validated block to the scheduler as the {@link ledger.blockchain.Blockchain} does,
+	 * delivering it and its descendants once its previous block has been delivered.
+	 * <p>Always called from the submitter thread of the pipeline.</p>
+	 */
+	private static void schedule(BlockmessBlock block, BlockValidationPipeline pipeline, BlockScheduler scheduler,
+								 Set<UUID> delivered, List<UUID> submissionOrder, List<UUID> deliveryOrder,
+								 CountDownLatch done) {
+		submissionOrder.add(block.getBlockId());
+		assertTrue(pipeline.isBlockValid(block));
+		UUID prev = block.getPrevRefs().get(0);
+		ScheduledBlock scheduled = new ScheduledBlock(block.getBlockId(), Set.of(prev));
+		if (!delivered.contains(prev)) {
+			scheduler.submitUnorderedBlock(scheduled, Set.of(prev));
+			return;
+		}
+		List<UUID> ordering = scheduler.getValidOrdering(scheduled).stream()
+				.map(ScheduledBlock::getId).collect(toList());
+		for (UUID id : ordering) {
+			delivered.add(id);
+			deliveryOrder.add(id);
+			done.countDown();
+		}
+	}
+
+	private static BlockmessBlock genBlock(UUID prev) {
+		return new LedgerManagerTests.DummyBlockmessBlock(UUID.randomUUID(), new UUID(0, 0), List.of(prev),
+				null, 0, 1, null);
+	}
+
+}
@@ -0,0 +1,112 @@
+import applicationInterface.BlockmessLauncher;
+import applicationInterface.GlobalProperties;
+import applicationInterface.OperationInclusionProof;
+import cmux.AppOperation;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import ledger.blocks.BlockmessBlock;
+import ledger.blocks.BlockmessBlockImp;
+import org.junit.jupiter.api.Test;
+import pt.unl.fct.di.novasys.babel.core.Babel;
+import utils.merkleTree.MerkleProof;
+import utils.merkleTree.MerkleRoot;
+
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that the id computed by the receiver of a block, from the slices of the received buffer,
+ * matches the id computed by its proposer, and that the id commits to the content of the block.
+ */
+public class BlockmessBlockImpTests {
+
+	private final BlockGenerator generator = new BlockGenerator(new Random(42));
+
+	public BlockmessBlockImpTests() throws Exception {
+		try {
+			GlobalProperties.getProps();
+		} catch (GlobalProperties.GlobalPropertiesNotInitializedException e) {
+			GlobalProperties.setProps(Babel.loadConfig(new String[]{}, BlockmessLauncher.DEFAULT_CONF));
+		}
+	}
+
+	@Test
+	public void shouldKeepIdOfBlockWithSinglePrevious() throws Exception {
+		assertSameIdAfterRoundtrip(genBlock(1, genContent(10), 1));
+	}
+
+	@Test
+	public void shouldKeepIdOfBlockWithSeveralPrevious() throws Exception {
+		assertSameIdAfterRoundtrip(genBlock(5, genContent(10), 3));
+	}
+
+	@Test
+	public void shouldKeepIdOfBlockWithEmptyContent() throws Exception {
+		assertSameIdAfterRoundtrip(genBlock(1, Collections.emptyList(), 1));
+		assertSameIdAfterRoundtrip(genBlock(4, Collections.emptyList(), 2));
+	}
+
+	@Test
+	public void shouldAnchorInclusionProofToBlockId() throws Exception {
+		BlockmessBlock block = roundtrip(genBlock(2, genContent(10), 2));
+		List<byte[]> operationHashes = block.getContentList().getContentList().stream()
+				.map(AppOperation::getHashVal)
+				.collect(toList());
+		MerkleRoot contentTree = new MerkleRoot(operationHashes);
+		byte[] operationHash = operationHashes.get(3);
+		MerkleProof proof = contentTree.generateProof(operationHash).orElseThrow();
+		assertTrue(new OperationInclusionProof(block.getBlockId(), block.getInherentWeight(), block.getPrevRefs(),
+				block.getProof(), block.getDestinationChain(), contentTree.getHashValue(), operationHash, proof)
+				.verify(block.getBlockId(), operationHash));
+
+		byte[] forgedHash = generator.genBytes(operationHash.length);
+		MerkleRoot forgedTree = new MerkleRoot(List.of(forgedHash, operationHashes.get(0)));
+		OperationInclusionProof forged = new OperationInclusionProof(block.getBlockId(), block.getInherentWeight(),
+				block.getPrevRefs(), block.getProof(), block.getDestinationChain(), forgedTree.getHashValue(),
+				forgedHash, forgedTree.generateProof(forgedHash).orElseThrow());
+		assertFalse(forged.verify(block.getBlockId(), forgedHash));
+	}
+
+	private void assertSameIdAfterRoundtrip(BlockmessBlock block) throws Exception {
+		BlockmessBlock received = roundtrip(block);
+		assertEquals(block.getBlockId(), received.getBlockId());
+		assertEquals(block.getPrevRefs(), received.getPrevRefs());
+		assertEquals(block.getContentList().getContentList().size(), received.getContentList().getContentList().size());
+		assertEquals(block.getDestinationChain(), received.getDestinationChain());
+		assertEquals(block.getBlockRank(), received.getBlockRank());
+		assertEquals(block.getNextRank(), received.getNextRank());
+	}
+
+	/**
+	 * Serializes the block after unrelated bytes, as in a message holding other fields before the block,
+	 * so that the slices of the receiver do not start at the beginning of the buffer.
+	 */
+	private static BlockmessBlock roundtrip(BlockmessBlock block) throws Exception {
+		ByteBuf buf = Unpooled.buffer();
+		buf.writeLong(-1);
+		BlockmessBlockImp.serializer.serialize(block, buf);
+		buf.writeLong(-1);
+		buf.skipBytes(Long.BYTES);
+		BlockmessBlock received = (BlockmessBlock) BlockmessBlockImp.serializer.deserialize(buf);
+		assertEquals(Long.BYTES, buf.readableBytes());
+		return received;
+	}
+
+	private BlockmessBlock genBlock(int numPrevs, List<AppOperation> content, int numChainSeeds) throws Exception {
+		return generator.genBlock(genIds(numPrevs), content, genIds(numChainSeeds), UUID.randomUUID(), 3, 7);
+	}
+
+	private static List<UUID> genIds(int numIds) {
+		List<UUID> ids = new ArrayList<>(numIds);
+		for (int i = 0; i < numIds; i++)
+			ids.add(UUID.randomUUID());
+		return ids;
+	}
+
+	private List<AppOperation> genContent(int numOperations) {
+		return generator.genOperations(numOperations, 1, 201);
+	}
+
+}
@@ -0,0 +1,238 @@
+import applicationInterface.BlockmessLauncher;
+import applicationInterface.GlobalProperties;
+import cmux.AppOperation;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import ledger.blocks.BlockmessBlock;
+import ledger.ledgerManager.LedgerManager;
+import ledger.ledgerManager.nodes.BlockmessChain;
+import ledger.ledgerManager.nodes.ChainTreeSnapshot;
+import ledger.ledgerManager.nodes.ReferenceNode;
+import mempoolManager.MempoolChunk;
+import mempoolManager.MempoolManager;
+import operationMapper.ComposableOperationMapperImp;
+import org.junit.jupiter.api.Test;
+import pt.unl.fct.di.novasys.babel.core.Babel;
+import validators.FixedApplicationObliviousValidator;
+
+import java.io.IOException;
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that the state of the {@link LedgerManager} and of the mempool survives a snapshot.
+ * <p>The LedgerManagers are decoded from snapshots instead of using the singleton,
+ * and so have no thread delivering their finalized blocks.
+ * The tests deliver these and serialize the snapshots themselves.</p>
+ */
+public class ChainTreeSnapshotTests {
+
+    private final Random random = new Random(42);
+
+    private final BlockGenerator generator = new BlockGenerator(random);
+
+    private final Map<UUID, BlockmessBlock> submitted = new HashMap<>();
+
+    public ChainTreeSnapshotTests() throws Exception {
+        try {
+            GlobalProperties.getProps();
+        } catch (GlobalProperties.GlobalPropertiesNotInitializedException e) {
+            GlobalProperties.setProps(Babel.loadConfig(new String[]{}, BlockmessLauncher.DEFAULT_CONF));
+        }
+        FixedApplicationObliviousValidator.getSingleton()
+                .setCustomValidator(new LedgerManagerTests.DummyApplicationObliviousValidator());
+    }
+
+    @Test
+    void shouldRestoreChainsAndConfirmationBar() throws Exception {
+        LedgerManager ledger = genLedger();
+        ledger.getOrigin().spawnPermanentChildren(UUID.randomUUID(), UUID.randomUUID());
+        ledger.deliverFinalizedBlocksAsync();
+        for (int i = 0; i < ledger.getFinalizedWeight() + 3; i++)
+            submitRound(genRound(ledger, i % 2 == 0), ledger);
+        ledger.submitOperations(genOperations(5));
+        ledger.deliverFinalizedBlocksAsync();
+        assertEquals(3, ledger.getChains().size());
+        assertTrue(ledger.getConfirmBar() > 0);
+
+        LedgerManager restored = roundtrip(ledger);
+
+        assertSameState(ledger, restored);
+    }
+
+    @Test
+    void shouldFinalizeSameBlocksAfterRestore() throws Exception {
+        LedgerManager ledger = genLedger();
+        ledger.getOrigin().spawnPermanentChildren(UUID.randomUUID(), UUID.randomUUID());
+        ledger.deliverFinalizedBlocksAsync();
+        for (int i = 0; i < ledger.getFinalizedWeight() + 2; i++)
+            submitRound(genRound(ledger, i % 3 == 0), ledger);
+        ledger.deliverFinalizedBlocksAsync();
+        LedgerManager restored = roundtrip(ledger);
+        var expected = new LedgerManagerTests.LedgerManagerObserver();
+        var actual = new LedgerManagerTests.LedgerManagerObserver();
+        ledger.attachObserver(expected);
+        restored.attachObserver(actual);
+
+        for (int i = 0; i < ledger.getFinalizedWeight() + 2; i++)
+            submitRound(genRound(ledger, i % 2 == 0), ledger, restored);
+        ledger.deliverFinalizedBlocksAsync();
+        restored.deliverFinalizedBlocksAsync();
+
+        assertFalse(expected.getFinalized().isEmpty());
+        assertEquals(expected.getFinalized(), actual.getFinalized());
+        assertSameState(ledger, restored);
+    }
+
+    @Test
+    void shouldRejectTruncatedSnapshot() throws Exception {
+        LedgerManager ledger = genLedger();
+        for (int i = 0; i < 3; i++)
+            submitRound(genRound(ledger, false), ledger);
+        ByteBuf snapshot = Unpooled.buffer();
+        ledger.serializeSnapshot(snapshot);
+        ByteBuf truncated = snapshot.slice(0, snapshot.readableBytes() / 2);
+        assertThrows(Exception.class, () -> LedgerManager.decodeSnapshot(truncated));
+    }
+
+    @Test
+    void shouldRestoreMempoolChunksAfterThosePrecedingThem() throws Exception {
+        MempoolChunk first = new MempoolChunk(UUID.randomUUID(), Set.of(UUID.randomUUID()), genOperations(3));
+        MempoolChunk lft = new MempoolChunk(UUID.randomUUID(), Set.of(first.getId()), genOperations(2));
+        MempoolChunk rgt = new MempoolChunk(UUID.randomUUID(), Set.of(first.getId()), genOperations(2));
+        MempoolChunk joined = new MempoolChunk(UUID.randomUUID(), Set.of(lft.getId(), rgt.getId()), genOperations(1));
+        ByteBuf snapshot = Unpooled.buffer();
+        MempoolManager.serializeChunks(List.of(joined, rgt, first, lft), snapshot);
+
+        List<MempoolChunk> restored = MempoolManager.decodeSnapshot(snapshot);
+
+        assertFalse(snapshot.isReadable());
+        List<UUID> order = restored.stream().map(MempoolChunk::getId).collect(toList());
+        assertEquals(Set.of(first.getId(), lft.getId(), rgt.getId(), joined.getId()), Set.copyOf(order));
+        assertTrue(order.indexOf(first.getId()) < order.indexOf(lft.getId()));
+        assertTrue(order.indexOf(first.getId()) < order.indexOf(rgt.getId()));
+        assertTrue(order.indexOf(lft.getId()) < order.indexOf(joined.getId()));
+        assertTrue(order.indexOf(rgt.getId()) < order.indexOf(joined.getId()));
+        for (MempoolChunk original : List.of(first, lft, rgt, joined)) {
+            MempoolChunk chunk = restored.get(order.indexOf(original.getId()));
+            assertEquals(original.getPreviousIds(), chunk.getPreviousIds());
+            assertEquals(original.getUsedIds(), chunk.getUsedIds());
+        }
+        Set<UUID> expectedUsed = new HashSet<>();
+        List.of(first, lft, rgt, joined).forEach(chunk -> expectedUsed.addAll(chunk.getUsedIds()));
+        Set<UUID> cumulativeUsed = new HashSet<>();
+        restored.get(order.indexOf(joined.getId())).getCumulativeUsedIds().forEach(cumulativeUsed::add);
+        assertEquals(expectedUsed, cumulativeUsed);
+    }
+
+    @Test
+    void shouldRejectMempoolChunksPrecedingEachOther() throws Exception {
+        UUID lftId = UUID.randomUUID();
+        UUID rgtId = UUID.randomUUID();
+        ByteBuf snapshot = Unpooled.buffer();
+        MempoolManager.serializeChunks(List.of(
+                new MempoolChunk(lftId, Set.of(rgtId), genOperations(1)),
+                new MempoolChunk(rgtId, Set.of(lftId), genOperations(1))), snapshot);
+        assertThrows(IOException.class, () -> MempoolManager.decodeSnapshot(snapshot));
+    }
+
+    /**
+     * Decodes a LedgerManager with a single Chain, as the one initially created by the singleton.
+     */
+    private static LedgerManager genLedger() throws IOException {
+        ReferenceNode origin = new ReferenceNode(GlobalProperties.getProps(), UUID.randomUUID(), null,
+                0, 1, 0, new ComposableOperationMapperImp());
+        ByteBuf genesis = Unpooled.buffer();
+        genesis.writeLong(0);
+        ChainTreeSnapshot.serialize(List.of(origin), genesis);
+        return LedgerManager.decodeSnapshot(genesis);
+    }
+
+    private static LedgerManager roundtrip(LedgerManager ledger) throws IOException {
+        ByteBuf snapshot = Unpooled.buffer();
+        ledger.serializeSnapshot(snapshot);
+        LedgerManager restored = LedgerManager.decodeSnapshot(snapshot);
+        assertFalse(snapshot.isReadable());
+        return restored;
+    }
+
+    private void assertSameState(LedgerManager expected, LedgerManager actual) {
+        assertEquals(expected.getConfirmBar(), actual.getConfirmBar());
+        assertEquals(List.copyOf(expected.getChains().keySet()), List.copyOf(actual.getChains().keySet()));
+        assertEquals(getIds(expected.getAvailableChains()), getIds(actual.getAvailableChains()));
+        assertEquals(getOperationIds(expected.getStoredOperations()), getOperationIds(actual.getStoredOperations()));
+        for (BlockmessChain chain : expected.getChains().values()) {
+            BlockmessChain restored = actual.getChains().get(chain.getChainId());
+            assertEquals(chain.getMinimumRank(), restored.getMinimumRank());
+            assertEquals(chain.getNextRank(), restored.getNextRank());
+            assertEquals(chain.countReferencedPermanent(), restored.countReferencedPermanent());
+            assertEquals(getIds(chain.getPriorityChains()), getIds(restored.getPriorityChains()));
+            assertEquals(chain.getNumFinalizedPending(), restored.getNumFinalizedPending());
+            assertEquals(chain.getBlockR(), restored.getBlockR());
+            assertSameBlocks(chain, restored);
+        }
+    }
+
+    /**
+     * Compares the blocks not yet finalized in both Chains, along with their references and weights.
+     */
+    private void assertSameBlocks(BlockmessChain expected, BlockmessChain actual) {
+        Map<UUID, List<UUID>> expectedBlocks = getPrevRefs(expected.getBlocks(submitted.keySet()));
+        Map<UUID, List<UUID>> actualBlocks = getPrevRefs(actual.getBlocks(submitted.keySet()));
+        assertEquals(expectedBlocks, actualBlocks);
+        for (UUID blockId : expectedBlocks.keySet()) {
+            assertEquals(expected.getWeight(blockId), actual.getWeight(blockId));
+            assertEquals(expected.isInLongestChain(blockId), actual.isInLongestChain(blockId));
+        }
+    }
+
+    private static Map<UUID, List<UUID>> getPrevRefs(Set<BlockmessBlock> blocks) {
+        Map<UUID, List<UUID>> prevRefs = new HashMap<>();
+        blocks.forEach(block -> prevRefs.put(block.getBlockId(), block.getPrevRefs()));
+        return prevRefs;
+    }
+
+    private static Set<UUID> getIds(Collection<BlockmessChain> chains) {
+        return chains.stream().map(BlockmessChain::getChainId).collect(toSet());
+    }
+
+    private static Set<UUID> getOperationIds(Collection<AppOperation> operations) {
+        return operations.stream().map(AppOperation::getId).collect(toSet());
+    }
+
+    private void submitRound(List<BlockmessBlock> round, LedgerManager... ledgers) {
+        for (BlockmessBlock block : round) {
+            submitted.put(block.getBlockId(), block);
+            for (LedgerManager ledger : ledgers)
+                ledger.submitBlock(block);
+        }
+    }
+
+    /**
+     * Generates a block extending each Chain.
+     * @param fork Whether the origin Chain is extended by two blocks referencing the same previous blocks.
+     */
+    private List<BlockmessBlock> genRound(LedgerManager ledger, boolean fork) throws Exception {
+        List<BlockmessBlock> round = new ArrayList<>();
+        for (BlockmessChain chain : ledger.getChains().values())
+            round.add(genBlock(chain));
+        if (fork)
+            round.add(genBlock(ledger.getOrigin()));
+        return round;
+    }
+
+    private BlockmessBlock genBlock(BlockmessChain chain) throws Exception {
+        Set<UUID> prevRefs = chain.getBlockR();
+        long rank = chain.getRankFromRefs(prevRefs);
+        return generator.genBlock(List.copyOf(prevRefs), genOperations(random.nextInt(3)), chain.getChainId(),
+                rank, rank + 1);
+    }
+
+    private List<AppOperation> genOperations(int numOperations) {
+        return generator.genOperations(numOperations, 1, 101);
+    }
+
+}
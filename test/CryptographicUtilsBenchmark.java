@@ -0,0 +1,94 @@
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import utils.CryptographicUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.security.*;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hashing and signing methods in {@link CryptographicUtils}
+ * against obtaining new MessageDigest and Signature instances on every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CryptographicUtilsBenchmark {
+
+	@Param({"32", "256", "4096"})
+	private int inputSize;
+
+	private byte[] input;
+
+	private final byte[] out = new byte[CryptographicUtils.HASH_LENGTH];
+
+	private KeyPair keys;
+
+	private byte[] signature;
+
+	@Setup
+	public void setup() {
+		input = new byte[inputSize];
+		new Random(0).nextBytes(input);
+		keys = CryptographicUtils.generateECDSAKeyPair();
+		signature = CryptographicUtils.getFieldsSignature(input, keys.getPrivate());
+	}
+
+	@Benchmark
+	public byte[] hashNewInstance() throws NoSuchAlgorithmException {
+		return MessageDigest.getInstance(CryptographicUtils.HASH_ALGORITHM).digest(input);
+	}
+
+	@Benchmark
+	public byte[] hashInput() {
+		return CryptographicUtils.hashInput(input);
+	}
+
+	@Benchmark
+	public byte[] hashInto() {
+		CryptographicUtils.hashInto(input, out, 0);
+		return out;
+	}
+
+	@Benchmark
+	public UUID uuidNewInstance() throws NoSuchAlgorithmException, IOException {
+		byte[] hashedContent = MessageDigest.getInstance(CryptographicUtils.HASH_ALGORITHM).digest(input);
+		try (var in = new DataInputStream(new ByteArrayInputStream(hashedContent))) {
+			return new UUID(in.readLong(), in.readLong());
+		}
+	}
+
+	@Benchmark
+	public UUID generateUUIDFromBytes() {
+		return CryptographicUtils.generateUUIDFromBytes(input);
+	}
+
+	@Benchmark
+	public boolean verifyNewInstance() throws GeneralSecurityException {
+		Signature verifier = Signature.getInstance(CryptographicUtils.SIGN_ALGORITHM);
+		verifier.initVerify(keys.getPublic());
+		verifier.update(input);
+		return verifier.verify(signature);
+	}
+
+	@Benchmark
+	public boolean verifyPojoSignature() throws GeneralSecurityException {
+		return CryptographicUtils.verifyPojoSignature(signature, input, keys.getPublic());
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CryptographicUtilsBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+
+}
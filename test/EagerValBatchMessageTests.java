@@ -0,0 +1,37 @@
+import broadcastProtocols.eagerPush.EagerValBatchMessage;
+import cmux.AppOperation;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EagerValBatchMessageTests {
+
+	/**
+	 * Receivers deduplicate the operations in a batch by their id, which must be the same as the sender's.
+	 */
+	@Test
+	public void shouldKeepOperationIdsWhenSerialized() throws Exception {
+		Random random = new Random(42);
+		List<AppOperation> operations = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			byte[] content = new byte[1 + random.nextInt(500)];
+			random.nextBytes(content);
+			operations.add(new AppOperation(content, new byte[]{(byte) i}));
+		}
+		ByteBuf buf = Unpooled.buffer();
+		EagerValBatchMessage.serializer.serialize(new EagerValBatchMessage((short) 0, operations), buf);
+		EagerValBatchMessage received = EagerValBatchMessage.serializer.deserialize(buf);
+		assertFalse(buf.isReadable());
+		assertEquals(0, received.getDispatcherType());
+		assertEquals(operations.stream().map(AppOperation::getId).collect(toList()),
+				received.getOperations().stream().map(AppOperation::getId).collect(toList()));
+	}
+
+}
@@ -0,0 +1,64 @@
+import org.junit.jupiter.api.Test;
+import utils.merkleTree.FlatMerkleBuilder;
+import utils.merkleTree.MerkleProof;
+import utils.merkleTree.MerkleRoot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlatMerkleBuilderTests {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void shouldMatchMerkleRootForSmallTrees() {
+        for (int numLeaves = 0; numLeaves < 70; numLeaves++) {
+            List<byte[]> leaves = genLeaves(numLeaves);
+            assertArrayEquals(new MerkleRoot(leaves).getHashValue(), FlatMerkleBuilder.computeRoot(leaves));
+            assertArrayEquals(new MerkleRoot(leaves, 8).getHashValue(), FlatMerkleBuilder.computeRoot(leaves, 8));
+        }
+    }
+
+    /**
+     * Large enough to be hashed by several tasks.
+     */
+    @Test
+    void shouldMatchMerkleRootForLargeTrees() {
+        for (int numLeaves : new int[]{1000, 4097, 25001}) {
+            List<byte[]> leaves = genLeaves(numLeaves);
+            assertArrayEquals(new MerkleRoot(leaves).getHashValue(), FlatMerkleBuilder.computeRoot(leaves));
+        }
+    }
+
+    @Test
+    void shouldProveLeavesAgainstMerkleRoot() {
+        for (int numLeaves = 1; numLeaves < 40; numLeaves++) {
+            List<byte[]> leaves = genLeaves(numLeaves);
+            FlatMerkleBuilder tree = FlatMerkleBuilder.build(leaves, 8);
+            MerkleRoot reference = new MerkleRoot(leaves, 8);
+            byte[] root = reference.getHashValue();
+            assertArrayEquals(root, tree.getRoot());
+            for (int i = 0; i < numLeaves; i++) {
+                var proof = tree.generateProof(i);
+                assertEquals(reference.generateProof(leaves.get(i)).isPresent(), proof.isPresent());
+                if (proof.isPresent())
+                    assertTrue(MerkleProof.verify(leaves.get(i), proof.get(), root));
+            }
+        }
+        assertTrue(FlatMerkleBuilder.build(genLeaves(0)).generateProof(0).isEmpty());
+    }
+
+    private List<byte[]> genLeaves(int numLeaves) {
+        List<byte[]> leaves = new ArrayList<>(numLeaves);
+        for (int i = 0; i < numLeaves; i++) {
+            byte[] leaf = new byte[1 + random.nextInt(40)];
+            random.nextBytes(leaf);
+            leaves.add(leaf);
+        }
+        return leaves;
+    }
+
+}
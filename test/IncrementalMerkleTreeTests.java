@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+import utils.merkleTree.IncrementalMerkleTree;
+import utils.merkleTree.MerkleRoot;
+import utils.merkleTree.MerkleTree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalMerkleTreeTests {
+
+    private static final int CUTOFF_POINT = 8;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void shouldMatchMerkleRootOnCreation() {
+        for (int numLeaves = 0; numLeaves < 40; numLeaves++) {
+            List<byte[]> leaves = genLeaves(numLeaves);
+            assertArrayEquals(new MerkleRoot(leaves, CUTOFF_POINT).getHashValue(),
+                    new IncrementalMerkleTree(leaves, CUTOFF_POINT).getHashValue());
+        }
+    }
+
+    @Test
+    void shouldMatchMerkleRootAfterReplacements() {
+        List<byte[]> leaves = genLeaves(37);
+        MerkleTree tree = new IncrementalMerkleTree(leaves, CUTOFF_POINT);
+        for (int i = 0; i < 100; i++) {
+            int replaced = random.nextInt(leaves.size());
+            byte[] newLeaf = genLeaf();
+            assertTrue(tree.replaceLeaf(leaves.get(replaced), newLeaf));
+            leaves.set(replaced, newLeaf);
+            assertArrayEquals(new MerkleRoot(leaves, CUTOFF_POINT).getHashValue(), tree.getHashValue());
+        }
+        assertFalse(tree.replaceLeaf(genLeaf(), genLeaf()));
+    }
+
+    @Test
+    void shouldMatchMerkleRootAfterInsertionsAndRemovals() {
+        List<byte[]> leaves = genLeaves(5);
+        MerkleTree tree = new IncrementalMerkleTree(leaves, CUTOFF_POINT);
+        for (int i = 0; i < 200; i++) {
+            if (leaves.isEmpty() || random.nextBoolean()) {
+                byte[] newLeaf = genLeaf();
+                tree.addLeaf(newLeaf);
+                leaves.add(newLeaf);
+            } else {
+                byte[] removed = leaves.remove(random.nextInt(leaves.size()));
+                assertTrue(tree.removeLeaf(removed));
+            }
+            assertArrayEquals(new MerkleRoot(leaves, CUTOFF_POINT).getHashValue(), tree.getHashValue());
+        }
+    }
+
+    private List<byte[]> genLeaves(int numLeaves) {
+        List<byte[]> leaves = new ArrayList<>(numLeaves);
+        for (int i = 0; i < numLeaves; i++)
+            leaves.add(genLeaf());
+        return leaves;
+    }
+
+    private byte[] genLeaf() {
+        byte[] leaf = new byte[32];
+        random.nextBytes(leaf);
+        return leaf;
+    }
+
+}
@@ -0,0 +1,77 @@
+import broadcastProtocols.InvertibleBloomLookupTable;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvertibleBloomLookupTableTests {
+
+	private static final int NUM_CELLS = 300;
+
+	@Test
+	public void shouldFindDifferencesBetweenLargeSets() {
+		Set<UUID> shared = randomIds(10000);
+		Set<UUID> onlyHere = randomIds(40);
+		Set<UUID> onlyOther = randomIds(30);
+		var here = new InvertibleBloomLookupTable(NUM_CELLS, union(shared, onlyHere));
+		var other = new InvertibleBloomLookupTable(NUM_CELLS, union(shared, onlyOther));
+		Optional<Pair<Set<UUID>, Set<UUID>>> differences = here.subtract(other).decode();
+		assertTrue(differences.isPresent());
+		assertEquals(onlyHere, differences.get().getLeft());
+		assertEquals(onlyOther, differences.get().getRight());
+	}
+
+	@Test
+	public void shouldFailWhenDifferencesExceedCapacity() {
+		var here = new InvertibleBloomLookupTable(NUM_CELLS, randomIds(1000));
+		var other = new InvertibleBloomLookupTable(NUM_CELLS, randomIds(1000));
+		assertTrue(here.subtract(other).decode().isEmpty());
+	}
+
+	@Test
+	public void shouldKeepContentWhenSerialized() throws IOException {
+		Set<UUID> ids = randomIds(50);
+		var table = new InvertibleBloomLookupTable(NUM_CELLS, ids);
+		ByteBuf buf = Unpooled.buffer();
+		table.serialize(buf);
+		var deserialized = InvertibleBloomLookupTable.deserialize(buf, NUM_CELLS);
+		assertEquals(table.getNumCells(), deserialized.getNumCells());
+		var differences = deserialized.subtract(new InvertibleBloomLookupTable(NUM_CELLS)).decode();
+		assertTrue(differences.isPresent());
+		assertEquals(ids, differences.get().getLeft());
+	}
+
+	@Test
+	public void shouldRejectTablesLargerThanMaximum() {
+		var table = new InvertibleBloomLookupTable(NUM_CELLS, randomIds(50));
+		ByteBuf buf = Unpooled.buffer();
+		table.serialize(buf);
+		assertThrows(IOException.class, () -> InvertibleBloomLookupTable.deserialize(buf, NUM_CELLS - 1));
+	}
+
+	@Test
+	public void shouldRejectNumberOfCellsLargerThanMessage() {
+		ByteBuf buf = Unpooled.buffer();
+		buf.writeInt(Integer.MAX_VALUE / 3 * 3);
+		buf.writeZero(InvertibleBloomLookupTable.CELL_BYTES);
+		assertThrows(IOException.class, () -> InvertibleBloomLookupTable.deserialize(buf, Integer.MAX_VALUE));
+	}
+
+	private static Set<UUID> randomIds(int numIds) {
+		return Stream.generate(UUID::randomUUID).limit(numIds).collect(Collectors.toSet());
+	}
+
+	private static Set<UUID> union(Set<UUID> a, Set<UUID> b) {
+		Set<UUID> res = new HashSet<>(a);
+		res.addAll(b);
+		return res;
+	}
+
+}
@@ -0,0 +1,74 @@
+import broadcastProtocols.BroadcastValue;
+import broadcastProtocols.lazyPush.messages.LazyValMessage;
+import cmux.AppOperation;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import valueDispatcher.DispatcherWrapper;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyValMessageTests {
+
+	private final Random random = new Random(42);
+
+	public LazyValMessageTests() {
+		BroadcastValue.pojoSerializers.put(AppOperation.ID, AppOperation.serializer);
+	}
+
+	@Test
+	public void shouldForwardReceivedMessageWithIdenticalBytes() throws Exception {
+		byte[] sent = serialize(genMessage());
+		LazyValMessage received = deserialize(sent);
+		assertArrayEquals(sent, serialize(received));
+	}
+
+	@Test
+	public void shouldForwardReleasedMessageWithIdenticalBytes() throws Exception {
+		byte[] sent = serialize(genMessage());
+		LazyValMessage received = deserialize(sent);
+		received.releaseWireBytes();
+		assertArrayEquals(sent, serialize(received));
+	}
+
+	/**
+	 * The bytes written must be the same whether the message is released before, during or after being serialized.
+	 */
+	@Test
+	public void shouldForwardIdenticalBytesWhenReleasedConcurrently() throws Exception {
+		for (int i = 0; i < 1000; i++) {
+			byte[] sent = serialize(genMessage());
+			LazyValMessage received = deserialize(sent);
+			Thread releaser = new Thread(received::releaseWireBytes);
+			releaser.start();
+			byte[] forwarded = serialize(received);
+			releaser.join();
+			assertArrayEquals(sent, forwarded);
+		}
+	}
+
+	private LazyValMessage genMessage() {
+		byte[] content = new byte[1 + random.nextInt(4096)];
+		random.nextBytes(content);
+		AppOperation operation = new AppOperation(content, new byte[0]);
+		return new LazyValMessage(UUID.randomUUID(), new DispatcherWrapper((short) 0, operation));
+	}
+
+	private static byte[] serialize(LazyValMessage msg) throws Exception {
+		ByteBuf out = Unpooled.buffer();
+		LazyValMessage.serializer.serialize(msg, out);
+		return ByteBufUtil.getBytes(out);
+	}
+
+	private static LazyValMessage deserialize(byte[] bytes) throws Exception {
+		ByteBuf in = Unpooled.wrappedBuffer(bytes);
+		LazyValMessage msg = (LazyValMessage) LazyValMessage.serializer.deserialize(in);
+		assertFalse(in.isReadable());
+		return msg;
+	}
+
+}
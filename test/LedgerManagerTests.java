@@ -2,11 +2,16 @@ import applicationInterface.BlockmessLauncher;
 import applicationInterface.GlobalProperties;
 import broadcastProtocols.BroadcastValue;
 import cmux.AppOperation;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import ledger.LedgerObserver;
 import ledger.blocks.*;
 import ledger.ledgerManager.LedgerManager;
 import ledger.ledgerManager.nodes.BlockmessChain;
+import ledger.ledgerManager.nodes.ChainTreeSnapshot;
+import ledger.ledgerManager.nodes.ReferenceNode;
 import lombok.Getter;
+import operationMapper.ComposableOperationMapperImp;
 import org.junit.jupiter.api.Test;
 import pt.unl.fct.di.novasys.babel.core.Babel;
 import pt.unl.fct.di.novasys.babel.exceptions.InvalidParameterException;
@@ -22,7 +27,9 @@ import java.security.PublicKey;
 import java.util.*;
 
 import static java.lang.Integer.parseInt;
+import static java.util.stream.Collectors.toSet;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -143,6 +150,45 @@ public class LedgerManagerTests {
         }
     }
 
+    /**
+     * Linearizes the finalized blocks as the {@link LedgerManager} did before indexing its Chains,
+     * polling every Chain for the confirmation bar and restarting from the first Chain after each delivered block.
+     * <p>Does not spawn nor merge Chains.</p>
+     */
+    static class PollingLinearizer {
+
+        private long confirmBar;
+
+        PollingLinearizer(long confirmBar) {
+            this.confirmBar = confirmBar;
+        }
+
+        List<UUID> linearize(Collection<BlockmessChain> chains) {
+            List<UUID> res = new ArrayList<>();
+            List<UUID> confirmed;
+            do {
+                confirmBar = chains.stream().mapToLong(BlockmessChain::getNextRank).min().orElse(confirmBar);
+                confirmed = confirmBlocksUnderBar(chains);
+                res.addAll(confirmed);
+            } while (!confirmed.isEmpty());
+            return res;
+        }
+
+        private List<UUID> confirmBlocksUnderBar(Collection<BlockmessChain> chains) {
+            List<UUID> res = new ArrayList<>();
+            Iterator<BlockmessChain> chainIterator = chains.iterator();
+            while (chainIterator.hasNext()) {
+                BlockmessChain chain = chainIterator.next();
+                BlockmessBlock headBlock = chain.peekFinalized();
+                if (headBlock != null && headBlock.getBlockRank() < confirmBar) {
+                    res.add(chain.deliverChainBlock().getBlockId());
+                    chainIterator = chains.iterator();
+                }
+            }
+            return res;
+        }
+    }
+
     private final KeyPair proposer = CryptographicUtils.generateECDSAKeyPair();
 
     Properties props = Babel.loadConfig(new String[]{"initialNumChains=1", "minNumChains=1", "maxNumChains=999"}, BlockmessLauncher.DEFAULT_CONF);
@@ -219,6 +265,64 @@ public class LedgerManagerTests {
         //return ledgerManagerObserver.getFinalized().size();
     }*/
 
+    @Test
+    void shouldLinearizeInterleavedBurstsAsPollingChains() throws Exception {
+        GlobalProperties.setProps(Babel.loadConfig(new String[]{"minNumChains=3", "maxNumChains=3"}, BlockmessLauncher.DEFAULT_CONF));
+        LedgerManager ledgerManager = genDecodedLedger();
+        ledgerManager.getOrigin().spawnPermanentChildren(UUID.randomUUID(), UUID.randomUUID());
+        ledgerManager.deliverFinalizedBlocksAsync();
+        ByteBuf snapshot = Unpooled.buffer();
+        ledgerManager.serializeSnapshot(snapshot);
+        LedgerManager reference = LedgerManager.decodeSnapshot(snapshot);
+        List<UUID> chainIds = List.copyOf(ledgerManager.getChains().keySet());
+        assertEquals(3, chainIds.size());
+        assertEquals(chainIds, List.copyOf(reference.getChains().keySet()));
+        LedgerManagerObserver ledgerManagerObserver = new LedgerManagerObserver();
+        ledgerManager.attachObserver(ledgerManagerObserver);
+        PollingLinearizer pollingLinearizer = new PollingLinearizer(reference.getConfirmBar());
+        List<UUID> expected = new ArrayList<>();
+        Map<UUID, UUID> blockChains = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20 * ledgerManager.getFinalizedWeight(); i++) {
+            for (BlockmessChain chain : ledgerManager.getChains().values()) {
+                int burst = random.nextInt(4) == 0 ? random.nextInt(ledgerManager.getFinalizedWeight()) : 0;
+                for (int j = 0; j < burst; j++) {
+                    BlockmessBlock block = genChainedBlock(chain, random);
+                    blockChains.put(block.getBlockId(), chain.getChainId());
+                    ledgerManager.submitBlock(block);
+                    reference.submitBlock(block);
+                }
+            }
+            ledgerManager.deliverFinalizedBlocksAsync();
+            expected.addAll(pollingLinearizer.linearize(reference.getChains().values()));
+            assertEquals(expected, ledgerManagerObserver.getFinalized());
+        }
+
+        assertFalse(expected.isEmpty());
+        assertEquals(Set.copyOf(chainIds), expected.stream().map(blockChains::get).collect(toSet()));
+        assertEquals(chainIds, List.copyOf(ledgerManager.getChains().keySet()));
+    }
+
+    /**
+     * Decodes a LedgerManager with a single Chain, which unlike the singleton has no thread delivering its finalized blocks.
+     */
+    private static LedgerManager genDecodedLedger() throws IOException {
+        ReferenceNode origin = new ReferenceNode(GlobalProperties.getProps(), UUID.randomUUID(), null,
+                0, 1, 0, new ComposableOperationMapperImp());
+        ByteBuf genesis = Unpooled.buffer();
+        genesis.writeLong(0);
+        ChainTreeSnapshot.serialize(List.of(origin), genesis);
+        return LedgerManager.decodeSnapshot(genesis);
+    }
+
+    private BlockmessBlock genChainedBlock(BlockmessChain chain, Random random) {
+        Set<UUID> prevRefs = chain.getBlockR();
+        long rank = chain.getRankFromRefs(prevRefs);
+        ContentList contentList = new ContentList(Collections.emptyList());
+        return new DummyBlockmessBlock(UUID.randomUUID(), chain.getChainId(), List.copyOf(prevRefs), contentList, rank, rank + 1 + random.nextInt(3), proposer.getPublic());
+    }
+
     private BlockmessBlock genSmallBlock(BlockmessChain origin, int currRank, int nextRank) {
         List<UUID> prevRefs = List.copyOf(origin.getBlockR());
         UUID chainId = origin.getChainId();
@@ -0,0 +1,47 @@
+import org.junit.jupiter.api.Test;
+import utils.merkleTree.MerkleProof;
+import utils.merkleTree.MerkleRoot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MerkleProofTests {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void shouldProveEveryLeaf() {
+        for (int numLeaves = 1; numLeaves < 40; numLeaves++) {
+            List<byte[]> leaves = genLeaves(numLeaves);
+            MerkleRoot tree = new MerkleRoot(leaves, 8);
+            byte[] root = tree.getHashValue();
+            for (byte[] leaf : tree.getLeaves()) {
+                MerkleProof proof = tree.generateProof(leaf).orElseThrow();
+                assertTrue(MerkleProof.verify(leaf, proof, root));
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectOtherLeaves() {
+        List<byte[]> leaves = genLeaves(13);
+        MerkleRoot tree = new MerkleRoot(leaves);
+        MerkleProof proof = tree.generateProof(leaves.get(5)).orElseThrow();
+        assertFalse(MerkleProof.verify(leaves.get(6), proof, tree.getHashValue()));
+        assertTrue(tree.generateProof(genLeaves(1).get(0)).isEmpty());
+    }
+
+    private List<byte[]> genLeaves(int numLeaves) {
+        List<byte[]> leaves = new ArrayList<>(numLeaves);
+        for (int i = 0; i < numLeaves; i++) {
+            byte[] leaf = new byte[32];
+            random.nextBytes(leaf);
+            leaves.add(leaf);
+        }
+        return leaves;
+    }
+
+}
@@ -0,0 +1,128 @@
+import applicationInterface.BlockmessLauncher;
+import applicationInterface.GlobalProperties;
+import cmux.AppOperation;
+import mempoolManager.MempoolChunk;
+import mempoolManager.MempoolManager;
+import operationMapper.BaseOperationMapper;
+import operationMapper.OperationMapper;
+import operationMapper.OperationPool;
+import org.junit.jupiter.api.Test;
+import pt.unl.fct.di.novasys.babel.core.Babel;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OperationPoolTests {
+
+	private final Random random = new Random(42);
+
+	public OperationPoolTests() throws Exception {
+		try {
+			GlobalProperties.getProps();
+		} catch (GlobalProperties.GlobalPropertiesNotInitializedException e) {
+			GlobalProperties.setProps(Babel.loadConfig(new String[]{}, BlockmessLauncher.DEFAULT_CONF));
+		}
+	}
+
+	@Test
+	public void shouldAssembleSameListAsBaseOperationMapper() {
+		List<AppOperation> operations = genOperations(500);
+		OperationMapper base = new BaseOperationMapper();
+		OperationMapper pool = new OperationPool();
+		base.submitOperations(operations);
+		pool.submitOperations(operations);
+		List<AppOperation> baseContent = base.generateOperationList(Collections.emptyList(), 0);
+		assertTrue(baseContent.size() < operations.size());
+		assertEquals(getIds(baseContent), getIds(pool.generateOperationList(Collections.emptyList(), 0)));
+	}
+
+	@Test
+	public void shouldAssembleSameListAsBaseOperationMapperAfterDeletions() {
+		List<AppOperation> operations = genOperations(500);
+		OperationMapper base = new BaseOperationMapper();
+		OperationMapper pool = new OperationPool();
+		operations.forEach(base::submitOperation);
+		operations.forEach(pool::submitOperation);
+		Set<UUID> deleted = base.generateOperationList(Collections.emptyList(), 0).stream()
+				.filter(op -> random.nextBoolean())
+				.map(AppOperation::getId)
+				.collect(toSet());
+		base.deleteOperations(deleted);
+		pool.deleteOperations(deleted);
+		assertEquals(operations.size() - deleted.size(), pool.getStoredOperations().size());
+		assertEquals(getIds(base.generateOperationList(Collections.emptyList(), 0)),
+				getIds(pool.generateOperationList(Collections.emptyList(), 0)));
+	}
+
+	@Test
+	public void shouldIgnoreResubmittedOperations() {
+		List<AppOperation> operations = genOperations(10);
+		OperationMapper pool = new OperationPool();
+		pool.submitOperations(operations);
+		pool.submitOperations(operations);
+		assertEquals(operations.size(), pool.getStoredOperations().size());
+	}
+
+	@Test
+	public void shouldResumeAfterUsedOperations() {
+		List<AppOperation> operations = genOperations(500);
+		OperationMapper base = new BaseOperationMapper();
+		OperationMapper pool = new OperationPool();
+		base.submitOperations(operations);
+		pool.submitOperations(operations);
+		List<AppOperation> firstContent = pool.generateOperationList(Collections.emptyList(), 0);
+		UUID state = UUID.randomUUID();
+		MempoolManager.getSingleton().restoreChunks(List.of(
+				new MempoolChunk(state, Set.of(UUID.randomUUID()), firstContent.subList(0, firstContent.size() / 2))));
+		List<UUID> states = List.of(state);
+
+		for (int i = 0; i < 3; i++)
+			assertEquals(getIds(base.generateOperationList(states, 0)),
+					getIds(pool.generateOperationList(states, 0)));
+
+		List<AppOperation> submitted = genOperations(50);
+		base.submitOperations(submitted);
+		pool.submitOperations(submitted);
+		assertEquals(getIds(base.generateOperationList(states, 0)), getIds(pool.generateOperationList(states, 0)));
+	}
+
+	@Test
+	public void shouldNotKeepOperationsDeletedWhileSubmitted() throws Exception {
+		List<AppOperation> operations = genOperations(2000);
+		Set<UUID> ids = operations.stream().map(AppOperation::getId).collect(toSet());
+		OperationMapper pool = new OperationPool();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> submissions = executor.submit(() -> operations.forEach(pool::submitOperation));
+			Future<?> deletions = executor.submit(() -> operations.forEach(
+					operation -> pool.deleteOperations(Set.of(operation.getId()))));
+			submissions.get();
+			deletions.get();
+		} finally {
+			executor.shutdown();
+		}
+		pool.deleteOperations(ids);
+		assertTrue(pool.getStoredOperations().isEmpty());
+	}
+
+	private List<AppOperation> genOperations(int numOperations) {
+		List<AppOperation> operations = new ArrayList<>(numOperations);
+		for (int i = 0; i < numOperations; i++) {
+			byte[] content = new byte[1 + random.nextInt(2000)];
+			random.nextBytes(content);
+			operations.add(new AppOperation(content, new byte[0]));
+		}
+		return operations;
+	}
+
+	private static List<UUID> getIds(List<AppOperation> operations) {
+		return operations.stream().map(AppOperation::getId).collect(toList());
+	}
+
+}
@@ -0,0 +1,41 @@
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import ledger.ledgerManager.loadEstimators.SlidingWindowCounter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SlidingWindowCounterTests {
+
+	@Test
+	public void shouldCountOnlyTheLastSamples() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(3);
+		counter.add(true);
+		counter.add(true);
+		counter.add(false);
+		assertEquals(2, counter.getCount());
+		counter.add(false);
+		assertEquals(1, counter.getCount());
+		counter.add(false);
+		assertEquals(0, counter.getCount());
+		assertEquals(3, counter.size());
+	}
+
+	@Test
+	public void shouldRestoreSamplesInOrder() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(3);
+		counter.add(true);
+		counter.add(false);
+		counter.add(false);
+		counter.add(true);
+		ByteBuf buf = Unpooled.buffer();
+		counter.serialize(buf);
+		SlidingWindowCounter restored = new SlidingWindowCounter(3);
+		restored.deserialize(buf);
+		assertEquals(1, restored.getCount());
+		restored.add(true);
+		restored.add(true);
+		assertEquals(3, restored.getCount());
+	}
+
+}
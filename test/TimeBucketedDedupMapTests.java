@@ -0,0 +1,108 @@
+import broadcastProtocols.TimeBucketedDedupMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeBucketedDedupMapTests {
+
+	private static final long LONG_PERIOD = 60 * 60 * 1000;
+
+	@Test
+	public void shouldKeepEntriesForTwoRotations() {
+		TimeBucketedDedupMap<UUID, String> map = new TimeBucketedDedupMap<>(LONG_PERIOD, 1000);
+		UUID key = UUID.randomUUID();
+		map.put(key, "val");
+		map.rotate();
+		map.rotate();
+		assertEquals("val", map.get(key));
+		map.rotate();
+		assertFalse(map.containsKey(key));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void shouldNotReplaceExistingEntry() {
+		Map<UUID, String> map = new TimeBucketedDedupMap<>(LONG_PERIOD, 1000);
+		UUID key = UUID.randomUUID();
+		assertNull(map.putIfAbsent(key, "first"));
+		assertEquals("first", map.putIfAbsent(key, "second"));
+		assertEquals("first", map.get(key));
+	}
+
+	@Test
+	public void shouldBoundNumberOfEntries() {
+		int capacity = 100;
+		Map<UUID, Integer> map = new TimeBucketedDedupMap<>(LONG_PERIOD, capacity);
+		for (int i = 0; i < 10 * capacity; i++)
+			map.put(UUID.randomUUID(), i);
+		assertEquals(capacity, map.size());
+	}
+
+	/**
+	 * A burst larger than the capacity within a single epoch must only evict the oldest entries,
+	 * so that duplicates of the most recent messages are still detected.
+	 */
+	@Test
+	public void shouldDetectRecentDuplicatesUnderBurst() {
+		int capacity = 100;
+		List<UUID> evicted = new ArrayList<>();
+		TimeBucketedDedupMap<UUID, UUID> map = new TimeBucketedDedupMap<>(LONG_PERIOD, capacity, evicted::add);
+		List<UUID> burst = new ArrayList<>();
+		for (int i = 0; i < capacity + 3; i++) {
+			UUID key = UUID.randomUUID();
+			burst.add(key);
+			assertNull(map.putIfAbsent(key, key));
+		}
+		assertEquals(capacity, map.size());
+		assertEquals(burst.subList(0, 3), evicted);
+		for (UUID key : burst.subList(3, burst.size()))
+			assertEquals(key, map.putIfAbsent(key, key));
+		assertEquals(capacity, map.size());
+	}
+
+	@Test
+	public void shouldKeepLatestValueWhenTrimmingReplacedEntries() {
+		int capacity = 10;
+		TimeBucketedDedupMap<UUID, Integer> map = new TimeBucketedDedupMap<>(LONG_PERIOD, capacity);
+		UUID key = UUID.randomUUID();
+		for (int i = 0; i < 10 * capacity; i++)
+			map.put(key, i);
+		assertEquals(10 * capacity - 1, map.get(key));
+		map.put(UUID.randomUUID(), -1);
+		assertTrue(map.size() <= capacity);
+	}
+
+	@Test
+	public void shouldReflectChangesInViews() {
+		Map<UUID, Integer> map = new TimeBucketedDedupMap<>(LONG_PERIOD, 1000);
+		var keys = map.keySet();
+		var values = map.values();
+		UUID key = UUID.randomUUID();
+		map.put(key, 1);
+		assertTrue(keys.contains(key));
+		assertTrue(values.contains(1));
+		assertEquals(1, map.entrySet().size());
+		map.remove(key);
+		assertTrue(keys.isEmpty());
+		assertTrue(values.isEmpty());
+	}
+
+	@Test
+	public void shouldNotifyEvictedValues() {
+		List<String> evicted = new ArrayList<>();
+		TimeBucketedDedupMap<UUID, String> map = new TimeBucketedDedupMap<>(LONG_PERIOD, 1000, evicted::add);
+		UUID removed = UUID.randomUUID();
+		map.put(UUID.randomUUID(), "evicted");
+		map.put(removed, "removed");
+		map.remove(removed);
+		for (int i = 0; i < 3; i++)
+			map.rotate();
+		assertEquals(List.of("evicted"), evicted);
+	}
+
+}